@@ -3,6 +3,8 @@ package com.MindRune;
 import net.runelite.client.config.Config;
 import net.runelite.client.config.ConfigGroup;
 import net.runelite.client.config.ConfigItem;
+import net.runelite.client.config.Range;
+import net.runelite.client.config.Units;
 
 @ConfigGroup("example")
 public interface MindRuneConfig extends Config
@@ -25,4 +27,104 @@ public interface MindRuneConfig extends Config
 	default boolean enableChatNotifications() {
 		return true;  // Default to enabled
 	}
-}
\ No newline at end of file
+
+	@ConfigItem(
+			keyName = "includeItemNames",
+			name = "Include Item Names",
+			description = "Turn off to send only item IDs. Names are then looked up by the server"
+	)
+	default boolean includeItemNames() {
+		return true;
+	}
+
+	@ConfigItem(
+			keyName = "uploadCompression",
+			name = "Upload Compression",
+			description = "Compress uploaded data to save bandwidth. Falls back to uncompressed if the server does not support it"
+	)
+	default UploadCompression uploadCompression() {
+		return UploadCompression.NONE;
+	}
+
+	@ConfigItem(
+			keyName = "uploadFormat",
+			name = "Upload Format",
+			description = "Binary is much smaller than JSON. Falls back to JSON if the server does not support it"
+	)
+	default UploadFormat uploadFormat() {
+		return UploadFormat.JSON;
+	}
+
+	@Range(min = 100, max = 20000)
+	@ConfigItem(
+			keyName = "maxBatchEvents",
+			name = "Max Batch Events",
+			description = "Upload as soon as this many events are waiting"
+	)
+	default int maxBatchEvents() {
+		return 2000;
+	}
+
+	@Range(min = 5, max = 600)
+	@Units(Units.SECONDS)
+	@ConfigItem(
+			keyName = "maxBatchAge",
+			name = "Max Batch Age",
+			description = "Upload once the oldest waiting event is this old"
+	)
+	default int maxBatchAge() {
+		return 60;
+	}
+
+	@Range(min = 1, max = 8)
+	@ConfigItem(
+			keyName = "maxInFlightUploads",
+			name = "Parallel Uploads",
+			description = "Number of batches uploaded at the same time when catching up on a backlog"
+	)
+	default int maxInFlightUploads() {
+		return 2;
+	}
+
+	@ConfigItem(
+			keyName = "aggregateEvents",
+			name = "Aggregate XP and Hitsplats",
+			description = "Roll up XP drops per skill and hitsplats per target into one event per window, with totals, counts, minimum and maximum"
+	)
+	default boolean aggregateEvents() {
+		return false;
+	}
+
+	@Range(min = 1, max = 100)
+	@Units(Units.TICKS)
+	@ConfigItem(
+			keyName = "aggregationWindow",
+			name = "Aggregation Window",
+			description = "Longest time XP drops or hitsplats are rolled up before they are logged. Level ups and target changes end a window early"
+	)
+	default int aggregationWindow() {
+		return 10;
+	}
+
+	@ConfigItem(
+			keyName = "eventRateLimits",
+			name = "Event Rate Limits",
+			description = "One rule per line: event type, events per second, burst, and repeat window in milliseconds. Menu clicks are limited per option. Dropped events are counted on the next one sent"
+	)
+	default String eventRateLimits() {
+		return "MENU_CLICK 2 10 1200";
+	}
+
+	enum UploadCompression
+	{
+		NONE,
+		GZIP,
+		DEFLATE
+	}
+
+	enum UploadFormat
+	{
+		JSON,
+		BINARY
+	}
+}
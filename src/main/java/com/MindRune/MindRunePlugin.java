@@ -1,20 +1,37 @@
 package com.MindRune;
 
 import com.google.inject.Provides;
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import javax.inject.Inject;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.ChatMessageType;
 import net.runelite.api.Client;
+import net.runelite.api.GameState;
+import net.runelite.api.events.GameStateChanged;
+import net.runelite.api.events.GameTick;
+import net.runelite.client.RuneLite;
 import net.runelite.client.config.ConfigManager;
 import net.runelite.client.plugins.Plugin;
 import net.runelite.client.plugins.PluginDescriptor;
 import net.runelite.client.callback.ClientThread;
 import net.runelite.client.eventbus.EventBus;
+import net.runelite.client.eventbus.Subscribe;
 import net.runelite.client.game.ItemManager;
 import com.MindRune.listener.*;
 import com.MindRune.service.DataSenderService;
+import com.MindRune.service.EventAggregator;
 import com.MindRune.service.EventLogService;
+import com.MindRune.service.EventSpoolService;
+import com.MindRune.service.EventThrottle;
+import com.MindRune.service.ItemMetadataService;
 import com.MindRune.service.PlayerInfoService;
+import com.MindRune.service.RegionActivityService;
+import com.MindRune.util.TickWheel;
 
 @Slf4j
 @PluginDescriptor(
@@ -23,6 +40,8 @@ import com.MindRune.service.PlayerInfoService;
 		tags = {"example", "template"}
 )
 public class MindRunePlugin extends Plugin {
+	// How long shutdown waits for the client thread, which may already be gone when the client exits
+	private static final long CLIENT_THREAD_TIMEOUT_MS = 500;
 
 	@Inject
 	private Client client;
@@ -41,8 +60,15 @@ public class MindRunePlugin extends Plugin {
 
 	// Services
 	private EventLogService eventLogService;
+	private EventAggregator eventAggregator;
+	private EventSpoolService eventSpoolService;
+	private ItemMetadataService itemMetadataService;
 	private DataSenderService dataSenderService;
 	private PlayerInfoService playerInfoService;
+	private RegionActivityService regionActivityService;
+
+	// Expiry for tick-bounded listener state, advanced once per game tick
+	private TickWheel tickWheel;
 
 	// Listeners
 	private HitSplatListener hitsplatListener;
@@ -63,18 +89,24 @@ public class MindRunePlugin extends Plugin {
 		log.info("MindRune Plugin Started!");
 
 		// Initialize services
-		eventLogService = new EventLogService();
+		eventLogService = new EventLogService(List.of(new EventThrottle(config)));
+		eventAggregator = new EventAggregator(client, eventLogService, config);
 		playerInfoService = new PlayerInfoService(client);
-		dataSenderService = new DataSenderService(client, config, clientThread, eventLogService);
+		itemMetadataService = new ItemMetadataService(itemManager, config);
+		regionActivityService = new RegionActivityService();
+		eventSpoolService = new EventSpoolService(new File(RuneLite.RUNELITE_DIR, "mindrune/spool"));
+		dataSenderService = new DataSenderService(client, config, clientThread, eventLogService, eventSpoolService);
 
 		// Initialize listeners
-		hitsplatListener = new HitSplatListener(client, eventLogService);
-		monsterkillListener = new MonsterKillListener(client, eventLogService, clientThread);
-		inventoryListener = new InventoryListener(client, eventLogService);
-		skillListener = new SkillListener(client, eventLogService);
+		tickWheel = new TickWheel();
+		hitsplatListener = new HitSplatListener(client, eventAggregator);
+		monsterkillListener = new MonsterKillListener(client, eventLogService, clientThread, itemMetadataService, tickWheel);
+		inventoryListener = new InventoryListener(client, eventLogService, itemMetadataService);
+		skillListener = new SkillListener(client, eventAggregator);
 		interactionListener = new InteractionListener(client, eventLogService);
 		achievementListener = new AchievementListener(client, eventLogService, clientThread);
-		rewardListener = new RewardListener(client, eventLogService, clientThread, itemManager);
+		rewardListener = new RewardListener(client, eventLogService, clientThread, itemMetadataService, tickWheel,
+				regionActivityService);
 
 		// Register all listeners with the event bus
 		eventBus.register(hitsplatListener);
@@ -85,7 +117,11 @@ public class MindRunePlugin extends Plugin {
 		eventBus.register(achievementListener);
 		eventBus.register(rewardListener);
 
-		// Start data sender
+		// Pick up the map that is already loaded, later maps are handled on load
+		clientThread.invokeLater(() -> regionActivityService.update(client.getMapRegions()));
+
+		// Start the event pipeline and data sender
+		eventLogService.start();
 		dataSenderService.startDataSender();
 
 		// Chat notification
@@ -109,6 +145,29 @@ public class MindRunePlugin extends Plugin {
 		eventBus.unregister(achievementListener);
 		eventBus.unregister(rewardListener);
 
+		// Listener state belongs to the client thread. Clear it there, and log what is still
+		// being aggregated so the final send includes it.
+		CompletableFuture<Void> flushed = new CompletableFuture<>();
+		clientThread.invoke(() -> {
+			try {
+				tickWheel.clear();
+				regionActivityService.clear();
+				eventAggregator.flushAll();
+			} finally {
+				flushed.complete(null);
+			}
+		});
+		try {
+			flushed.get(CLIENT_THREAD_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException | TimeoutException e) {
+			log.warn("Client thread did not flush aggregated events in time, they will be lost");
+		}
+
+		// Let the pipeline catch up before the sender spools what is left
+		eventLogService.stop();
+
 		// Stop data sender
 		dataSenderService.stopDataSender();
 
@@ -119,4 +178,26 @@ public class MindRunePlugin extends Plugin {
 			});
 		}
 	}
+
+	@Subscribe
+	public void onGameStateChanged(GameStateChanged event) {
+		eventLogService.resetTickContext();
+
+		// Map regions are in place by the time the new map is loading
+		if (event.getGameState() == GameState.LOADING || event.getGameState() == GameState.LOGGED_IN) {
+			regionActivityService.update(client.getMapRegions());
+		}
+
+		// Windows must not carry over to another world or account
+		if (event.getGameState() == GameState.LOGIN_SCREEN || event.getGameState() == GameState.HOPPING) {
+			eventAggregator.flushAll();
+		}
+	}
+
+	@Subscribe
+	public void onGameTick(GameTick event) {
+		eventLogService.beginTick(client);
+		tickWheel.advance();
+		eventAggregator.onTick();
+	}
 }
\ No newline at end of file
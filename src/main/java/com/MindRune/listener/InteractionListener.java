@@ -1,5 +1,6 @@
 package com.MindRune.listener;
 
+import com.MindRune.model.MenuClickDetails;
 import com.MindRune.service.EventLogService;
 import com.MindRune.util.TextUtil;
 import com.google.gson.JsonObject;
@@ -25,14 +26,10 @@ public class InteractionListener {
      */
     @Subscribe
     public void onMenuOptionClicked(MenuOptionClicked event) {
-        JsonObject details = new JsonObject();
-        details.addProperty("action", TextUtil.stripColorTags(event.getMenuOption()));
-        details.addProperty("target", TextUtil.stripColorTags(event.getMenuTarget()));
-
-        // Add identifier if available
-        if (event.getId() != -1) {
-            details.addProperty("id", event.getId());
-        }
+        MenuClickDetails details = new MenuClickDetails(
+                TextUtil.stripColorTags(event.getMenuOption()),
+                TextUtil.stripColorTags(event.getMenuTarget()),
+                event.getId());
 
         eventLogService.logEvent("MENU_CLICK", client, details);
     }
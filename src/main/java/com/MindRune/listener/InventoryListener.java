@@ -1,39 +1,56 @@
 package com.MindRune.listener;
 
+import com.MindRune.model.InventoryChangeDetails;
 import com.MindRune.service.EventLogService;
-import com.google.gson.JsonObject;
+import com.MindRune.service.ItemMetadataService;
 import net.runelite.api.Client;
 import net.runelite.api.InventoryID;
 import net.runelite.api.Item;
-import net.runelite.api.ItemComposition;
 import net.runelite.api.ItemContainer;
 import net.runelite.api.events.GameTick;
 import net.runelite.api.events.ItemContainerChanged;
 import net.runelite.client.eventbus.Subscribe;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.Arrays;
 
 /**
- * Listener for inventory-related events
+ * Listener for inventory-related events.
+ *
+ * The inventory is kept as two pairs of slot arrays that are swapped after every
+ * change, and each change is diffed slot by slot without boxing:
+ * <ul>
+ *     <li>STACK: the same item stays in a slot with a different quantity</li>
+ *     <li>MOVE: an item leaves one slot and the same item and quantity appears in another</li>
+ *     <li>ADD / REMOVE: whatever is left over, summed per item</li>
+ * </ul>
  */
 public class InventoryListener {
+    private static final String EVENT_INVENTORY_CHANGE = "INVENTORY_CHANGE";
+    private static final int INVENTORY_SIZE = 28;
+    private static final int EMPTY = -1;
+
     private final Client client;
     private final EventLogService eventLogService;
-    private final Map<Integer, Integer> previousInventoryMap = new HashMap<>();
-    private final Map<Integer, Set<Integer>> previousPositionMap = new HashMap<>();
-    private boolean isInitialized = false;
+    private final ItemMetadataService itemMetadataService;
+
+    // Double buffered slot state, swapped after each diff
+    private int[] previousIds = new int[INVENTORY_SIZE];
+    private int[] previousQuantities = new int[INVENTORY_SIZE];
+    private int[] currentIds = new int[INVENTORY_SIZE];
+    private int[] currentQuantities = new int[INVENTORY_SIZE];
+
+    // Scratch space for slots whose item changed, reused between diffs
+    private final int[] removedSlots = new int[INVENTORY_SIZE];
+    private final int[] addedSlots = new int[INVENTORY_SIZE];
+    private final int[] moveTargets = new int[INVENTORY_SIZE];
+    private final boolean[] removedHandled = new boolean[INVENTORY_SIZE];
+    private final boolean[] addedHandled = new boolean[INVENTORY_SIZE];
 
-    // Event types for inventory changes
-    private static final String EVENT_ITEM_ADDED = "INVENTORY_CHANGE";
-    private static final String EVENT_ITEM_MOVED = "INVENTORY_CHANGE";
+    private boolean isInitialized = false;
 
-    public InventoryListener(Client client, EventLogService eventLogService) {
+    public InventoryListener(Client client, EventLogService eventLogService, ItemMetadataService itemMetadataService) {
         this.client = client;
         this.eventLogService = eventLogService;
+        this.itemMetadataService = itemMetadataService;
     }
 
     @Subscribe
@@ -52,7 +69,6 @@ public class InventoryListener {
             return;
         }
 
-        // Get current inventory items
         ItemContainer container = event.getItemContainer();
         if (container == null) {
             return;
@@ -64,113 +80,174 @@ public class InventoryListener {
             return;
         }
 
-        // Create a map of current item IDs to quantities and positions
-        Map<Integer, Integer> currentInventoryMap = new HashMap<>();
-        Map<Integer, Set<Integer>> currentPositionMap = new HashMap<>();
+        readSlots(container, currentIds, currentQuantities);
+        diff();
 
-        Item[] items = container.getItems();
-        for (int i = 0; i < items.length; i++) {
-            Item item = items[i];
-            if (item.getId() != -1) {  // Skip empty slots
-                int itemId = item.getId();
-                int quantity = item.getQuantity();
-
-                // Track total quantities
-                currentInventoryMap.put(itemId, currentInventoryMap.getOrDefault(itemId, 0) + quantity);
-
-                // Track item positions
-                if (!currentPositionMap.containsKey(itemId)) {
-                    currentPositionMap.put(itemId, new HashSet<>());
+        // Swap buffers, the current state becomes the previous one
+        int[] ids = previousIds;
+        previousIds = currentIds;
+        currentIds = ids;
+        int[] quantities = previousQuantities;
+        previousQuantities = currentQuantities;
+        currentQuantities = quantities;
+    }
+
+    /**
+     * Compare the previous and current slot arrays and log the changes
+     */
+    private void diff() {
+        int removedCount = 0;
+        int addedCount = 0;
+
+        for (int slot = 0; slot < INVENTORY_SIZE; slot++) {
+            int oldId = previousIds[slot];
+            int newId = currentIds[slot];
+
+            if (oldId == newId) {
+                if (oldId != EMPTY && previousQuantities[slot] != currentQuantities[slot]) {
+                    logChange(oldId, currentQuantities[slot] - previousQuantities[slot], "STACK");
                 }
-                currentPositionMap.get(itemId).add(i);
+                continue;
+            }
+
+            if (oldId != EMPTY) {
+                removedSlots[removedCount++] = slot;
+            }
+            if (newId != EMPTY) {
+                addedSlots[addedCount++] = slot;
             }
         }
 
-        // Check for new items or quantity increases
-        for (Map.Entry<Integer, Integer> entry : currentInventoryMap.entrySet()) {
-            int itemId = entry.getKey();
-            int currentQuantity = entry.getValue();
-            int previousQuantity = previousInventoryMap.getOrDefault(itemId, 0);
-
-            if (previousQuantity < currentQuantity) {
-                // Item was actually added (quantity increased)
-                ItemComposition itemComp = client.getItemDefinition(itemId);
-                String itemName = itemComp != null ? itemComp.getName() : "Unknown Item";
-
-                JsonObject details = new JsonObject();
-                details.addProperty("itemId", itemId);
-                details.addProperty("itemName", itemName);
-                details.addProperty("quantity", currentQuantity - previousQuantity);
-                details.addProperty("changeType", "ADD");
-
-                eventLogService.logEvent(EVENT_ITEM_ADDED, client, details);
-            } else if (previousQuantity == currentQuantity) {
-                // Same quantity, but check if positions changed
-                Set<Integer> currentPositions = currentPositionMap.get(itemId);
-                Set<Integer> previousPositions = previousPositionMap.getOrDefault(itemId, new HashSet<>());
-
-                // Simple check: if positions are different but quantity is the same, it was moved
-                if (!currentPositions.equals(previousPositions)) {
-                    ItemComposition itemComp = client.getItemDefinition(itemId);
-                    String itemName = itemComp != null ? itemComp.getName() : "Unknown Item";
-
-                    JsonObject details = new JsonObject();
-                    details.addProperty("itemId", itemId);
-                    details.addProperty("itemName", itemName);
-                    details.addProperty("quantity", currentQuantity);
-                    details.addProperty("changeType", "MOVE");
-
-                    // Optional: include position information
-                    StringBuilder oldPositions = new StringBuilder();
-                    for (Integer pos : previousPositions) {
-                        oldPositions.append(pos).append(",");
-                    }
-                    StringBuilder newPositions = new StringBuilder();
-                    for (Integer pos : currentPositions) {
-                        newPositions.append(pos).append(",");
-                    }
-
-                    details.addProperty("oldPositions", oldPositions.toString());
-                    details.addProperty("newPositions", newPositions.toString());
-
-                    eventLogService.logEvent(EVENT_ITEM_MOVED, client, details);
+        if (removedCount == 0 && addedCount == 0) {
+            return;
+        }
+
+        // Pair each removal with an addition of the same item and quantity
+        Arrays.fill(moveTargets, 0, removedCount, EMPTY);
+        Arrays.fill(removedHandled, 0, removedCount, false);
+        Arrays.fill(addedHandled, 0, addedCount, false);
+        for (int r = 0; r < removedCount; r++) {
+            int from = removedSlots[r];
+            for (int a = 0; a < addedCount; a++) {
+                int to = addedSlots[a];
+                if (!addedHandled[a] && currentIds[to] == previousIds[from] && currentQuantities[to] == previousQuantities[from]) {
+                    addedHandled[a] = true;
+                    removedHandled[r] = true;
+                    moveTargets[r] = to;
+                    break;
                 }
             }
         }
 
-        // Update previous inventory state
-        previousInventoryMap.clear();
-        previousInventoryMap.putAll(currentInventoryMap);
-        previousPositionMap.clear();
-        previousPositionMap.putAll(currentPositionMap);
+        logMoves(removedCount);
+        logUnmatched(removedCount, addedCount);
+    }
+
+    /**
+     * Log one MOVE per item, with the slots it moved from and to as a permutation
+     */
+    private void logMoves(int removedCount) {
+        for (int r = 0; r < removedCount; r++) {
+            if (moveTargets[r] == EMPTY) {
+                continue;
+            }
+
+            int itemId = previousIds[removedSlots[r]];
+            int count = 0;
+            for (int i = r; i < removedCount; i++) {
+                if (moveTargets[i] != EMPTY && previousIds[removedSlots[i]] == itemId) {
+                    count++;
+                }
+            }
+
+            int[] oldSlots = new int[count];
+            int[] newSlots = new int[count];
+            int quantity = 0;
+            count = 0;
+            for (int i = r; i < removedCount; i++) {
+                if (moveTargets[i] != EMPTY && previousIds[removedSlots[i]] == itemId) {
+                    oldSlots[count] = removedSlots[i];
+                    newSlots[count++] = moveTargets[i];
+                    quantity += previousQuantities[removedSlots[i]];
+                    moveTargets[i] = EMPTY;
+                }
+            }
+
+            eventLogService.logEvent(EVENT_INVENTORY_CHANGE, client, new InventoryChangeDetails(
+                    itemId, getItemName(itemId), quantity, "MOVE", oldSlots, newSlots));
+        }
+    }
+
+    /**
+     * Log removals and additions that were not part of a move, summed per item
+     */
+    private void logUnmatched(int removedCount, int addedCount) {
+        for (int r = 0; r < removedCount; r++) {
+            if (removedHandled[r]) {
+                continue;
+            }
+
+            int itemId = previousIds[removedSlots[r]];
+            int quantity = 0;
+            for (int i = r; i < removedCount; i++) {
+                if (!removedHandled[i] && previousIds[removedSlots[i]] == itemId) {
+                    quantity += previousQuantities[removedSlots[i]];
+                    removedHandled[i] = true;
+                }
+            }
+            logChange(itemId, quantity, "REMOVE");
+        }
+
+        for (int a = 0; a < addedCount; a++) {
+            if (addedHandled[a]) {
+                continue;
+            }
+
+            int itemId = currentIds[addedSlots[a]];
+            int quantity = 0;
+            for (int i = a; i < addedCount; i++) {
+                if (!addedHandled[i] && currentIds[addedSlots[i]] == itemId) {
+                    quantity += currentQuantities[addedSlots[i]];
+                    addedHandled[i] = true;
+                }
+            }
+            logChange(itemId, quantity, "ADD");
+        }
+    }
+
+    private void logChange(int itemId, int quantity, String changeType) {
+        eventLogService.logEvent(EVENT_INVENTORY_CHANGE, client,
+                new InventoryChangeDetails(itemId, getItemName(itemId), quantity, changeType));
+    }
+
+    private String getItemName(int itemId) {
+        return itemMetadataService.getPayloadName(itemId, "Unknown Item");
+    }
+
+    /**
+     * Copy a container into slot arrays, marking slots past the end of the container empty
+     */
+    private static void readSlots(ItemContainer container, int[] ids, int[] quantities) {
+        Item[] items = container.getItems();
+        int count = Math.min(items.length, INVENTORY_SIZE);
+        for (int i = 0; i < count; i++) {
+            ids[i] = items[i].getId();
+            quantities[i] = ids[i] != EMPTY ? items[i].getQuantity() : 0;
+        }
+        Arrays.fill(ids, count, INVENTORY_SIZE, EMPTY);
+        Arrays.fill(quantities, count, INVENTORY_SIZE, 0);
     }
 
     /**
      * Update the previous inventory state from the current inventory
      */
     private void updatePreviousInventory() {
-        previousInventoryMap.clear();
-        previousPositionMap.clear();
-
         ItemContainer container = client.getItemContainer(InventoryID.INVENTORY);
         if (container != null) {
-            Item[] items = container.getItems();
-            for (int i = 0; i < items.length; i++) {
-                Item item = items[i];
-                if (item.getId() != -1) {  // Skip empty slots
-                    int itemId = item.getId();
-                    int quantity = item.getQuantity();
-
-                    // Track total quantities
-                    previousInventoryMap.put(itemId, previousInventoryMap.getOrDefault(itemId, 0) + quantity);
-
-                    // Track item positions
-                    if (!previousPositionMap.containsKey(itemId)) {
-                        previousPositionMap.put(itemId, new HashSet<>());
-                    }
-                    previousPositionMap.get(itemId).add(i);
-                }
-            }
+            readSlots(container, previousIds, previousQuantities);
+        } else {
+            Arrays.fill(previousIds, EMPTY);
+            Arrays.fill(previousQuantities, 0);
         }
     }
-}
\ No newline at end of file
+}
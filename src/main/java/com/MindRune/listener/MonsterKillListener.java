@@ -1,38 +1,44 @@
 package com.MindRune.listener;
 
+import com.MindRune.model.ItemList;
+import com.MindRune.model.MonsterKillDetails;
 import com.MindRune.service.EventLogService;
+import com.MindRune.service.ItemMetadataService;
+import com.MindRune.util.IntIntMap;
+import com.MindRune.util.PackedPointMap;
 import com.MindRune.util.TextUtil;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
-import com.google.common.collect.HashMultiset;
-import com.google.common.collect.Multiset;
-import com.google.common.collect.Multisets;
+import com.MindRune.util.TickWheel;
+import com.google.common.collect.ImmutableSet;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.Actor;
 import net.runelite.api.Client;
+import net.runelite.api.GameState;
 import net.runelite.api.NPC;
+import net.runelite.api.NPCComposition;
+import net.runelite.api.NpcID;
 import net.runelite.api.Player;
-import net.runelite.api.ItemComposition;
 import net.runelite.api.Tile;
 import net.runelite.api.TileItem;
+import net.runelite.api.coords.LocalPoint;
 import net.runelite.api.coords.WorldPoint;
 import net.runelite.api.events.ActorDeath;
+import net.runelite.api.events.GameStateChanged;
+import net.runelite.api.events.ItemDespawned;
+import net.runelite.api.events.ItemQuantityChanged;
 import net.runelite.api.events.ItemSpawned;
 import net.runelite.api.events.GameTick;
 import net.runelite.api.events.NpcDespawned;
+import net.runelite.api.events.NpcSpawned;
 import net.runelite.api.events.AnimationChanged;
 import net.runelite.client.callback.ClientThread;
 import net.runelite.client.eventbus.Subscribe;
 
 import javax.inject.Inject;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Set;
 import java.util.UUID;
-import java.util.Arrays;
-import java.util.Collection;
-import java.util.Objects;
 
 /**
  * Listener for monster death and loot events, inspired by RuneLite's LootTracker plugin
@@ -43,12 +49,17 @@ public class MonsterKillListener {
     private final Client client;
     private final EventLogService eventLogService;
     private final ClientThread clientThread;
+    private final ItemMetadataService itemMetadataService;
+    private final TickWheel tickWheel;
 
     // Track kills and their associated loot
     private final Map<String, KillInfo> activeKills = new HashMap<>();
 
-    // Track kill locations for loot association
-    private final Map<WorldPoint, String> killLocations = new HashMap<>();
+    // Tiles covered by each active kill, for loot association
+    private final PackedPointMap<KillInfo> killTiles = new PackedPointMap<>();
+
+    // Loot can drop a tile or so away from the tiles the NPC occupied
+    private static final int LOOT_RADIUS = 1;
 
     // How long to keep tracking a kill for its loot (ticks)
     private static final int LOOT_TRACKING_TIMEOUT = 10; // About 6 seconds
@@ -56,12 +67,40 @@ public class MonsterKillListener {
     // Minimum time to wait before finalizing a kill (ticks)
     private static final int MIN_TRACKING_TIME = 3; // About 1.8 seconds
 
+    // NPCs whose loot appears on the ground some time after they despawn, away from
+    // where they died (same cases as LootTrackerPlugin)
+    private static final Set<Integer> DELAYED_LOOT_NPCS = ImmutableSet.of(
+            NpcID.THE_WHISPERER,
+            NpcID.THE_WHISPERER_12205,
+            NpcID.THE_WHISPERER_12206,
+            NpcID.THE_WHISPERER_12207
+    );
+
+    // How long to wait for delayed loot after the NPC despawns (ticks)
+    private static final int DELAYED_LOOT_TIMEOUT = 59;
+
+    // Delayed-loot NPCs currently in the scene
+    private final Set<NPC> delayedLootNpcs = new HashSet<>();
+
+    // Item counts on the ground floor of the delayed-loot NPC's region, kept up to date
+    // from item events so delayed loot never needs a scene scan. Only maintained while a
+    // delayed-loot NPC is present or its loot is awaited, other areas pay nothing per item.
+    private final IntIntMap groundItems = new IntIntMap(64);
+    private boolean groundItemsTracked;
+    private int groundItemsRegion;
+
+    // Death of a delayed-loot NPC, logged once with its loot when the loot appears
+    private KillInfo delayedKill;
+
     // Ground items tracking for special cases
-    private String groundSnapshotName;
-    private int groundSnapshotCombatLevel;
-    private Multiset<Integer> groundSnapshot;
-    private int groundSnapshotCycleDelay;
+    private KillInfo groundSnapshotKill;
+    // Whether the player was seen killing the NPC, only then is a kill without loot logged
+    private boolean groundSnapshotDeathSeen;
+    private IntIntMap groundSnapshot;
+    private TickWheel.Timeout groundSnapshotTimeout;
     private int groundSnapshotRegion;
+    // Items whose ground count changed since the last loot check
+    private final Set<Integer> groundSnapshotChanged = new HashSet<>();
 
     // Last interacted NPC (for special cases)
     private int lastNpcTypeTarget;
@@ -70,166 +109,247 @@ public class MonsterKillListener {
     // Class to store kill information
     private static class KillInfo {
         String killId;
-        JsonObject details;
-        JsonArray items = new JsonArray();
-        int ticksSinceKill = 0;
+        String monsterName;
+        int monsterId;
+        int combatLevel;
+        ItemList items = new ItemList();
+        // Set once the minimum tracking time has passed, loot after that finalizes the kill
+        boolean minimumReached = false;
+        boolean finalizeScheduled = false;
         boolean finalized = false;
         // Adding a WorldPoint to more accurately track the kill location
         WorldPoint killLocation;
+        // Width of the NPC in tiles, large NPCs occupy a square north-east of their location
+        int size;
 
-        KillInfo(String killId, JsonObject details, WorldPoint killLocation) {
+        KillInfo(String killId, String monsterName, int monsterId, int combatLevel, WorldPoint killLocation, int size) {
             this.killId = killId;
-            this.details = details;
+            this.monsterName = monsterName;
+            this.monsterId = monsterId;
+            this.combatLevel = combatLevel;
             this.killLocation = killLocation;
-        }
-
-        void addItem(JsonObject item) {
-            items.add(item);
+            this.size = size;
         }
     }
 
     @Inject
-    public MonsterKillListener(Client client, EventLogService eventLogService, ClientThread clientThread) {
+    public MonsterKillListener(Client client, EventLogService eventLogService, ClientThread clientThread,
+                               ItemMetadataService itemMetadataService, TickWheel tickWheel) {
         this.client = client;
         this.eventLogService = eventLogService;
         this.clientThread = clientThread;
+        this.itemMetadataService = itemMetadataService;
+        this.tickWheel = tickWheel;
     }
 
     /**
-     * Update kill tracking every tick
+     * Poll for delayed loot. Kill expiry is driven by the tick wheel.
      */
     @Subscribe
     public void onGameTick(GameTick tick) {
-        // Update tick counters and finalize old kills
-        List<String> toRemove = new ArrayList<>();
-
-        for (Map.Entry<String, KillInfo> entry : activeKills.entrySet()) {
-            KillInfo info = entry.getValue();
-            info.ticksSinceKill++;
-
-            // Log any kills that are old enough to have collected all loot
-            if (info.ticksSinceKill >= MIN_TRACKING_TIME && !info.finalized) {
-                // Only finalize if we have items or it's past the timeout
-                if (info.items.size() > 0 || info.ticksSinceKill >= LOOT_TRACKING_TIMEOUT) {
-                    finalizeKill(entry.getKey(), info);
+        // Handle ground item snapshot for special cases like The Whisperer
+        // (using the technique from LootTrackerPlugin)
+        if (groundSnapshot != null && !groundSnapshotChanged.isEmpty()) {
+            var region = WorldPoint.fromLocalInstance(client, client.getLocalPlayer().getLocalLocation()).getRegionID();
+            if (region != groundSnapshotRegion) {
+                log.debug("Ground snapshot: In wrong region {} != {}", region, groundSnapshotRegion);
+                return;
+            }
+
+            // Only items whose count changed can have gone up since the snapshot
+            KillInfo kill = groundSnapshotKill;
+            boolean lootReceived = false;
+            for (int itemId : groundSnapshotChanged) {
+                int gained = groundItems.get(itemId) - groundSnapshot.get(itemId);
+                if (gained <= 0) {
+                    continue;
+                }
+                lootReceived = true;
+                if (itemMetadataService.get(itemId) != null) {
+                    kill.items.add(itemId, itemMetadataService.getPayloadName(itemId, null), gained);
                 }
             }
+            groundSnapshotChanged.clear();
 
-            // Mark for removal if past the tracking timeout
-            if (info.ticksSinceKill >= LOOT_TRACKING_TIMEOUT) {
-                toRemove.add(entry.getKey());
+            if (!lootReceived) {
+                // loot is not spawned yet
+                log.debug("Ground snapshot: No loot yet");
+                return;
             }
-        }
 
-        // Remove old kills
-        for (String killId : toRemove) {
-            KillInfo info = activeKills.remove(killId);
+            log.debug("Ground snapshot: Loot received {} on cycle {}", kill.items.size(), client.getGameCycle());
 
-            // If this kill never got finalized (shouldn't happen normally), do it now
-            if (!info.finalized) {
-                finalizeKill(killId, info);
-            }
+            // One kill with the loot, under the ID the death was recorded with
+            finalizeKill(kill.killId, kill);
+            endGroundSnapshot();
         }
+    }
 
-        // Clean up old location mappings that no longer have an active kill
-        List<WorldPoint> locationsToRemove = new ArrayList<>();
-        for (Map.Entry<WorldPoint, String> entry : killLocations.entrySet()) {
-            if (!activeKills.containsKey(entry.getValue())) {
-                locationsToRemove.add(entry.getKey());
-            }
+    /**
+     * Stop waiting for delayed loot, logging the kill without loot if the player was seen
+     * killing the NPC and nothing arrived
+     */
+    private void endGroundSnapshot() {
+        if (groundSnapshotKill != null && groundSnapshotDeathSeen && !groundSnapshotKill.finalized) {
+            finalizeKill(groundSnapshotKill.killId, groundSnapshotKill);
+        }
+        if (groundSnapshotTimeout != null) {
+            groundSnapshotTimeout.cancel();
+        }
+
+        groundSnapshotKill = null;
+        groundSnapshotDeathSeen = false;
+        groundSnapshot = null;
+        groundSnapshotTimeout = null;
+        groundSnapshotChanged.clear();
+
+        if (delayedLootNpcs.isEmpty()) {
+            stopGroundTracking();
         }
+    }
 
-        for (WorldPoint location : locationsToRemove) {
-            killLocations.remove(location);
+    @Subscribe
+    public void onGameStateChanged(GameStateChanged event) {
+        if (event.getGameState() == GameState.LOADING) {
+            // The scene is about to be rebuilt, every item in it will spawn again
+            groundItems.clear();
+        } else if (event.getGameState() == GameState.LOGIN_SCREEN || event.getGameState() == GameState.HOPPING) {
+            delayedLootNpcs.clear();
+            delayedKill = null;
+            endGroundSnapshot();
         }
+    }
 
-        // Handle ground item snapshot for special cases like The Whisperer
-        // (using the technique from LootTrackerPlugin)
-        if (groundSnapshotCycleDelay > 0) {
-            groundSnapshotCycleDelay--;
+    @Subscribe
+    public void onItemDespawned(ItemDespawned event) {
+        TileItem item = event.getItem();
+        updateGroundItem(event.getTile(), item.getId(), -item.getQuantity());
+    }
 
-            if (groundSnapshotCycleDelay == 0) {
-                log.debug("Ground snapshot: Loot timeout");
-                groundSnapshotName = null;
-                groundSnapshotCombatLevel = 0;
-                groundSnapshot = null;
-                return;
-            }
+    /**
+     * Stackable items that land on an existing stack change its quantity instead of spawning
+     */
+    @Subscribe
+    public void onItemQuantityChanged(ItemQuantityChanged event) {
+        updateGroundItem(event.getTile(), event.getItem().getId(), event.getNewQuantity() - event.getOldQuantity());
+    }
 
-            var region = WorldPoint.fromLocalInstance(client, client.getLocalPlayer().getLocalLocation()).getRegionID();
-            if (region != groundSnapshotRegion) {
-                log.debug("Ground snapshot: In wrong region {} != {}", region, groundSnapshotRegion);
-                return;
-            }
+    private void updateGroundItem(Tile tile, int itemId, int delta) {
+        if (!groundItemsTracked || tile.getPlane() != 0) {
+            return;
+        }
+        LocalPoint local = tile.getLocalLocation();
+        if (regionOf(local.getSceneX(), local.getSceneY(), 0) != groundItemsRegion) {
+            return;
+        }
 
-            Multiset<Integer> ground = HashMultiset.create();
-            var scene = client.getScene();
-            Tile[][] p0 = scene.getTiles()[0];
-            Arrays.stream(p0)
-                    .flatMap(Arrays::stream)
-                    .filter(Objects::nonNull)
-                    .map(Tile::getGroundItems)
-                    .filter(Objects::nonNull)
-                    .flatMap(Collection::stream)
-                    .forEach(item -> ground.add(item.getId(), item.getQuantity()));
-
-            var diff = Multisets.difference(ground, groundSnapshot);
-            if (diff.isEmpty()) {
-                // loot is not spawned yet
-                log.debug("Ground snapshot: No loot yet");
-                return;
-            }
+        groundItems.addTo(itemId, delta);
+        if (groundSnapshot != null) {
+            groundSnapshotChanged.add(itemId);
+        }
+    }
 
-            log.debug("Ground snapshot: Loot received {} on cycle {}", diff, client.getGameCycle());
-
-            // Create a JSON array for the detected items
-            JsonArray lootItems = new JsonArray();
-            for (Multiset.Entry<Integer> entry : diff.entrySet()) {
-                ItemComposition itemComp = client.getItemDefinition(entry.getElement());
-                if (itemComp != null) {
-                    JsonObject itemObj = new JsonObject();
-                    itemObj.addProperty("itemId", entry.getElement());
-                    itemObj.addProperty("itemName", itemComp.getName());
-                    itemObj.addProperty("quantity", entry.getCount());
-                    lootItems.add(itemObj);
+    /**
+     * Start counting the ground items in the region of a delayed-loot NPC, with one scan
+     * of the loaded scene for the items already there
+     */
+    private void startGroundTracking(NPC npc) {
+        groundItems.clear();
+        groundItemsRegion = WorldPoint.fromLocalInstance(client, npc.getLocalLocation()).getRegionID();
+        groundItemsTracked = true;
+
+        for (Tile[] row : client.getScene().getTiles()[0]) {
+            for (Tile tile : row) {
+                if (tile == null || tile.getGroundItems() == null) {
+                    continue;
+                }
+                LocalPoint local = tile.getLocalLocation();
+                if (regionOf(local.getSceneX(), local.getSceneY(), 0) != groundItemsRegion) {
+                    continue;
+                }
+                for (TileItem item : tile.getGroundItems()) {
+                    groundItems.addTo(item.getId(), item.getQuantity());
                 }
             }
+        }
+    }
 
-            // Generate a new kill ID for this special case
-            String killId = UUID.randomUUID().toString();
+    private void stopGroundTracking() {
+        groundItemsTracked = false;
+        groundItems.clear();
+    }
 
-            // Create kill details
-            JsonObject details = new JsonObject();
-            details.addProperty("monsterName", groundSnapshotName);
-            details.addProperty("combatLevel", groundSnapshotCombatLevel);
-            details.addProperty("killId", killId);
-            details.add("items", lootItems);
+    /**
+     * Region of a scene tile, of the template it was copied from in an instance. Same as
+     * {@link WorldPoint#fromLocalInstance} followed by getRegionID, without the allocations.
+     * Template chunks are 8 tiles aligned, so rotation within a chunk never changes the region.
+     */
+    private int regionOf(int sceneX, int sceneY, int plane) {
+        int x;
+        int y;
+        if (client.isInInstancedRegion()) {
+            int chunk = client.getInstanceTemplateChunks()[plane][sceneX >> 3][sceneY >> 3];
+            x = (chunk >> 14 & 0x3FF) << 3;
+            y = (chunk >> 3 & 0x7FF) << 3;
+        } else {
+            x = client.getBaseX() + sceneX;
+            y = client.getBaseY() + sceneY;
+        }
+        return (x >> 6) << 8 | y >> 6;
+    }
 
-            // Log the event directly
-            eventLogService.logEvent("MONSTER_KILL", client, details);
+    /**
+     * The minimum tracking time has passed, log the kill now if loot already arrived
+     */
+    private void onMinimumTrackingTime(KillInfo info) {
+        info.minimumReached = true;
+        if (info.items.size() > 0 && !info.finalized) {
+            finalizeKill(info.killId, info);
+        }
+    }
 
-            // Reset ground snapshot tracking
-            groundSnapshotName = null;
-            groundSnapshotCombatLevel = 0;
-            groundSnapshot = null;
-            groundSnapshotCycleDelay = 0;
+    /**
+     * Stop tracking a kill, logging it without loot if none arrived
+     */
+    private void expireKill(KillInfo info) {
+        if (!info.finalized) {
+            finalizeKill(info.killId, info);
         }
+        activeKills.remove(info.killId);
+        removeKillTiles(info);
     }
 
     /**
      * Finalize a kill by logging the event with all collected loot
      */
     private void finalizeKill(String killId, KillInfo info) {
-        // Add the items array to the event details
-        info.details.add("items", info.items);
+        // Snapshot the items, loot can still spawn after the kill has been logged
+        MonsterKillDetails details = new MonsterKillDetails(
+                info.monsterName, info.monsterId, info.combatLevel, info.killLocation, killId, info.items.copy());
 
         // Log the complete event
-        eventLogService.logEvent("MONSTER_KILL", client, info.details);
+        eventLogService.logEvent("MONSTER_KILL", client, details);
 
         // Mark as finalized
         info.finalized = true;
     }
 
+    /**
+     * Release the tiles of a kill that is no longer tracked
+     */
+    private void removeKillTiles(KillInfo info) {
+        WorldPoint location = info.killLocation;
+        if (location == null) {
+            return;
+        }
+
+        for (int dx = 0; dx < info.size; dx++) {
+            for (int dy = 0; dy < info.size; dy++) {
+                killTiles.remove(location.getX() + dx, location.getY() + dy, location.getPlane(), info);
+            }
+        }
+    }
+
     /**
      * Track when NPCs die
      */
@@ -272,47 +392,33 @@ public class MonsterKillListener {
             return;
         }
 
-        // Create details for the death event
-        JsonObject details = new JsonObject();
         String npcName = TextUtil.stripColorTags(npc.getName());
 
-        details.addProperty("monsterName", npcName);
-        details.addProperty("monsterId", npc.getId());
-        details.addProperty("combatLevel", npc.getCombatLevel());
-
-        // Add region information (useful for contextual analysis)
-        WorldPoint location = npc.getWorldLocation();
-        if (location != null) {
-            details.addProperty("regionId", location.getRegionID());
-            details.addProperty("x", location.getX());
-            details.addProperty("y", location.getY());
-            details.addProperty("plane", location.getPlane());
-        }
-
         // Generate a unique ID for this kill
         String killId = UUID.randomUUID().toString();
-        details.addProperty("killId", killId);
 
         // Store kill info for loot tracking
         WorldPoint killLocation = npc.getWorldLocation();
-        KillInfo killInfo = new KillInfo(killId, details, killLocation);
+        NPCComposition composition = npc.getComposition();
+        int size = composition != null ? Math.max(1, composition.getSize()) : 1;
+        KillInfo killInfo = new KillInfo(killId, npcName, npc.getId(), npc.getCombatLevel(), killLocation, size);
+
+        // Loot of these drops elsewhere later, the kill is logged from the ground snapshot
+        if (isSpecialNpcWithDelayedLoot(npc.getId())) {
+            delayedKill = killInfo;
+            return;
+        }
+
         activeKills.put(killId, killInfo);
+        tickWheel.schedule(MIN_TRACKING_TIME, () -> onMinimumTrackingTime(killInfo));
+        tickWheel.schedule(LOOT_TRACKING_TIMEOUT, () -> expireKill(killInfo));
 
-        // Store kill location for loot association
+        // Store the tiles the NPC occupied for loot association. The location of a large
+        // NPC is its south-west tile, which is also where most of its loot drops.
         if (killLocation != null) {
-            killLocations.put(killLocation, killId);
-
-            // Add a small radius around the kill point for better loot detection
-            // Some loot can drop 1-2 tiles away from the exact death location
-            for (int x = -1; x <= 1; x++) {
-                for (int y = -1; y <= 1; y++) {
-                    if (x == 0 && y == 0) continue; // Skip the exact point (already added)
-                    WorldPoint nearby = new WorldPoint(
-                            killLocation.getX() + x,
-                            killLocation.getY() + y,
-                            killLocation.getPlane()
-                    );
-                    killLocations.put(nearby, killId);
+            for (int dx = 0; dx < size; dx++) {
+                for (int dy = 0; dy < size; dy++) {
+                    killTiles.put(killLocation.getX() + dx, killLocation.getY() + dy, killLocation.getPlane(), killInfo);
                 }
             }
         }
@@ -326,42 +432,59 @@ public class MonsterKillListener {
     @Subscribe
     public void onItemSpawned(ItemSpawned event) {
         TileItem item = event.getItem();
-        WorldPoint itemLocation = event.getTile().getWorldLocation();
+        updateGroundItem(event.getTile(), item.getId(), item.getQuantity());
 
-        // Check if this item appeared at a known kill location
-        String killId = killLocations.get(itemLocation);
-        if (killId == null) {
-            return; // Not associated with a known kill
+        // Most items spawn while no kill is tracked, skip those without touching the tile
+        if (killTiles.isEmpty()) {
+            return;
         }
 
-        // Get the kill info
-        KillInfo killInfo = activeKills.get(killId);
+        // Kill tiles are world coordinates of the loaded scene, as NPC locations are
+        Tile tile = event.getTile();
+        LocalPoint local = tile.getLocalLocation();
+        int x = client.getBaseX() + local.getSceneX();
+        int y = client.getBaseY() + local.getSceneY();
+
+        // Check if this item appeared near a tracked kill, the exact tiles first
+        KillInfo killInfo = killTiles.findNearest(x, y, tile.getPlane(), LOOT_RADIUS);
         if (killInfo == null) {
-            return; // Kill no longer being tracked
+            return; // Not associated with a known kill
         }
 
         // Get item information
-        ItemComposition itemComp = client.getItemDefinition(item.getId());
-        if (itemComp == null) {
+        if (itemMetadataService.get(item.getId()) == null) {
             return;
         }
 
-        String itemName = itemComp.getName();
+        String itemName = itemMetadataService.getPayloadName(item.getId(), null);
         int quantity = item.getQuantity();
 
-        // Create item object and add to the kill's items
-        JsonObject itemObj = new JsonObject();
-        itemObj.addProperty("itemId", item.getId());
-        itemObj.addProperty("itemName", itemName);
-        itemObj.addProperty("quantity", quantity);
+        // Add to the kill's items
+        killInfo.items.add(item.getId(), itemName, quantity);
 
-        killInfo.addItem(itemObj);
+        // If we're past minimum tracking time, finalize the kill on the next tick.
+        // This allows a small window to collect additional items that spawn in the same tick
+        if (killInfo.minimumReached && !killInfo.finalized && !killInfo.finalizeScheduled) {
+            killInfo.finalizeScheduled = true;
+            tickWheel.schedule(1, () -> {
+                if (!killInfo.finalized) {
+                    finalizeKill(killInfo.killId, killInfo);
+                }
+            });
+        }
+    }
 
-        // If this is the first item and we're past minimum tracking time,
-        // schedule kill for finalization in the next tick
-        if (killInfo.items.size() == 1 && killInfo.ticksSinceKill >= MIN_TRACKING_TIME) {
-            // We'll let the game tick handler finalize this in the next tick
-            // This allows a small window to collect additional items that spawn in the same tick
+    /**
+     * Start counting ground items when a delayed-loot NPC appears
+     */
+    @Subscribe
+    public void onNpcSpawned(NpcSpawned npcSpawned) {
+        NPC npc = npcSpawned.getNpc();
+        if (isSpecialNpcWithDelayedLoot(npc.getId())) {
+            delayedLootNpcs.add(npc);
+            if (!groundItemsTracked) {
+                startGroundTracking(npc);
+            }
         }
     }
 
@@ -373,34 +496,46 @@ public class MonsterKillListener {
     public void onNpcDespawned(NpcDespawned npcDespawned) {
         var npc = npcDespawned.getNpc();
 
-        // Add your own NPC IDs for special cases here, similar to how LootTrackerPlugin handles the Whisperer
-        // For example, if the NPC is relevant for special handling:
-
-        int npcId = npc.getId();
-        // Example check for a specific NPC that needs special handling
-        // if (npcId == 12345 || npcId == 12346) {
         if (isSpecialNpcWithDelayedLoot(npc.getId())) {
-            // Collect all items on the ground floor (z=0)
-            Multiset<Integer> ground = HashMultiset.create();
-            var scene = client.getScene();
-            Tile[][] p0 = scene.getTiles()[0];
-            Arrays.stream(p0)
-                    .flatMap(Arrays::stream)
-                    .filter(Objects::nonNull)
-                    .map(Tile::getGroundItems)
-                    .filter(Objects::nonNull)
-                    .flatMap(Collection::stream)
-                    .forEach(item -> ground.add(item.getId(), item.getQuantity()));
-
-            groundSnapshotName = npc.getName();
-            groundSnapshotCombatLevel = npc.getCombatLevel();
-            groundSnapshotRegion = WorldPoint.fromLocalInstance(client, npc.getLocalLocation()).getRegionID();
+            delayedLootNpcs.remove(npc);
+
+            // A previous NPC's loot never arrived
+            if (groundSnapshot != null) {
+                endGroundSnapshot();
+            }
+
+            // Tracking normally started when the NPC spawned, unless the plugin started later
+            if (!groundItemsTracked) {
+                startGroundTracking(npc);
+            }
+
+            // Copy the ground items on the ground floor (z=0) as they are now
+            IntIntMap ground = new IntIntMap(groundItems.size());
+            for (int i = 0; i < groundItems.size(); i++) {
+                ground.addTo(groundItems.keyAt(i), groundItems.valueAt(i));
+            }
+
+            KillInfo kill = delayedKill;
+            delayedKill = null;
+            groundSnapshotDeathSeen = kill != null;
+            if (kill == null) {
+                kill = new KillInfo(UUID.randomUUID().toString(), TextUtil.stripColorTags(npc.getName()),
+                        npc.getId(), npc.getCombatLevel(), null, 1);
+            }
+
+            groundSnapshotKill = kill;
+            groundSnapshotRegion = groundItemsRegion;
             groundSnapshot = ground;
-            // Similar to Whisperer, give a delay to detect loot
-            groundSnapshotCycleDelay = 59;
+            groundSnapshotChanged.clear();
+            // Give a delay to detect loot
+            groundSnapshotTimeout = tickWheel.schedule(DELAYED_LOOT_TIMEOUT, () -> {
+                log.debug("Ground snapshot: Loot timeout");
+                groundSnapshotTimeout = null;
+                endGroundSnapshot();
+            });
 
-            log.debug("Ground snapshot: Recorded ground items {} on cycle {} region {}",
-                    ground, client.getGameCycle(), groundSnapshotRegion);
+            log.debug("Ground snapshot: Recorded {} ground item types on cycle {} region {}",
+                    ground.size(), client.getGameCycle(), groundSnapshotRegion);
         }
     }
 
@@ -424,9 +559,6 @@ public class MonsterKillListener {
      * Check if an NPC requires special loot handling
      */
     private boolean isSpecialNpcWithDelayedLoot(int npcId) {
-        // Add NPC IDs that need special handling here
-        // Example: bosses with delayed loot spawns
-        // return npcId == 12345 || npcId == 12346;
-        return false; // Default to false if no special cases defined
+        return DELAYED_LOOT_NPCS.contains(npcId);
     }
 }
\ No newline at end of file
@@ -1,31 +1,34 @@
 package com.MindRune.listener;
 
+import com.MindRune.model.ItemList;
+import com.MindRune.model.RewardDetails;
 import com.MindRune.service.EventLogService;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
+import com.MindRune.service.ItemMetadataService;
+import com.MindRune.service.RegionActivityService;
+import com.MindRune.service.RegionActivityService.Activity;
+import com.MindRune.service.RewardRegistry;
+import com.MindRune.util.TickWheel;
+import com.MindRune.util.TraceRing;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.ChatMessageType;
 import net.runelite.api.Client;
 import net.runelite.api.Constants;
 import net.runelite.api.GameState;
 import net.runelite.api.InventoryID;
-import net.runelite.api.ItemComposition;
 import net.runelite.api.ItemContainer;
 import net.runelite.api.MenuAction;
-import net.runelite.api.ObjectID;
 import net.runelite.api.Player;
 import net.runelite.api.Skill;
 import net.runelite.api.Varbits;
 import net.runelite.api.events.ChatMessage;
+import net.runelite.api.events.CommandExecuted;
 import net.runelite.api.events.GameStateChanged;
 import net.runelite.api.events.ItemContainerChanged;
 import net.runelite.api.events.MenuOptionClicked;
 import net.runelite.api.events.WidgetLoaded;
-import net.runelite.api.widgets.InterfaceID;
 import net.runelite.api.widgets.Widget;
 import net.runelite.client.callback.ClientThread;
 import net.runelite.client.eventbus.Subscribe;
-import net.runelite.client.game.ItemManager;
 
 import javax.inject.Inject;
 import java.time.Instant;
@@ -33,10 +36,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.UUID;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -49,39 +50,39 @@ public class RewardListener {
     private final Client client;
     private final EventLogService eventLogService;
     private final ClientThread clientThread;
-    private final ItemManager itemManager;
+    private final ItemMetadataService itemMetadataService;
+    private final TickWheel tickWheel;
+    private final RegionActivityService regionActivityService;
 
-    // Known reward interface IDs with their sources
-    private final Map<Integer, String> rewardInterfaces = new HashMap<>();
+    // Per-event decisions are traced here rather than logged, see dumpTrace
+    private static final int TRACE_CAPACITY = 512;
+    private static final String TRACE_COMMAND = "mindrune-trace";
+    private final TraceRing trace = new TraceRing("RewardListener", TRACE_CAPACITY);
 
-    // Chat message patterns for different reward sources
-    private final Map<Pattern, String> chatPatterns = new HashMap<>();
+    // Reward interfaces, items, chests and bird houses
+    private final RewardRegistry rewardRegistry;
+
+    // Reused for every reward interface
+    private final WidgetItemExtractor widgetItemExtractor = new WidgetItemExtractor();
+
+    // Chat message triggers in priority order
+    private final List<ChatRule> chatRules = new ArrayList<>();
 
     // Map to track recent reward sources to their details
-    private final Map<String, JsonObject> pendingRewards = new HashMap<>();
+    private final Map<String, RewardDetails> pendingRewards = new HashMap<>();
+    private final Map<String, TickWheel.Timeout> pendingRewardTimeouts = new HashMap<>();
+    // Long enough to walk from a completion message to the reward chest
+    private static final int PENDING_REWARD_TIMEOUT = 500; // server ticks
 
     // Inventory tracking system
     private InventoryID inventoryId;
     private Map<Integer, Integer> inventorySnapshot;
-    private int inventoryTimeout;
+    private TickWheel.Timeout inventoryTimeout;
     private static final int INVCHANGE_TIMEOUT = 10; // server ticks
 
     // Tracking for chest looting
     private boolean chestLooted;
 
-    // Map regions for special events
-    private static final Set<Integer> WINTERTODT_REGIONS = Set.of(6461);
-    private static final Set<Integer> TEMPOROSS_REGIONS = Set.of(12588);
-    private static final Set<Integer> GUARDIANS_OF_RIFT_REGIONS = Set.of(14484);
-    private static final Set<Integer> HALLOWED_SEPULCHRE_REGIONS = Set.of(8797, 10077, 9308, 10074, 9050);
-    private static final Set<Integer> TOB_REGIONS = Set.of(12867, 14642);
-    private static final Set<Integer> HAM_STOREROOM_REGIONS = Set.of(10321);
-    private static final Set<Integer> HESPORI_REGIONS = Set.of(5021);
-    private static final Set<Integer> FONT_OF_CONSUMPTION_REGIONS = Set.of(12106);
-    private static final Set<Integer> BA_LOBBY_REGIONS = Set.of(10039);
-    private static final Set<Integer> SOUL_WARS_REGIONS = Set.of(8493, 8749, 9005);
-    private static final Set<Integer> LAVA_MAZE_REGIONS = Set.of(12348);
-
     // Message patterns for specific rewards
     private static final Pattern CLUE_SCROLL_PATTERN = Pattern.compile("You have completed [0-9]+ ([a-z]+) Treasure Trails?\\.");
     private static final Pattern PICKPOCKET_PATTERN = Pattern.compile("You pick (the )?(?<target>.+)'s? pocket.*");
@@ -115,56 +116,27 @@ public class RewardListener {
     private static final String FISHING_TRAWLER_EVENT = "Fishing Trawler";
     private static final String DRIFT_NET_EVENT = "Drift Net";
     private static final String WINTERTODT_EVENT = "Wintertodt";
-    private static final String WINTERTODT_SUPPLY_CRATE_EVENT = "Supply crate (Wintertodt)";
     private static final String TEMPOROSS_EVENT = "Reward pool (Tempoross)";
-    private static final String TEMPOROSS_CASKET_EVENT = "Casket (Tempoross)";
     private static final String GUARDIANS_OF_THE_RIFT_EVENT = "Guardians of the Rift";
     private static final String HERBIBOAR_EVENT = "Herbiboar";
     private static final String HESPORI_EVENT = "Hespori";
-    private static final String BIRDNEST_EVENT = "Bird nest";
-    private static final String CASKET_EVENT = "Casket";
-    private static final String SEEDPACK_EVENT = "Seed pack";
     private static final String HALLOWED_SEPULCHRE_COFFIN_EVENT = "Coffin (Hallowed Sepulchre)";
-    private static final String HALLOWED_SACK_EVENT = "Hallowed Sack";
-    private static final String SPOILS_OF_WAR_EVENT = "Spoils of war";
-    private static final String MAHOGANY_CRATE_EVENT = "Supply crate (Mahogany Homes)";
     private static final String BA_HIGH_GAMBLE_EVENT = "Barbarian Assault high gamble";
-    private static final String ORE_PACK_VM_EVENT = "Ore Pack (Volcanic Mine)";
-
-    // Map of chest regions to their names
-    private final Map<Integer, String> CHEST_EVENT_TYPES = new HashMap<>();
-
-    // Map of shade chest IDs to their key types
-    private final Map<Integer, String> SHADE_CHEST_OBJECTS = new HashMap<>();
-
-    // Map of birdhouse XP to their types
-    private final Map<Integer, String> BIRDHOUSE_XP_TO_TYPE = new HashMap<>();
-
-    // Set of item IDs that should trigger reward collection when used
-    private final Set<Integer> rewardItemIds = new HashSet<>();
-
-    // Set of bird nest item IDs
-    private final Set<Integer> BIRDNEST_IDS = new HashSet<>();
-
-    // Set of impling jar IDs
-    private final Set<Integer> IMPLING_JARS = new HashSet<>();
 
     @Inject
-    public RewardListener(Client client, EventLogService eventLogService, ClientThread clientThread, ItemManager itemManager) {
+    public RewardListener(Client client, EventLogService eventLogService, ClientThread clientThread,
+                          ItemMetadataService itemMetadataService, TickWheel tickWheel,
+                          RegionActivityService regionActivityService) {
         this.client = client;
         this.eventLogService = eventLogService;
         this.clientThread = clientThread;
-        this.itemManager = itemManager;
+        this.itemMetadataService = itemMetadataService;
+        this.tickWheel = tickWheel;
+        this.regionActivityService = regionActivityService;
 
         // Initialize all data structures
-        initRewardInterfaces();
-        initChatPatterns();
-        initChestEventTypes();
-        initShadeChestObjects();
-        initBirdhouseTypes();
-        initRewardItemIds();
-        initBirdNestIds();
-        initImplingJars();
+        rewardRegistry = RewardRegistry.load();
+        initChatRules();
 
         log.info("RewardListener initialized");
     }
@@ -175,14 +147,14 @@ public class RewardListener {
     @Subscribe
     public void onWidgetLoaded(WidgetLoaded event) {
         int groupId = event.getGroupId();
-        log.info("Widget loaded: Group ID {}", groupId);
+        trace.record("Widget loaded: Group ID {}", groupId);
 
         // Check if this is a known reward interface
-        String rewardSource = rewardInterfaces.get(groupId);
+        String rewardSource = rewardRegistry.getInterfaceSource(groupId);
 
         // If we identified a reward interface, process it after it's fully loaded
         if (rewardSource != null) {
-            log.info("Found matching reward interface: {} -> {}", groupId, rewardSource);
+            trace.record("Found matching reward interface: {} -> {}", groupId, rewardSource);
             final String finalRewardSource = rewardSource;
 
             // Check for special cases like raids where we need to track if the chest was looted
@@ -191,19 +163,19 @@ public class RewardListener {
                     TOMBS_OF_AMASCUT_EVENT.equals(finalRewardSource);
 
             if (isRaidsChest && chestLooted) {
-                log.info("Raid chest already looted, skipping");
+                trace.record("Raid chest already looted, skipping");
                 return; // Prevent duplicate rewards for raids
             }
 
             // Mark the chest as looted for tracking purposes
             if (isRaidsChest) {
-                log.info("Setting chest looted flag for: {}", finalRewardSource);
+                trace.record("Setting chest looted flag for: {}", finalRewardSource);
                 chestLooted = true;
             }
 
             // Process the interface
             clientThread.invokeLater(() -> {
-                log.info("Processing reward interface for: {}", finalRewardSource);
+                trace.record("Processing reward interface for: {}", finalRewardSource);
 
                 // Special handling for ToA to capture additional metadata
                 Object metadata = null;
@@ -247,49 +219,40 @@ public class RewardListener {
      * Take a snapshot of the player's inventory to track changes, with metadata
      */
     private void takeInventorySnapshot(String rewardSource, Object metadata) {
-        log.info("Taking inventory snapshot for: {}", rewardSource);
+        trace.record("Taking inventory snapshot for: {}", rewardSource);
         inventoryId = InventoryID.INVENTORY;
         inventorySnapshot = new HashMap<>();
-        inventoryTimeout = INVCHANGE_TIMEOUT;
+        if (inventoryTimeout != null) {
+            inventoryTimeout.cancel();
+        }
+        inventoryTimeout = tickWheel.schedule(INVCHANGE_TIMEOUT, () -> {
+            trace.record("Inventory snapshot for {} timed out", rewardSource);
+            resetInventoryTracking();
+        });
 
         final ItemContainer itemContainer = client.getItemContainer(inventoryId);
         if (itemContainer != null) {
-            log.info("Current inventory items:");
+            trace.record("Current inventory items:");
             for (net.runelite.api.Item item : itemContainer.getItems()) {
                 if (item.getId() > 0) {
                     inventorySnapshot.put(item.getId(), item.getQuantity());
-                    ItemComposition itemComp = itemManager.getItemComposition(item.getId());
-                    String itemName = itemComp != null ? itemComp.getName() : "Unknown";
-                    log.info("  - {}x{} ({})", itemName, item.getQuantity(), item.getId());
+                    String itemName = itemMetadataService.getName(item.getId());
+                    trace.record("  - {}x{} ({})", itemName, item.getQuantity(), item.getId());
                 }
             }
-            log.info("Inventory snapshot complete: {} items", inventorySnapshot.size());
+            trace.record("Inventory snapshot complete: {} items", inventorySnapshot.size());
         } else {
-            log.info("Failed to get item container for inventory snapshot");
+            trace.record("Failed to get item container for inventory snapshot");
         }
 
         // Store the reward source with pending rewards
         if (!pendingRewards.containsKey(rewardSource)) {
-            log.info("Creating new pending reward for: {}", rewardSource);
-            JsonObject details = new JsonObject();
-            details.addProperty("rewardSource", rewardSource);
-            details.addProperty("timestamp", System.currentTimeMillis());
-            if (metadata != null) {
-                if (metadata instanceof Integer) {
-                    details.addProperty("skillLevel", (Integer)metadata);
-                } else if (metadata instanceof int[]) {
-                    int[] metadataArray = (int[])metadata;
-                    if (metadataArray.length >= 3) {
-                        details.addProperty("raidLevel", metadataArray[0]);
-                        details.addProperty("teamSize", metadataArray[1]);
-                        details.addProperty("raidDamage", metadataArray[2]);
-                    }
-                }
-            }
-            details.add("items", new JsonArray());
-            pendingRewards.put(rewardSource, details);
+            trace.record("Creating new pending reward for: {}", rewardSource);
+            RewardDetails details = new RewardDetails(rewardSource, System.currentTimeMillis());
+            applyMetadata(details, metadata);
+            addPendingReward(rewardSource, details);
         } else {
-            log.info("Pending reward already exists for: {}", rewardSource);
+            trace.record("Pending reward already exists for: {}", rewardSource);
         }
     }
 
@@ -301,7 +264,7 @@ public class RewardListener {
         // Clear wilderness chest looted flag when it's empty
         if (event.getContainerId() == InventoryID.WILDERNESS_LOOT_CHEST.getId()
                 && Arrays.stream(event.getItemContainer().getItems()).noneMatch(i -> i.getId() > -1)) {
-            log.info("Wilderness loot chest is now empty, resetting chest looted flag");
+            trace.record("Wilderness loot chest is now empty, resetting chest looted flag");
             chestLooted = false;
         }
 
@@ -309,19 +272,19 @@ public class RewardListener {
             return;
         }
 
-        log.info("Item container changed event for inventory (ID: {})", event.getContainerId());
+        trace.record("Item container changed event for inventory (ID: {})", event.getContainerId());
 
         // Process inventory changes
         final ItemContainer container = event.getItemContainer();
         Map<Integer, Integer> currentInventory = new HashMap<>();
-        JsonArray newItems = new JsonArray();
+        ItemList newItems = new ItemList();
         Map<Integer, Integer> removedItems = new HashMap<>();
 
         // Build current inventory state
         for (net.runelite.api.Item item : container.getItems()) {
             if (item.getId() > 0) {
                 currentInventory.put(item.getId(), item.getQuantity());
-                log.info("Current inventory item: {}x{}", item.getId(), item.getQuantity());
+                trace.record("Current inventory item: {}x{}", item.getId(), item.getQuantity());
             }
         }
 
@@ -333,19 +296,15 @@ public class RewardListener {
 
             if (currentQty > previousQty) {
                 int gainedQty = currentQty - previousQty;
-                ItemComposition itemComp = itemManager.getItemComposition(itemId);
+                String itemName = itemMetadataService.getName(itemId);
 
-                if (itemComp != null) {
-                    log.info("Detected new item: {}x{} ({})",
-                            itemComp.getName(), gainedQty, itemId);
+                if (itemName != null) {
+                    trace.record("Detected new item: {}x{} ({})",
+                            itemName, gainedQty, itemId);
 
-                    JsonObject itemObj = new JsonObject();
-                    itemObj.addProperty("itemId", itemId);
-                    itemObj.addProperty("itemName", itemComp.getName());
-                    itemObj.addProperty("quantity", gainedQty);
-                    newItems.add(itemObj);
+                    newItems.add(itemId, itemMetadataService.getPayloadName(itemId, itemName), gainedQty);
                 } else {
-                    log.info("Failed to get item composition for ID: {}", itemId);
+                    trace.record("Failed to get item composition for ID: {}", itemId);
                 }
             }
         }
@@ -359,69 +318,66 @@ public class RewardListener {
             if (currentQty < previousQty) {
                 int lostQty = previousQty - currentQty;
                 removedItems.put(itemId, lostQty);
-                log.info("Item removed from inventory: {}x{}", itemId, lostQty);
+                trace.record("Item removed from inventory: {}x{}", itemId, lostQty);
             }
         }
 
-        log.info("Found {} new items and {} removed items", newItems.size(), removedItems.size());
+        trace.record("Found {} new items and {} removed items", newItems.size(), removedItems.size());
 
         // If we found any new items, add them to the pending reward
         if (newItems.size() > 0) {
             // Debug log all pending rewards
-            log.info("Current pending rewards: {}", pendingRewards.keySet());
+            trace.record("Current pending rewards: {}", new ArrayList<>(pendingRewards.keySet()));
 
             // Find the pending reward to update
             boolean foundReward = false;
-            for (Map.Entry<String, JsonObject> entry : pendingRewards.entrySet()) {
+            for (Map.Entry<String, RewardDetails> entry : pendingRewards.entrySet()) {
                 String rewardSource = entry.getKey();
-                JsonObject details = entry.getValue();
+                RewardDetails details = entry.getValue();
 
                 // Only process recent pending rewards
-                long timestamp = details.get("timestamp").getAsLong();
+                long timestamp = details.getTimestamp();
                 long currentTime = System.currentTimeMillis();
                 long timeDiff = currentTime - timestamp;
 
-                log.info("Checking pending reward: {} (age: {}ms)", rewardSource, timeDiff);
+                trace.record("Checking pending reward: {} (age: {}ms)", rewardSource, timeDiff);
 
                 if (timeDiff < 10000) { // Within 10 seconds
-                    log.info("Processing pending reward: {}", rewardSource);
-                    JsonArray existingItems = details.getAsJsonArray("items");
+                    trace.record("Processing pending reward: {}", rewardSource);
+                    ItemList existingItems = details.getItems();
 
                     // Add the new items to the existing items
-                    for (int i = 0; i < newItems.size(); i++) {
-                        existingItems.add(newItems.get(i));
-                        log.info("Added item to pending reward");
-                    }
+                    existingItems.addAll(newItems);
+                    trace.record("Added {} items to pending reward", newItems.size());
 
                     // Log the event if we have items
                     if (existingItems.size() > 0) {
-                        log.info("Finalizing reward with {} items", existingItems.size());
-                        details.addProperty("itemCount", existingItems.size());
-                        details.addProperty("rewardId", UUID.randomUUID().toString());
+                        trace.record("Finalizing reward with {} items", existingItems.size());
+                        details.setRewardId(UUID.randomUUID().toString());
                         eventLogService.logEvent("REWARD", client, details);
 
                         // Remove this reward from pending since we've logged it
-                        pendingRewards.remove(rewardSource);
-                        log.info("Removed pending reward: {}", rewardSource);
+                        removePendingReward(rewardSource);
+                        trace.record("Removed pending reward: {}", rewardSource);
                         foundReward = true;
                         break;
                     }
                 } else {
-                    log.info("Pending reward too old: {} ({} ms)", rewardSource, timeDiff);
+                    trace.record("Pending reward too old: {} ({} ms)", rewardSource, timeDiff);
                 }
             }
 
             if (!foundReward) {
-                log.info("No matching pending reward found for new items, creating generic reward");
+                trace.record("No matching pending reward found for new items, creating generic reward");
 
                 // Create a generic reward for items without a matching pending reward
-                JsonObject details = new JsonObject();
-                details.addProperty("rewardSource", "Unknown Reward");
-                details.addProperty("timestamp", System.currentTimeMillis());
-                details.add("items", newItems);
-                details.addProperty("itemCount", newItems.size());
-                details.addProperty("rewardId", UUID.randomUUID().toString());
+                RewardDetails details = new RewardDetails("Unknown Reward", System.currentTimeMillis());
+                details.setItems(newItems);
+                details.setRewardId(UUID.randomUUID().toString());
                 eventLogService.logEvent("REWARD", client, details);
+
+                // The items could not be attributed, keep the decisions that led here
+                trace.dump("Unknown Reward");
             }
         }
 
@@ -431,17 +387,14 @@ public class RewardListener {
             int quantity = entry.getValue();
 
             // Check if item is an impling jar
-            if (IMPLING_JARS.contains(itemId)) {
-                ItemComposition itemComp = itemManager.getItemComposition(itemId);
-                if (itemComp != null) {
-                    log.info("Processing removed impling jar: {}x{}", itemComp.getName(), quantity);
-
-                    JsonObject details = new JsonObject();
-                    details.addProperty("rewardSource", itemComp.getName());
-                    details.addProperty("timestamp", System.currentTimeMillis());
-                    details.add("items", newItems); // We got newItems from the inventory change
-                    details.addProperty("itemCount", newItems.size());
-                    details.addProperty("rewardId", UUID.randomUUID().toString());
+            if (rewardRegistry.isImplingJar(itemId)) {
+                String jarName = itemMetadataService.getName(itemId);
+                if (jarName != null) {
+                    trace.record("Processing removed impling jar: {}x{}", jarName, quantity);
+
+                    RewardDetails details = new RewardDetails(jarName, System.currentTimeMillis());
+                    details.setItems(newItems); // We got newItems from the inventory change
+                    details.setRewardId(UUID.randomUUID().toString());
                     eventLogService.logEvent("REWARD", client, details);
                 }
             }
@@ -473,9 +426,9 @@ public class RewardListener {
 
             // Try to get item name
             try {
-                ItemComposition itemComp = itemManager.getItemComposition(widget.getItemId());
-                if (itemComp != null) {
-                    log.info("{}  Item Name: {}", indent, itemComp.getName());
+                String itemName = itemMetadataService.getName(widget.getItemId());
+                if (itemName != null) {
+                    log.info("{}  Item Name: {}", indent, itemName);
                 }
             } catch (Exception e) {
                 log.info("{}  Error getting item name: {}", indent, e.getMessage());
@@ -531,248 +484,100 @@ public class RewardListener {
      * Process a reward interface to extract reward items
      */
     private void processRewardInterface(int interfaceId, String rewardSource, Object metadata) {
-        log.info("Processing reward interface: {} for {}", interfaceId, rewardSource);
+        trace.record("Processing reward interface: {} for {}", interfaceId, rewardSource);
 
         Widget rootWidget = client.getWidget(interfaceId, 0);
         if (rootWidget == null || rootWidget.isHidden()) {
-            log.info("Interface {} not found or hidden", interfaceId);
+            trace.record("Interface {} not found or hidden", interfaceId);
             return;
         }
 
-        // Use a more comprehensive approach to extract items
-        JsonArray items = new JsonArray();
-        Set<String> processedWidgets = new HashSet<>();
-        searchAllWidgetsForItems(rootWidget, items, processedWidgets);
+        // Sum the items shown anywhere in the interface
+        int count = widgetItemExtractor.extract(rootWidget);
+        ItemList items = new ItemList(count);
+        for (int i = 0; i < count; i++) {
+            addItem(widgetItemExtractor.getItemId(i), widgetItemExtractor.getQuantity(i), items);
+        }
 
-        log.info("Extracted {} items from interface {}", items.size(), interfaceId);
+        trace.record("Extracted {} items from interface {}", items.size(), interfaceId);
 
         // Only proceed if we found items
         if (items.size() > 0) {
             processRewardItems(rewardSource, metadata, items);
         } else {
-            log.info("No items found in interface, not logging reward");
+            trace.record("No items found in interface, not logging reward");
         }
     }
 
     /**
-     * Recursively search all widgets and their children for items
-     * Uses a set to track processed widgets to avoid duplicates
+     * Add an item stack to the list, if the item can be identified
      */
-    private void searchAllWidgetsForItems(Widget widget, JsonArray items, Set<String> processedWidgets) {
-        if (widget == null || widget.isHidden()) {
-            return;
-        }
-
-        // Create a unique identifier for this widget that includes itemId and position
-        // This prevents counting the same item twice while still allowing different items
-        // at different positions to be counted
-        String widgetKey = widget.getId() + "_" + widget.getItemId() + "_" + widget.getRelativeX() + "_" + widget.getRelativeY();
-
-        // Skip if we've already processed this exact widget with this item
-        if (processedWidgets.contains(widgetKey) && widget.getItemId() > 0) {
-            return;
-        }
-
-        // Mark this widget as processed if it has an item
-        if (widget.getItemId() > 0) {
-            processedWidgets.add(widgetKey);
-        }
-
-        // Check if this widget has an item
-        if (widget.getItemId() > 0 && widget.getItemQuantity() > 0) {
-            // For Lunar Chest, let's log more details to debug
-            if (widget.getId() >> 16 == 868) {
-                log.info("Found item in Lunar Chest widget: ID={}, ItemID={}, Qty={}, Pos=({},{})",
-                        widget.getId(), widget.getItemId(), widget.getItemQuantity(),
-                        widget.getRelativeX(), widget.getRelativeY());
-            }
-
-            addItemToArray(widget.getItemId(), widget.getItemQuantity(), items);
-        }
-
-        // Recursively check all child widgets
-
-        // Static children
-        Widget[] staticChildren = widget.getStaticChildren();
-        if (staticChildren != null) {
-            for (Widget child : staticChildren) {
-                searchAllWidgetsForItems(child, items, processedWidgets);
-            }
-        }
-
-        // Regular children
-        Widget[] children = widget.getChildren();
-        if (children != null) {
-            for (Widget child : children) {
-                searchAllWidgetsForItems(child, items, processedWidgets);
-            }
-        }
-
-        // Dynamic children
-        Widget[] dynamicChildren = widget.getDynamicChildren();
-        if (dynamicChildren != null) {
-            for (Widget child : dynamicChildren) {
-                searchAllWidgetsForItems(child, items, processedWidgets);
-            }
-        }
-    }
-
-    /**
-     * Helper method to add an item to the JSON array
-     * Combines quantities if the same item already exists
-     */
-    private void addItemToArray(int itemId, int quantity, JsonArray items) {
-        // Skip placeholder items
-        if (itemId <= 0 || quantity <= 0) {
-            return;
-        }
-
-        // Try to find an existing item in the array
-        for (int i = 0; i < items.size(); i++) {
-            JsonObject existingItem = items.get(i).getAsJsonObject();
-            if (existingItem.get("itemId").getAsInt() == itemId) {
-                // If found, update the quantity
-                int newQuantity = existingItem.get("quantity").getAsInt() + quantity;
-                existingItem.addProperty("quantity", newQuantity);
-                log.info("Updated existing item: {}x{} ({})",
-                        existingItem.get("itemName").getAsString(), newQuantity, itemId);
-                return;
-            }
-        }
+    private void addItem(int itemId, int quantity, ItemList items) {
+        String itemName = itemMetadataService.getName(itemId);
+        if (itemName != null) {
+            trace.record("Found new item: {}x{} ({})",
+                    itemName, quantity, itemId);
 
-        // If not found, add as a new item
-        ItemComposition itemComp = itemManager.getItemComposition(itemId);
-        if (itemComp != null) {
-            log.info("Found new item: {}x{} ({})",
-                    itemComp.getName(), quantity, itemId);
-
-            JsonObject item = new JsonObject();
-            item.addProperty("itemId", itemId);
-            item.addProperty("itemName", itemComp.getName());
-            item.addProperty("quantity", quantity);
-            items.add(item);
+            items.add(itemId, itemMetadataService.getPayloadName(itemId, itemName), quantity);
         } else {
-            log.info("Failed to get item composition for item ID: {}", itemId);
+            trace.record("Failed to get item composition for item ID: {}", itemId);
         }
     }
 
     /**
      * Helper method to process reward items
      */
-    private void processRewardItems(String rewardSource, Object metadata, JsonArray items) {
-        JsonObject details;
+    private void processRewardItems(String rewardSource, Object metadata, ItemList items) {
+        RewardDetails details;
 
         // Check if we have a pending reward for this source
         if (pendingRewards.containsKey(rewardSource)) {
             // Update existing reward details
-            log.info("Updating existing pending reward: {}", rewardSource);
+            trace.record("Updating existing pending reward: {}", rewardSource);
             details = pendingRewards.get(rewardSource);
         } else {
             // Create a new reward event
-            log.info("Creating new reward details for: {}", rewardSource);
-            details = new JsonObject();
-            details.addProperty("rewardSource", rewardSource);
-            details.addProperty("timestamp", System.currentTimeMillis());
+            trace.record("Creating new reward details for: {}", rewardSource);
+            details = new RewardDetails(rewardSource, System.currentTimeMillis());
         }
 
-        // Set the items and item count
-        details.add("items", items);
-        details.addProperty("itemCount", items.size());
-        details.addProperty("rewardId", UUID.randomUUID().toString());
+        // Set the items
+        details.setItems(items);
+        details.setRewardId(UUID.randomUUID().toString());
 
         // Add metadata if available
-        if (metadata != null) {
-            if (metadata instanceof Integer) {
-                details.addProperty("skillLevel", (Integer)metadata);
-            } else if (metadata instanceof int[]) {
-                int[] metadataArray = (int[])metadata;
-                if (metadataArray.length >= 3) {
-                    details.addProperty("raidLevel", metadataArray[0]);
-                    details.addProperty("teamSize", metadataArray[1]);
-                    details.addProperty("raidDamage", metadataArray[2]);
-                }
-            }
-        }
+        applyMetadata(details, metadata);
 
         // Log the event
-        log.info("Logging REWARD event for {} with {} items", rewardSource, items.size());
+        trace.record("Logging REWARD event for {} with {} items", rewardSource, items.size());
         eventLogService.logEvent("REWARD", client, details);
 
         // Remove from pending map after processing
-        pendingRewards.remove(rewardSource);
-        log.info("Removed pending reward after processing: {}", rewardSource);
+        removePendingReward(rewardSource);
+        trace.record("Removed pending reward after processing: {}", rewardSource);
     }
 
     /**
-     * Check if we should track inventory for a specific reward source
+     * Copy skill level or raid metadata onto the reward details
      */
-    private boolean shouldTrackInventoryForSource(String source) {
-        // List of sources where we should watch inventory
-        List<String> inventoryTrackingSources = new ArrayList<>(Arrays.asList(
-                WINTERTODT_EVENT,
-                TEMPOROSS_EVENT,
-                GUARDIANS_OF_THE_RIFT_EVENT,
-                "Hallowed Sepulchre",
-                HALLOWED_SEPULCHRE_COFFIN_EVENT,
-                "Volcanic Mine",
-                "Mahogany Homes",
-                HERBIBOAR_EVENT,
-                HESPORI_EVENT,
-                "Clue Scroll (Beginner)",
-                "Clue Scroll (Easy)",
-                "Clue Scroll (Medium)",
-                "Clue Scroll (Hard)",
-                "Clue Scroll (Elite)",
-                "Clue Scroll (Master)",
-                CASKET_EVENT,
-                SEEDPACK_EVENT,
-                BA_HIGH_GAMBLE_EVENT
-        ));
-
-        // Also include all chest types EXCEPT ones with widgets
-        for (String chestType : CHEST_EVENT_TYPES.values()) {
-            // Skip "Lunar Chest" and any other chest types with widgets
-            if (!chestType.equals("Lunar Chest")) {
-                inventoryTrackingSources.add(chestType);
+    private void applyMetadata(RewardDetails details, Object metadata) {
+        if (metadata instanceof Integer) {
+            details.setSkillLevel((Integer) metadata);
+        } else if (metadata instanceof int[]) {
+            int[] metadataArray = (int[]) metadata;
+            if (metadataArray.length >= 3) {
+                details.setRaidInfo(metadataArray[0], metadataArray[1], metadataArray[2]);
             }
         }
-
-        // And all shade chest types
-        for (String shadeChestType : SHADE_CHEST_OBJECTS.values()) {
-            inventoryTrackingSources.add(shadeChestType);
-        }
-
-        // And all birdhouse types
-        for (String birdhouseType : BIRDHOUSE_XP_TO_TYPE.values()) {
-            inventoryTrackingSources.add(birdhouseType);
-        }
-
-        boolean result = inventoryTrackingSources.contains(source);
-        log.info("Should track inventory for {}? {}", source, result);
-        return result;
     }
 
     /**
-     * Check if player is in one of the specified regions
+     * Check if we should track inventory for a specific reward source
      */
-    private boolean isPlayerInRegion(Set<Integer> regions) {
-        Player player = client.getLocalPlayer();
-        if (player == null) {
-            log.info("Player is null, can't check region");
-            return false;
-        }
-
-        final int[] mapRegions = client.getMapRegions();
-        log.info("Checking player regions: {}", Arrays.toString(mapRegions));
-
-        for (int region : mapRegions) {
-            if (regions.contains(region)) {
-                log.info("Player is in target region: {}", region);
-                return true;
-            }
-        }
-
-        return false;
+    private boolean shouldTrackInventoryForSource(String source) {
+        boolean result = rewardRegistry.shouldTrackInventory(source);
+        trace.record("Should track inventory for {}? {}", source, result);
+        return result;
     }
 
     /**
@@ -787,141 +592,58 @@ public class RewardListener {
         final int itemId = event.getItemId();
         final String option = event.getMenuOption();
 
-        log.info("Menu option clicked: {} on item ID {}", option, itemId);
+        trace.record("Menu option clicked: {} on item ID {}", option, itemId);
 
         // Shade chest opening
-        if (isObjectOp(event.getMenuAction()) && option.equals("Open") && SHADE_CHEST_OBJECTS.containsKey(event.getId())) {
-            String chestType = SHADE_CHEST_OBJECTS.get(event.getId());
-            log.info("Opening shade chest: {}", chestType);
-            takeInventorySnapshot(chestType);
-            return;
+        if (isObjectOp(event.getMenuAction()) && option.equals("Open")) {
+            String chestType = rewardRegistry.getShadeChestSource(event.getId());
+            if (chestType != null) {
+                trace.record("Opening shade chest: {}", chestType);
+                takeInventorySnapshot(chestType);
+                return;
+            }
         }
 
-        // Seed pack opening
-        if (itemId == 22866 && (option.equals("Take") || option.equals("Take-all"))) {
-            log.info("Opening seed pack");
-            takeInventorySnapshot(SEEDPACK_EVENT);
+        // Reward items being opened, searched or looted
+        RewardRegistry.ItemReward reward = rewardRegistry.getItemReward(itemId);
+        if (reward == null || !reward.isTriggeredBy(option)) {
             return;
         }
 
-        // Bird nest searching
-        if (option.equals("Search") && BIRDNEST_IDS.contains(itemId)) {
-            log.info("Searching bird nest");
-            takeInventorySnapshot(BIRDNEST_EVENT);
+        String source = reward.getSource() != null ? reward.getSource() : itemMetadataService.getName(itemId);
+        if (source == null) {
+            trace.record("Failed to get item composition for item: {}", itemId);
             return;
         }
 
-        // Check if this is a reward item being opened
-        if (rewardItemIds.contains(itemId) &&
-                (option.equals("Open") || option.equals("Search") || option.equals("Loot"))) {
-
-            ItemComposition itemComp = itemManager.getItemComposition(itemId);
-            if (itemComp != null) {
-                log.info("Opening reward item: {}", itemComp.getName());
-                takeInventorySnapshot(itemComp.getName());
-            } else {
-                log.info("Failed to get item composition for item: {}", itemId);
-            }
-        }
-
-        // Handle special items by ID
-        if (option.equals("Open")) {
-            switch (itemId) {
-                case 405: // Casket
-                    log.info("Opening casket");
-                    takeInventorySnapshot(CASKET_EVENT);
-                    break;
-                case 20703: // Supply crate (Wintertodt)
-                case 24420: // Extra supply crate (Wintertodt)
-                    log.info("Opening Wintertodt supply crate");
-                    takeInventorySnapshot(WINTERTODT_SUPPLY_CRATE_EVENT);
-                    break;
-                case 23951: // Spoils of war (Soul Wars)
-                    log.info("Opening spoils of war");
-                    takeInventorySnapshot(SPOILS_OF_WAR_EVENT);
-                    break;
-                case 25590: // Casket (Tempoross)
-                    log.info("Opening Tempoross casket");
-                    takeInventorySnapshot(TEMPOROSS_CASKET_EVENT);
-                    break;
-                case 25516: // Hallowed sack
-                    log.info("Opening hallowed sack");
-                    takeInventorySnapshot(HALLOWED_SACK_EVENT);
-                    break;
-                case 24884: // Supply crate (Mahogany Homes)
-                    log.info("Opening Mahogany Homes supply crate");
-                    takeInventorySnapshot(MAHOGANY_CRATE_EVENT, client.getBoostedSkillLevel(Skill.CONSTRUCTION));
-                    break;
-                case 27693: // Ore pack (Volcanic Mine)
-                    log.info("Opening ore pack");
-                    takeInventorySnapshot(ORE_PACK_VM_EVENT);
-                    break;
-                // Bag of gems variants
-                case 12109: // Bag full of gems (Percy)
-                    log.info("Opening bag of gems (Percy)");
-                    takeInventorySnapshot("Bag full of gems (Percy)");
-                    break;
-                case 24853: // Bag full of gems (Belona)
-                    log.info("Opening bag of gems (Belona)");
-                    takeInventorySnapshot("Bag full of gems (Belona)");
-                    break;
-                case 25537: // Bag full of gems (Dusuri)
-                    log.info("Opening bag of gems (Dusuri)");
-                    takeInventorySnapshot("Bag full of gems (Dusuri)");
-                    break;
-                // Various lockboxes and crates
-                case 25647: // Simple lockbox
-                case 25649: // Elaborate lockbox
-                case 25651: // Ornate lockbox
-                case 25638: // Cache of runes
-                case 25642: // Intricate pouch
-                case 25644: // Frozen cache
-                    log.info("Opening reward container: {}", itemManager.getItemComposition(itemId).getName());
-                    takeInventorySnapshot(itemManager.getItemComposition(itemId).getName());
-                    break;
-                // Hunter's loot sacks
-                case 27606: // Hunter's loot sack
-                case 28354: // Hunter's loot sack (basic)
-                case 28355: // Hunter's loot sack (adept)
-                case 28356: // Hunter's loot sack (expert)
-                case 28357: // Hunter's loot sack (master)
-                    handleHunterLootSacks(itemId);
-                    break;
-            }
-        }
-
-        // Handle impling jars
-        if (option.equals("Loot") && IMPLING_JARS.contains(itemId)) {
-            log.info("Looting impling jar: {}", itemManager.getItemComposition(itemId).getName());
-            takeInventorySnapshot(itemManager.getItemComposition(itemId).getName());
+        if (reward.getAction() == RewardRegistry.ItemAction.HUNTER_SACK) {
+            handleHunterLootSack(source);
+        } else if (reward.getSkill() != null) {
+            trace.record("Opening reward item {}: {}", itemId, source);
+            takeInventorySnapshot(source, client.getBoostedSkillLevel(reward.getSkill()));
+        } else {
+            trace.record("Opening reward item {}: {}", itemId, source);
+            takeInventorySnapshot(source);
         }
     }
 
     /**
      * Handle hunter's loot sacks which can be stacked
      */
-    private void handleHunterLootSacks(int itemId) {
-        ItemComposition itemComp = itemManager.getItemComposition(itemId);
-        if (itemComp != null) {
-            log.info("Opening hunter's loot sack: {}", itemComp.getName());
-
-            // Create metadata with skill levels
-            Map<String, Integer> metadata = new HashMap<>();
-            metadata.put("WOODCUTTING", client.getBoostedSkillLevel(Skill.WOODCUTTING));
-            metadata.put("HERBLORE", client.getBoostedSkillLevel(Skill.HERBLORE));
-            metadata.put("HUNTER", client.getBoostedSkillLevel(Skill.HUNTER));
-
-            JsonObject details = new JsonObject();
-            details.addProperty("rewardSource", itemComp.getName());
-            details.addProperty("timestamp", System.currentTimeMillis());
-            details.addProperty("woodcuttingLevel", metadata.get("WOODCUTTING"));
-            details.addProperty("herbloreLevel", metadata.get("HERBLORE"));
-            details.addProperty("hunterLevel", metadata.get("HUNTER"));
-            details.add("items", new JsonArray());
-
-            pendingRewards.put(itemComp.getName(), details);
-            takeInventorySnapshot(itemComp.getName());
-        }
+    private void handleHunterLootSack(String sackName) {
+        trace.record("Opening hunter's loot sack: {}", sackName);
+
+        // Create metadata with skill levels
+        Map<String, Integer> metadata = new HashMap<>();
+        metadata.put("WOODCUTTING", client.getBoostedSkillLevel(Skill.WOODCUTTING));
+        metadata.put("HERBLORE", client.getBoostedSkillLevel(Skill.HERBLORE));
+        metadata.put("HUNTER", client.getBoostedSkillLevel(Skill.HUNTER));
+
+        RewardDetails details = new RewardDetails(sackName, System.currentTimeMillis());
+        details.setHunterLootLevels(metadata.get("WOODCUTTING"), metadata.get("HERBLORE"), metadata.get("HUNTER"));
+
+        addPendingReward(sackName, details);
+        takeInventorySnapshot(sackName);
     }
 
     /**
@@ -934,345 +656,144 @@ public class RewardListener {
     }
 
     /**
-     * Initialize the map of interface IDs to reward sources
+     * Initialize the chat message triggers. Each rule has a keyword the message must
+     * contain for its pattern to be tried, rules are checked in the order they are added.
      */
-    private void initRewardInterfaces() {
-        // Reward interfaces from widgets
-        rewardInterfaces.put(InterfaceID.BARROWS_REWARD, BARROWS_EVENT);
-        rewardInterfaces.put(InterfaceID.CHAMBERS_OF_XERIC_REWARD, CHAMBERS_OF_XERIC_EVENT);
-        rewardInterfaces.put(InterfaceID.TOB_REWARD, THEATRE_OF_BLOOD_EVENT);
-        rewardInterfaces.put(InterfaceID.TOA_REWARD, TOMBS_OF_AMASCUT_EVENT);
-        rewardInterfaces.put(InterfaceID.KINGDOM, KINGDOM_EVENT);
-        rewardInterfaces.put(InterfaceID.TRAWLER_REWARD, FISHING_TRAWLER_EVENT);
-        rewardInterfaces.put(InterfaceID.DRIFT_NET_FISHING_REWARD, DRIFT_NET_EVENT);
-        rewardInterfaces.put(InterfaceID.WILDERNESS_LOOT_CHEST, "Loot Chest");
-        rewardInterfaces.put(InterfaceID.LUNAR_CHEST, "Lunar Chest");
-        rewardInterfaces.put(InterfaceID.FORTIS_COLOSSEUM_REWARD, "Fortis Colosseum");
-
-        // Additional interfaces
-        rewardInterfaces.put(155, BARROWS_EVENT);
-        rewardInterfaces.put(291, CHAMBERS_OF_XERIC_EVENT);
-        rewardInterfaces.put(235, THEATRE_OF_BLOOD_EVENT);
-        rewardInterfaces.put(289, TOMBS_OF_AMASCUT_EVENT);
-        rewardInterfaces.put(81, KINGDOM_EVENT);
-        rewardInterfaces.put(371, FISHING_TRAWLER_EVENT);
-        rewardInterfaces.put(334, WINTERTODT_EVENT);
-        rewardInterfaces.put(426, "Shooting Star");
-        rewardInterfaces.put(422, "Brimstone Chest");
-        rewardInterfaces.put(982, "Mahogany Homes");
-        rewardInterfaces.put(540, "Giant's Foundry");
-        rewardInterfaces.put(746, GUARDIANS_OF_THE_RIFT_EVENT);
-        rewardInterfaces.put(611, "Volcanic Mine");
-        rewardInterfaces.put(668, "Hallowed Sepulchre");
-        rewardInterfaces.put(730, "Moons of Peril");
-        rewardInterfaces.put(868, "Lunar Chest");
-
-        log.info("Initialized {} reward interfaces", rewardInterfaces.size());
+    private void initChatRules() {
+        // Minigame and skilling loot, only in their regions
+        addChatRule(WINTERTODT_LOOT_STRING, Anchor.CONTAINS, ChatAction.SNAPSHOT, WINTERTODT_EVENT)
+                .at(Activity.WINTERTODT).skill(Skill.FIREMAKING);
+        addChatRule(TEMPOROSS_LOOT_STRING, Anchor.PREFIX, ChatAction.SNAPSHOT, TEMPOROSS_EVENT)
+                .at(Activity.TEMPOROSS).skill(Skill.FISHING);
+        addChatRule(GUARDIANS_OF_THE_RIFT_LOOT_STRING, Anchor.PREFIX, ChatAction.SNAPSHOT, GUARDIANS_OF_THE_RIFT_EVENT)
+                .at(Activity.GUARDIANS_OF_THE_RIFT).skill(Skill.RUNECRAFT);
+        addChatRule(HERBIBOAR_LOOTED_MESSAGE, Anchor.EQUALS, ChatAction.SNAPSHOT, HERBIBOAR_EVENT)
+                .skill(Skill.HERBLORE);
+        addChatRule(HESPORI_LOOTED_MESSAGE, Anchor.EQUALS, ChatAction.SNAPSHOT, HESPORI_EVENT)
+                .at(Activity.HESPORI);
+        addChatRule(FONT_OF_CONSUMPTION_MESSAGE, Anchor.EQUALS, ChatAction.SNAPSHOT, "Unsired")
+                .at(Activity.FONT_OF_CONSUMPTION);
+        addChatRule(IMPLING_CATCH_MESSAGE, Anchor.EQUALS, ChatAction.IMPLING, null);
+
+        // Chest loot, named after the region the chest is in
+        addChatRule(CHEST_LOOTED_MESSAGE, Anchor.EQUALS, ChatAction.CHEST, null);
+        addChatRule(OTHER_CHEST_LOOTED_MESSAGE, Anchor.EQUALS, ChatAction.CHEST, null);
+        addChatRule(DORGESH_KAAN_CHEST_LOOTED_MESSAGE, Anchor.EQUALS, ChatAction.CHEST, null);
+        addChatRule(GRUBBY_CHEST_LOOTED_MESSAGE, Anchor.PREFIX, ChatAction.CHEST, null);
+        addChatRule(ANCIENT_CHEST_LOOTED_MESSAGE, Anchor.PREFIX, ChatAction.CHEST, null);
+        addChatRule("You have opened Larran's ", Anchor.PREFIX, ChatAction.CHEST, null)
+                .matches(LARRAN_LOOTED_PATTERN);
+        addChatRule("You find ", Anchor.PREFIX, ChatAction.CHEST, null)
+                .matches(ROGUES_CHEST_PATTERN);
+
+        addChatRule(HALLOWED_SEPULCHRE_COFFIN_MESSAGE, Anchor.EQUALS, ChatAction.SNAPSHOT, HALLOWED_SEPULCHRE_COFFIN_EVENT)
+                .at(Activity.HALLOWED_SEPULCHRE);
+        addChatRule(" key breaks in the lock", Anchor.CONTAINS, ChatAction.HAM_CHEST, null)
+                .matches(HAM_CHEST_PATTERN).at(Activity.HAM_STOREROOM);
+        addChatRule("You pick ", Anchor.PREFIX, ChatAction.PICKPOCKET, null)
+                .matches(PICKPOCKET_PATTERN);
+        addChatRule("High level gamble count:", Anchor.CONTAINS, ChatAction.SNAPSHOT, BA_HIGH_GAMBLE_EVENT)
+                .at(Activity.BARBARIAN_ASSAULT_LOBBY).type(ChatMessageType.MESBOX);
+        addChatRule(" Treasure Trail", Anchor.CONTAINS, ChatAction.CLUE_SCROLL, null)
+                .finds(CLUE_SCROLL_PATTERN);
+        addChatRule("You dismantle and discard the trap, retrieving ", Anchor.PREFIX, ChatAction.BIRDHOUSE, null)
+                .matches(BIRDHOUSE_PATTERN);
+        addChatRule("You need a ", Anchor.PREFIX, ChatAction.SHADE_CHEST_NO_KEY, null)
+                .matches(SHADE_CHEST_NO_KEY_PATTERN);
+
+        // Completion messages that start a pending reward, group 1 is the completion count
+        addPendingRewardRule("Your Barrows chest count is: ", "Your Barrows chest count is: (\\d+)", BARROWS_EVENT);
+        addPendingRewardRule(" Treasure Trails", "You have completed (\\d+) ([\\w\\s]+) Treasure Trails", "Treasure Trail");
+        addPendingRewardRule("Reward permits: ", "Reward permits: (\\d+)", TEMPOROSS_EVENT);
+        addPendingRewardRule("Your subdued the Wintertodt", "Your subdued the Wintertodt", WINTERTODT_EVENT);
+        addPendingRewardRule("Challenge complete!", "Challenge complete!", CHAMBERS_OF_XERIC_EVENT);
+        addPendingRewardRule("Theatre of Blood total completion time:", "Theatre of Blood total completion time:", THEATRE_OF_BLOOD_EVENT);
+        addPendingRewardRule("Tombs of Amascut completed!", "Tombs of Amascut completed!", TOMBS_OF_AMASCUT_EVENT);
+        addPendingRewardRule(" trips on the Fishing Trawler", "You have completed (\\d+) trips on the Fishing Trawler", FISHING_TRAWLER_EVENT);
+        addPendingRewardRule("Kingdom Management: Collected resources", "Kingdom Management: Collected resources", KINGDOM_EVENT);
+        addPendingRewardRule("You hand over your stardust", "You hand over your stardust", "Shooting Star");
+        addPendingRewardRule(" Mahogany Homes contracts", "You've completed (\\d+) Mahogany Homes contracts", "Mahogany Homes");
+        addPendingRewardRule(" Giant's Foundry commissions", "You've completed (\\d+) Giant's Foundry commissions", "Giant's Foundry");
+        addPendingRewardRule("Elemental energy: ", "Elemental energy: (\\d+)", GUARDIANS_OF_THE_RIFT_EVENT);
+        addPendingRewardRule("The volcano erupts shortly after your escape!", "The volcano erupts shortly after your escape!", "Volcanic Mine");
+        addPendingRewardRule(" laps of the Hallowed Sepulchre", "You've completed (\\d+) laps of the Hallowed Sepulchre", "Hallowed Sepulchre");
+        addPendingRewardRule(" Moons of Peril", "You have completed (\\d+) Moons of Peril", "Moons of Peril");
+        addPendingRewardRule("Your Lunar Chest count is:", "Your Lunar Chest count is:.*?(\\d+).*", "Lunar Chest");
+        addChatRule("You have opened Larran's ", Anchor.CONTAINS, ChatAction.PENDING_REWARD, "Larran's chest")
+                .finds(LARRAN_LOOTED_PATTERN);
+        addChatRule("You find ", Anchor.CONTAINS, ChatAction.PENDING_REWARD, "Rogues' Chest")
+                .finds(ROGUES_CHEST_PATTERN);
+
+        log.info("Initialized {} chat rules", chatRules.size());
     }
 
-    /**
-     * Initialize the map of chat patterns to reward sources
-     */
-    private void initChatPatterns() {
-        // Barrows
-        chatPatterns.put(
-                Pattern.compile("Your Barrows chest count is: (\\d+)"),
-                BARROWS_EVENT
-        );
-
-        // Clue scroll completion message
-        chatPatterns.put(
-                Pattern.compile("You have completed (\\d+) ([\\w\\s]+) Treasure Trails"),
-                "Treasure Trail"
-        );
-
-        // Tempoross
-        chatPatterns.put(
-                Pattern.compile("Reward permits: (\\d+)"),
-                TEMPOROSS_EVENT
-        );
-
-        // Wintertodt
-        chatPatterns.put(
-                Pattern.compile("Your subdued the Wintertodt"),
-                WINTERTODT_EVENT
-        );
-
-        // CoX
-        chatPatterns.put(
-                Pattern.compile("Challenge complete!"),
-                CHAMBERS_OF_XERIC_EVENT
-        );
-
-        // ToB
-        chatPatterns.put(
-                Pattern.compile("Theatre of Blood total completion time:"),
-                THEATRE_OF_BLOOD_EVENT
-        );
-
-        // ToA
-        chatPatterns.put(
-                Pattern.compile("Tombs of Amascut completed!"),
-                TOMBS_OF_AMASCUT_EVENT
-        );
-
-        // Fishing Trawler
-        chatPatterns.put(
-                Pattern.compile("You have completed (\\d+) trips on the Fishing Trawler"),
-                FISHING_TRAWLER_EVENT
-        );
-
-        // Kingdom
-        chatPatterns.put(
-                Pattern.compile("Kingdom Management: Collected resources"),
-                KINGDOM_EVENT
-        );
-
-        // Shooting Stars
-        chatPatterns.put(
-                Pattern.compile("You hand over your stardust"),
-                "Shooting Star"
-        );
-
-        // Mahogany Homes
-        chatPatterns.put(
-                Pattern.compile("You've completed (\\d+) Mahogany Homes contracts"),
-                "Mahogany Homes"
-        );
-
-        // Giant's Foundry
-        chatPatterns.put(
-                Pattern.compile("You've completed (\\d+) Giant's Foundry commissions"),
-                "Giant's Foundry"
-        );
-
-        // Guardians of the Rift
-        chatPatterns.put(
-                Pattern.compile("Elemental energy: (\\d+)"),
-                GUARDIANS_OF_THE_RIFT_EVENT
-        );
-
-        // Volcanic Mine
-        chatPatterns.put(
-                Pattern.compile("The volcano erupts shortly after your escape!"),
-                "Volcanic Mine"
-        );
-
-        // Hallowed Sepulchre
-        chatPatterns.put(
-                Pattern.compile("You've completed (\\d+) laps of the Hallowed Sepulchre"),
-                "Hallowed Sepulchre"
-        );
-
-        // Moons of Peril
-        chatPatterns.put(
-                Pattern.compile("You have completed (\\d+) Moons of Peril"),
-                "Moons of Peril"
-        );
-
-        // Lunar Chest
-        chatPatterns.put(
-                Pattern.compile("Your Lunar Chest count is:.*?(\\d+).*"),
-                "Lunar Chest"
-        );
-
-        // Additional patterns for various chests
-        chatPatterns.put(LARRAN_LOOTED_PATTERN, "Larran's chest");
-        chatPatterns.put(ROGUES_CHEST_PATTERN, "Rogues' Chest");
-
-        log.info("Initialized {} chat patterns", chatPatterns.size());
+    private ChatRule addChatRule(String keyword, Anchor anchor, ChatAction action, String source) {
+        ChatRule rule = new ChatRule(keyword, anchor, action, source);
+        chatRules.add(rule);
+        return rule;
     }
 
-    /**
-     * Initialize the map of region IDs to chest types
-     */
-    private void initChestEventTypes() {
-        CHEST_EVENT_TYPES.put(5179, "Brimstone Chest");
-        CHEST_EVENT_TYPES.put(11573, "Crystal Chest");
-        CHEST_EVENT_TYPES.put(12093, "Larran's big chest");
-        CHEST_EVENT_TYPES.put(12127, "The Gauntlet");
-        CHEST_EVENT_TYPES.put(13113, "Larran's small chest");
-        CHEST_EVENT_TYPES.put(13151, "Elven Crystal Chest");
-        CHEST_EVENT_TYPES.put(5277, "Stone chest");
-        CHEST_EVENT_TYPES.put(10835, "Dorgesh-Kaan Chest");
-        CHEST_EVENT_TYPES.put(10834, "Dorgesh-Kaan Chest");
-        CHEST_EVENT_TYPES.put(7323, "Grubby Chest");
-        CHEST_EVENT_TYPES.put(8593, "Isle of Souls Chest");
-        CHEST_EVENT_TYPES.put(7827, "Dark Chest");
-        CHEST_EVENT_TYPES.put(13117, "Rogues' Chest");
-        CHEST_EVENT_TYPES.put(13156, "Chest (Ancient Vault)");
-        CHEST_EVENT_TYPES.put(LAVA_MAZE_REGIONS.iterator().next(), "Muddy Chest");
-        CHEST_EVENT_TYPES.put(5422, "Chest (Aldarin Villas)");
-        CHEST_EVENT_TYPES.put(6550, "Chest (Moon key)");
-
-        log.info("Initialized {} chest types", CHEST_EVENT_TYPES.size());
+    private void addPendingRewardRule(String keyword, String regex, String source) {
+        addChatRule(keyword, Anchor.CONTAINS, ChatAction.PENDING_REWARD, source).finds(Pattern.compile(regex));
     }
 
     /**
-     * Initialize the map of object IDs to shade chest types
-     */
-    private void initShadeChestObjects() {
-        SHADE_CHEST_OBJECTS.put(ObjectID.BRONZE_CHEST, "Bronze key red");
-        SHADE_CHEST_OBJECTS.put(ObjectID.BRONZE_CHEST_4112, "Bronze key brown");
-        SHADE_CHEST_OBJECTS.put(ObjectID.BRONZE_CHEST_4113, "Bronze key crimson");
-        SHADE_CHEST_OBJECTS.put(ObjectID.BRONZE_CHEST_4114, "Bronze key black");
-        SHADE_CHEST_OBJECTS.put(ObjectID.BRONZE_CHEST_4115, "Bronze key purple");
-        SHADE_CHEST_OBJECTS.put(ObjectID.STEEL_CHEST, "Steel key red");
-        SHADE_CHEST_OBJECTS.put(ObjectID.STEEL_CHEST_4117, "Steel key brown");
-        SHADE_CHEST_OBJECTS.put(ObjectID.STEEL_CHEST_4118, "Steel key crimson");
-        SHADE_CHEST_OBJECTS.put(ObjectID.STEEL_CHEST_4119, "Steel key black");
-        SHADE_CHEST_OBJECTS.put(ObjectID.STEEL_CHEST_4120, "Steel key purple");
-        SHADE_CHEST_OBJECTS.put(ObjectID.BLACK_CHEST, "Black key red");
-        SHADE_CHEST_OBJECTS.put(ObjectID.BLACK_CHEST_4122, "Black key brown");
-        SHADE_CHEST_OBJECTS.put(ObjectID.BLACK_CHEST_4123, "Black key crimson");
-        SHADE_CHEST_OBJECTS.put(ObjectID.BLACK_CHEST_4124, "Black key black");
-        SHADE_CHEST_OBJECTS.put(ObjectID.BLACK_CHEST_4125, "Black key purple");
-        SHADE_CHEST_OBJECTS.put(ObjectID.SILVER_CHEST, "Silver key red");
-        SHADE_CHEST_OBJECTS.put(ObjectID.SILVER_CHEST_4127, "Silver key brown");
-        SHADE_CHEST_OBJECTS.put(ObjectID.SILVER_CHEST_4128, "Silver key crimson");
-        SHADE_CHEST_OBJECTS.put(ObjectID.SILVER_CHEST_4129, "Silver key black");
-        SHADE_CHEST_OBJECTS.put(ObjectID.SILVER_CHEST_4130, "Silver key purple");
-        SHADE_CHEST_OBJECTS.put(ObjectID.GOLD_CHEST, "Gold key red");
-        SHADE_CHEST_OBJECTS.put(ObjectID.GOLD_CHEST_41213, "Gold key brown");
-        SHADE_CHEST_OBJECTS.put(ObjectID.GOLD_CHEST_41214, "Gold key crimson");
-        SHADE_CHEST_OBJECTS.put(ObjectID.GOLD_CHEST_41215, "Gold key black");
-        SHADE_CHEST_OBJECTS.put(ObjectID.GOLD_CHEST_41216, "Gold key purple");
-
-        log.info("Initialized {} shade chest types", SHADE_CHEST_OBJECTS.size());
-    }
-
-    /**
-     * Initialize the map of XP values to birdhouse types
-     */
-    private void initBirdhouseTypes() {
-        BIRDHOUSE_XP_TO_TYPE.put(280, "Regular Bird House");
-        BIRDHOUSE_XP_TO_TYPE.put(420, "Oak Bird House");
-        BIRDHOUSE_XP_TO_TYPE.put(560, "Willow Bird House");
-        BIRDHOUSE_XP_TO_TYPE.put(700, "Teak Bird House");
-        BIRDHOUSE_XP_TO_TYPE.put(820, "Maple Bird House");
-        BIRDHOUSE_XP_TO_TYPE.put(960, "Mahogany Bird House");
-        BIRDHOUSE_XP_TO_TYPE.put(1020, "Yew Bird House");
-        BIRDHOUSE_XP_TO_TYPE.put(1140, "Magic Bird House");
-        BIRDHOUSE_XP_TO_TYPE.put(1200, "Redwood Bird House");
-
-        log.info("Initialized {} birdhouse types", BIRDHOUSE_XP_TO_TYPE.size());
-    }
-
-    /**
-     * Initialize item IDs that should trigger reward collection when used/opened
+     * Reset the inventory tracking system
      */
-    private void initRewardItemIds() {
-        // Supply crates
-        rewardItemIds.add(20703); // Supply crate (Wintertodt)
-        rewardItemIds.add(24884); // Supply crate (Mahogany Homes)
-
-        // Caskets
-        rewardItemIds.add(405);   // Casket
-        rewardItemIds.add(25590); // Casket (Tempoross)
-
-        // Reward items from minigames
-        rewardItemIds.add(23951); // Spoils of war (Soul Wars)
-        rewardItemIds.add(25516); // Hallowed sack (Hallowed Sepulchre)
-
-        // Chests and keys
-        rewardItemIds.add(21511); // Brimstone key
-        rewardItemIds.add(23083); // Konar's chest
-
-        // Bags of gems
-        rewardItemIds.add(12109); // Bag full of gems (Percy)
-        rewardItemIds.add(24853); // Bag full of gems (Belona)
-        rewardItemIds.add(25537); // Bag full of gems (Dusuri)
-
-        // Seed pack
-        rewardItemIds.add(22866); // Seed pack
-
-        // Ore packs
-        rewardItemIds.add(27693); // Ore pack (Volcanic Mine)
-
-        // Hunter's loot sacks
-        rewardItemIds.add(27606); // Hunter's loot sack
-        rewardItemIds.add(28354); // Hunter's loot sack (basic)
-        rewardItemIds.add(28355); // Hunter's loot sack (adept)
-        rewardItemIds.add(28356); // Hunter's loot sack (expert)
-        rewardItemIds.add(28357); // Hunter's loot sack (master)
-
-        // Various lockboxes and crates
-        rewardItemIds.add(25647); // Simple lockbox
-        rewardItemIds.add(25649); // Elaborate lockbox
-        rewardItemIds.add(25651); // Ornate lockbox
-        rewardItemIds.add(25638); // Cache of runes
-        rewardItemIds.add(25642); // Intricate pouch
-        rewardItemIds.add(25644); // Frozen cache
-
-        // Bounty crates
-        for (int i = 27417; i <= 27425; i++) { // Bounty crate tier 1-9
-            rewardItemIds.add(i);
+    private void resetInventoryTracking() {
+        trace.record("Resetting inventory tracking");
+        inventoryId = null;
+        inventorySnapshot = null;
+        if (inventoryTimeout != null) {
+            inventoryTimeout.cancel();
+            inventoryTimeout = null;
         }
-
-        // Potion packs
-        rewardItemIds.add(27291); // Apprentice potion pack
-        rewardItemIds.add(27293); // Adept potion pack
-        rewardItemIds.add(27295); // Expert potion pack
-
-        log.info("Initialized {} reward item IDs", rewardItemIds.size());
     }
 
     /**
-     * Initialize bird nest item IDs
+     * Track a reward until its items arrive, dropping it if they never do
      */
-    private void initBirdNestIds() {
-        BIRDNEST_IDS.add(5070); // Bird nest
-        BIRDNEST_IDS.add(5071); // Bird nest (red eggs)
-        BIRDNEST_IDS.add(5072); // Bird nest (blue eggs)
-        BIRDNEST_IDS.add(5073); // Bird nest (green eggs)
-        BIRDNEST_IDS.add(5074); // Bird nest (seeds)
-        BIRDNEST_IDS.add(7413); // Bird nest (ring)
-        BIRDNEST_IDS.add(13653); // Bird nest (clue)
-        BIRDNEST_IDS.add(22798); // Bird nest (Wyson)
-        BIRDNEST_IDS.add(22800); // Bird nest (seaweed)
-
-        log.info("Initialized {} bird nest IDs", BIRDNEST_IDS.size());
-    }
-
-    /**
-     * Initialize impling jar IDs
-     */
-    private void initImplingJars() {
-        IMPLING_JARS.add(11238); // Baby impling jar
-        IMPLING_JARS.add(11240); // Young impling jar
-        IMPLING_JARS.add(11242); // Gourmet impling jar
-        IMPLING_JARS.add(11244); // Earth impling jar
-        IMPLING_JARS.add(11246); // Essence impling jar
-        IMPLING_JARS.add(11248); // Eclectic impling jar
-        IMPLING_JARS.add(11250); // Nature impling jar
-        IMPLING_JARS.add(11252); // Magpie impling jar
-        IMPLING_JARS.add(11254); // Ninja impling jar
-        IMPLING_JARS.add(23748); // Crystal impling jar
-        IMPLING_JARS.add(11256); // Dragon impling jar
-        IMPLING_JARS.add(19732); // Lucky impling jar
-
-        log.info("Initialized {} impling jar IDs", IMPLING_JARS.size());
+    private void addPendingReward(String rewardSource, RewardDetails details) {
+        pendingRewards.put(rewardSource, details);
+
+        TickWheel.Timeout previous = pendingRewardTimeouts.put(rewardSource,
+                tickWheel.schedule(PENDING_REWARD_TIMEOUT, () -> {
+                    trace.record("Pending reward expired: {}", rewardSource);
+                    pendingRewards.remove(rewardSource);
+                    pendingRewardTimeouts.remove(rewardSource);
+                }));
+        if (previous != null) {
+            previous.cancel();
+        }
     }
 
-    /**
-     * Reset the inventory tracking system
-     */
-    private void resetInventoryTracking() {
-        log.info("Resetting inventory tracking");
-        inventoryId = null;
-        inventorySnapshot = null;
-        inventoryTimeout = 0;
+    private void removePendingReward(String rewardSource) {
+        pendingRewards.remove(rewardSource);
+        TickWheel.Timeout timeout = pendingRewardTimeouts.remove(rewardSource);
+        if (timeout != null) {
+            timeout.cancel();
+        }
     }
 
     @Subscribe
     public void onGameStateChanged(final GameStateChanged event) {
         // Reset chest looted flag when loading into a new area
         if (event.getGameState() == GameState.LOADING) {
-            log.info("Game state changed to LOADING, resetting chest looted flag");
+            trace.record("Game state changed to LOADING, resetting chest looted flag");
             chestLooted = false;
         }
     }
 
+    /**
+     * Dump the decision trace with {@code ::mindrune-trace}
+     */
+    @Subscribe
+    public void onCommandExecuted(CommandExecuted event) {
+        if (TRACE_COMMAND.equalsIgnoreCase(event.getCommand())) {
+            trace.dump("Requested");
+        }
+    }
+
     /**
      * Track chat messages that might indicate rewards
      */
@@ -1284,214 +805,268 @@ public class RewardListener {
             return;
         }
 
+        // Nearly every message contains no keyword and never gets past the string checks
         String message = event.getMessage();
-        Player player = client.getLocalPlayer();
-        if (player == null) {
-            return;
-        }
+        Player player = null;
+        for (ChatRule rule : chatRules) {
+            if (!rule.hasKeyword(message)) {
+                continue;
+            }
 
-        log.info("Processing chat message: '{}' (Type: {})", message, event.getType());
-        final int regionID = player.getWorldLocation().getRegionID();
+            if (player == null) {
+                player = client.getLocalPlayer();
+                if (player == null) {
+                    return;
+                }
+                trace.record("Processing chat message: '{}' (Type: {})", message, event.getType());
+            }
 
-        // Check special reward messages based on region
-        if (isPlayerInRegion(WINTERTODT_REGIONS) && message.contains(WINTERTODT_LOOT_STRING)) {
-            log.info("Detected Wintertodt loot message");
-            takeInventorySnapshot(WINTERTODT_EVENT, client.getBoostedSkillLevel(Skill.FIREMAKING));
-            return;
-        }
+            if (rule.messageType != null && event.getType() != rule.messageType) {
+                continue;
+            }
 
-        if (isPlayerInRegion(TEMPOROSS_REGIONS) && message.startsWith(TEMPOROSS_LOOT_STRING)) {
-            log.info("Detected Tempoross loot message");
-            takeInventorySnapshot(TEMPOROSS_EVENT, client.getBoostedSkillLevel(Skill.FISHING));
-            return;
-        }
+            Matcher matcher = null;
+            if (rule.pattern != null) {
+                matcher = rule.pattern.matcher(message);
+                if (!(rule.find ? matcher.find() : matcher.matches())) {
+                    continue;
+                }
+            }
 
-        if (isPlayerInRegion(GUARDIANS_OF_RIFT_REGIONS) && message.startsWith(GUARDIANS_OF_THE_RIFT_LOOT_STRING)) {
-            log.info("Detected Guardians of the Rift loot message");
-            takeInventorySnapshot(GUARDIANS_OF_THE_RIFT_EVENT, client.getBoostedSkillLevel(Skill.RUNECRAFT));
-            return;
-        }
+            if (rule.activity != null && !regionActivityService.isAt(rule.activity)) {
+                trace.record("Not at {} for rule {}", rule.activity, rule.keyword);
+                continue;
+            }
 
-        // Check for herbiboar message
-        if (message.equals(HERBIBOAR_LOOTED_MESSAGE)) {
-            log.info("Detected Herbiboar loot message");
-            takeInventorySnapshot(HERBIBOAR_EVENT, client.getBoostedSkillLevel(Skill.HERBLORE));
-            return;
+            if (handleChatRule(rule, matcher, message, player)) {
+                return;
+            }
         }
+    }
 
-        // Check for Hespori message
-        if (isPlayerInRegion(HESPORI_REGIONS) && message.equals(HESPORI_LOOTED_MESSAGE)) {
-            log.info("Detected Hespori loot message");
-            takeInventorySnapshot(HESPORI_EVENT);
-            return;
-        }
+    /**
+     * Act on a chat rule that matched
+     *
+     * @return false if the message turned out not to be a reward after all, so later
+     * rules should still be tried
+     */
+    private boolean handleChatRule(ChatRule rule, Matcher matcher, String message, Player player) {
+        switch (rule.action) {
+            case SNAPSHOT:
+                trace.record("Detected {} loot message", rule.source);
+                if (rule.skill != null) {
+                    takeInventorySnapshot(rule.source, client.getBoostedSkillLevel(rule.skill));
+                } else {
+                    takeInventorySnapshot(rule.source);
+                }
+                return true;
 
-        // Check for Font of Consumption message
-        if (isPlayerInRegion(FONT_OF_CONSUMPTION_REGIONS) && message.equals(FONT_OF_CONSUMPTION_MESSAGE)) {
-            log.info("Detected Font of Consumption message");
-            takeInventorySnapshot("Unsired");
-            return;
-        }
+            case IMPLING:
+                trace.record("Detected impling catch message");
+                if (player.getInteracting() != null) {
+                    takeInventorySnapshot(player.getInteracting().getName());
+                }
+                return true;
 
-        // Check for impling catch message
-        if (message.equals(IMPLING_CATCH_MESSAGE)) {
-            log.info("Detected impling catch message");
-            if (client.getLocalPlayer().getInteracting() != null) {
-                takeInventorySnapshot(client.getLocalPlayer().getInteracting().getName());
-            }
-            return;
-        }
+            case CHEST:
+                String chestType = rewardRegistry.getChestSource(player.getWorldLocation().getRegionID());
+                if (chestType == null) {
+                    return false;
+                }
+                trace.record("Detected chest loot message for: {}", chestType);
+                takeInventorySnapshot(chestType);
+                return true;
 
-        // Check for chest loot messages
-        if (message.equals(CHEST_LOOTED_MESSAGE) || message.equals(OTHER_CHEST_LOOTED_MESSAGE)
-                || message.equals(DORGESH_KAAN_CHEST_LOOTED_MESSAGE) || message.startsWith(GRUBBY_CHEST_LOOTED_MESSAGE)
-                || message.startsWith(ANCIENT_CHEST_LOOTED_MESSAGE)
-                || LARRAN_LOOTED_PATTERN.matcher(message).matches() || ROGUES_CHEST_PATTERN.matcher(message).matches()) {
+            case HAM_CHEST:
+                String keyType = matcher.group("key");
+                trace.record("Detected HAM chest message for key: {}", keyType);
+                takeInventorySnapshot(String.format("H.A.M. chest (%s)", keyType));
+                return true;
 
-            String chestType = CHEST_EVENT_TYPES.get(regionID);
-            if (chestType != null) {
-                log.info("Detected chest loot message for: {}", chestType);
-                takeInventorySnapshot(chestType);
-                return;
-            }
-        }
+            case PICKPOCKET:
+                String pickpocketTarget = matcher.group("target");
+                if (pickpocketTarget == null) {
+                    return false;
+                }
+                trace.record("Detected pickpocket message for: {}", pickpocketTarget);
+                takeInventorySnapshot("Pickpocket: " + pickpocketTarget);
+                return true;
 
-        // Check for Hallowed Sepulchre coffin message
-        if (message.equals(HALLOWED_SEPULCHRE_COFFIN_MESSAGE) && isPlayerInRegion(HALLOWED_SEPULCHRE_REGIONS)) {
-            log.info("Detected Hallowed Sepulchre coffin message");
-            takeInventorySnapshot(HALLOWED_SEPULCHRE_COFFIN_EVENT);
-            return;
-        }
+            case CLUE_SCROLL:
+                handleClueScrollMessage(matcher.group(1).toLowerCase());
+                return true;
 
-        // Check for HAM chest
-        Matcher hamStoreroomMatcher = HAM_CHEST_PATTERN.matcher(message);
-        if (hamStoreroomMatcher.matches() && isPlayerInRegion(HAM_STOREROOM_REGIONS)) {
-            String keyType = hamStoreroomMatcher.group("key");
-            log.info("Detected HAM chest message for key: {}", keyType);
-            takeInventorySnapshot(String.format("H.A.M. chest (%s)", keyType));
-            return;
+            case BIRDHOUSE:
+                try {
+                    String xpStr = matcher.group(1).replace(",", "");
+                    final int xp = Integer.parseInt(xpStr);
+                    final String type = rewardRegistry.getBirdhouseSource(xp);
+                    if (type != null) {
+                        trace.record("Detected birdhouse: {}", type);
+                        takeInventorySnapshot(type, client.getBoostedSkillLevel(Skill.HUNTER));
+                        return true;
+                    } else {
+                        trace.record("Unknown bird house type for XP: {}", xp);
+                    }
+                } catch (NumberFormatException e) {
+                    trace.record("Error parsing birdhouse XP: {}", e.getMessage());
+                }
+                return false;
+
+            case SHADE_CHEST_NO_KEY:
+                trace.record("Player didn't have the key they needed for shade chest");
+                resetInventoryTracking();
+                return true;
+
+            case PENDING_REWARD:
+            default:
+                createPendingReward(rule.source, matcher, message);
+                return true;
         }
+    }
 
-        // Check for pickpocket
-        Matcher pickpocketMatcher = PICKPOCKET_PATTERN.matcher(message);
-        if (pickpocketMatcher.matches()) {
-            String pickpocketTarget = pickpocketMatcher.group("target");
-            if (pickpocketTarget != null) {
-                log.info("Detected pickpocket message for: {}", pickpocketTarget);
-                takeInventorySnapshot("Pickpocket: " + pickpocketTarget);
+    private void handleClueScrollMessage(String type) {
+        String eventType;
+        switch (type) {
+            case "beginner":
+                eventType = "Clue Scroll (Beginner)";
+                break;
+            case "easy":
+                eventType = "Clue Scroll (Easy)";
+                break;
+            case "medium":
+                eventType = "Clue Scroll (Medium)";
+                break;
+            case "hard":
+                eventType = "Clue Scroll (Hard)";
+                break;
+            case "elite":
+                eventType = "Clue Scroll (Elite)";
+                break;
+            case "master":
+                eventType = "Clue Scroll (Master)";
+                break;
+            default:
+                trace.record("Unrecognized clue type: {}", type);
                 return;
+        }
+
+        trace.record("Detected clue scroll completion: {}", eventType);
+        takeInventorySnapshot(eventType);
+    }
+
+    /**
+     * Start a pending reward from a completion message
+     */
+    private void createPendingReward(String rewardSource, Matcher matcher, String message) {
+        trace.record("Chat pattern matched: {} -> {}", matcher.group(0), rewardSource);
+
+        // Extract completion count if available (group 1)
+        int completionCount = 0;
+        try {
+            if (matcher.groupCount() >= 1) {
+                completionCount = Integer.parseInt(matcher.group(1));
+                trace.record("Extracted completion count: {}", completionCount);
             }
+        } catch (NumberFormatException e) {
+            // Not a number or no group, ignore
+            trace.record("Failed to parse completion count: {}", e.getMessage());
         }
 
-        // Check for Barbarian Assault high gamble
-        if (isPlayerInRegion(BA_LOBBY_REGIONS) && event.getType() == ChatMessageType.MESBOX
-                && message.contains("High level gamble count:")) {
-            log.info("Detected BA high gamble message");
-            takeInventorySnapshot(BA_HIGH_GAMBLE_EVENT);
-            return;
+        // Create reward details
+        RewardDetails details = new RewardDetails(rewardSource, System.currentTimeMillis());
+        details.setCompletion(completionCount, message);
+
+        // Store reward details for this source
+        addPendingReward(rewardSource, details);
+        trace.record("Created pending reward for: {}", rewardSource);
+
+        // For some sources, we know we should track inventory changes
+        if (shouldTrackInventoryForSource(rewardSource)) {
+            trace.record("Taking inventory snapshot for: {}", rewardSource);
+            takeInventorySnapshot(rewardSource);
         }
+    }
 
-        // Check if message is for a clue scroll reward
-        Matcher clueMatcher = CLUE_SCROLL_PATTERN.matcher(message);
-        if (clueMatcher.find()) {
-            final String type = clueMatcher.group(1).toLowerCase();
-            String eventType;
-            switch (type) {
-                case "beginner":
-                    eventType = "Clue Scroll (Beginner)";
-                    break;
-                case "easy":
-                    eventType = "Clue Scroll (Easy)";
-                    break;
-                case "medium":
-                    eventType = "Clue Scroll (Medium)";
-                    break;
-                case "hard":
-                    eventType = "Clue Scroll (Hard)";
-                    break;
-                case "elite":
-                    eventType = "Clue Scroll (Elite)";
-                    break;
-                case "master":
-                    eventType = "Clue Scroll (Master)";
-                    break;
-                default:
-                    log.info("Unrecognized clue type: {}", type);
-                    return;
-            }
+    private enum ChatAction {
+        SNAPSHOT,
+        IMPLING,
+        CHEST,
+        HAM_CHEST,
+        PICKPOCKET,
+        CLUE_SCROLL,
+        BIRDHOUSE,
+        SHADE_CHEST_NO_KEY,
+        PENDING_REWARD
+    }
 
-            log.info("Detected clue scroll completion: {}", eventType);
-            takeInventorySnapshot(eventType);
-            return;
+    /**
+     * Where a chat rule's keyword has to appear in a message
+     */
+    private enum Anchor {
+        EQUALS,
+        PREFIX,
+        CONTAINS
+    }
+
+    /**
+     * A chat message trigger. The keyword is a literal part of every message the rule
+     * accepts, the pattern, activity and other conditions are only checked when it is present.
+     */
+    private static class ChatRule {
+        final String keyword;
+        final Anchor anchor;
+        final ChatAction action;
+        final String source;
+        Pattern pattern;
+        boolean find;
+        Activity activity;
+        Skill skill;
+        ChatMessageType messageType;
+
+        ChatRule(String keyword, Anchor anchor, ChatAction action, String source) {
+            this.keyword = keyword;
+            this.anchor = anchor;
+            this.action = action;
+            this.source = source;
         }
 
-        // Check if message is a birdhouse type
-        Matcher birdhouseMatcher = BIRDHOUSE_PATTERN.matcher(message);
-        if (birdhouseMatcher.matches()) {
-            try {
-                String xpStr = birdhouseMatcher.group(1).replace(",", "");
-                final int xp = Integer.parseInt(xpStr);
-                final String type = BIRDHOUSE_XP_TO_TYPE.get(xp);
-                if (type != null) {
-                    log.info("Detected birdhouse: {}", type);
-                    takeInventorySnapshot(type, client.getBoostedSkillLevel(Skill.HUNTER));
-                    return;
-                } else {
-                    log.info("Unknown bird house type for XP: {}", xp);
-                }
-            } catch (NumberFormatException e) {
-                log.info("Error parsing birdhouse XP: {}", e.getMessage());
+        boolean hasKeyword(String message) {
+            switch (anchor) {
+                case EQUALS:
+                    return message.equals(keyword);
+                case PREFIX:
+                    return message.startsWith(keyword);
+                default:
+                    return message.contains(keyword);
             }
         }
 
-        // Check shade chest messages
-        if (SHADE_CHEST_NO_KEY_PATTERN.matcher(message).matches()) {
-            log.info("Player didn't have the key they needed for shade chest");
-            resetInventoryTracking();
-            return;
+        ChatRule matches(Pattern pattern) {
+            this.pattern = pattern;
+            this.find = false;
+            return this;
         }
 
-        // Check all other patterns
-        for (Map.Entry<Pattern, String> entry : chatPatterns.entrySet()) {
-            Matcher matcher = entry.getKey().matcher(message);
-            if (matcher.find()) {
-                String rewardSource = entry.getValue();
-                log.info("Chat pattern matched: {} -> {}", matcher.group(0), rewardSource);
-
-                // Extract completion count if available (group 1)
-                int completionCount = 0;
-                try {
-                    if (matcher.groupCount() >= 1) {
-                        completionCount = Integer.parseInt(matcher.group(1));
-                        log.info("Extracted completion count: {}", completionCount);
-                    }
-                } catch (NumberFormatException e) {
-                    // Not a number or no group, ignore
-                    log.info("Failed to parse completion count: {}", e.getMessage());
-                }
-
-                // Create reward details
-                JsonObject details = new JsonObject();
-                details.addProperty("rewardSource", rewardSource);
-                details.addProperty("completionCount", completionCount);
-                details.addProperty("message", message);
-                details.addProperty("timestamp", System.currentTimeMillis());
-
-                // Initialize empty items array
-                details.add("items", new JsonArray());
+        ChatRule finds(Pattern pattern) {
+            this.pattern = pattern;
+            this.find = true;
+            return this;
+        }
 
-                // Store reward details for this source
-                pendingRewards.put(rewardSource, details);
-                log.info("Created pending reward for: {}", rewardSource);
+        ChatRule at(Activity activity) {
+            this.activity = activity;
+            return this;
+        }
 
-                // For some sources, we know we should track inventory changes
-                if (shouldTrackInventoryForSource(rewardSource)) {
-                    log.info("Taking inventory snapshot for: {}", rewardSource);
-                    takeInventorySnapshot(rewardSource);
-                }
+        ChatRule skill(Skill skill) {
+            this.skill = skill;
+            return this;
+        }
 
-                break; // Only match one pattern per message
-            }
+        ChatRule type(ChatMessageType messageType) {
+            this.messageType = messageType;
+            return this;
         }
     }
-}
\ No newline at end of file
+}
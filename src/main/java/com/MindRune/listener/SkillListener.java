@@ -1,7 +1,6 @@
 package com.MindRune.listener;
 
-import com.MindRune.service.EventLogService;
-import com.google.gson.JsonObject;
+import com.MindRune.service.EventAggregator;
 import net.runelite.api.Client;
 import net.runelite.api.Skill;
 import net.runelite.api.events.GameTick;
@@ -15,13 +14,13 @@ import java.util.Map;
  */
 public class SkillListener {
     private final Client client;
-    private final EventLogService eventLogService;
+    private final EventAggregator eventAggregator;
     private final Map<Skill, Integer> previousXp = new HashMap<>();
     private boolean isInitialized = false;
 
-    public SkillListener(Client client, EventLogService eventLogService) {
+    public SkillListener(Client client, EventAggregator eventAggregator) {
         this.client = client;
-        this.eventLogService = eventLogService;
+        this.eventAggregator = eventAggregator;
     }
 
     @Subscribe
@@ -47,13 +46,7 @@ public class SkillListener {
 
             // Only log actual XP gains
             if (xpGained > 0) {
-                JsonObject details = new JsonObject();
-                details.addProperty("skill", skill.getName());
-                details.addProperty("totalXp", newXp);
-                details.addProperty("xpGained", xpGained);
-                details.addProperty("level", event.getLevel());
-
-                eventLogService.logEvent("XP_GAIN", client, details);
+                eventAggregator.addXp(skill, newXp, xpGained, event.getLevel());
             }
         }
 
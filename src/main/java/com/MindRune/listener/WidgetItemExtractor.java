@@ -0,0 +1,94 @@
+package com.MindRune.listener;
+
+import com.MindRune.util.IntIntMap;
+import com.MindRune.util.LongHashSet;
+import net.runelite.api.widgets.Widget;
+
+/**
+ * Collects the items shown in a widget tree, such as a reward interface.
+ *
+ * The tree is walked depth first with an explicit stack, visiting static, regular and
+ * dynamic children in that order and skipping hidden subtrees. A widget that is reachable
+ * through more than one child list is visited once, tracked by its ID and child index
+ * packed into a long. Quantities of the same item are summed per item ID, in the order the
+ * items were first seen. The stack, set and map are reused, so extracting allocates
+ * nothing once they have grown to fit the largest interface.
+ *
+ * Not thread safe, all calls must come from the client thread.
+ */
+class WidgetItemExtractor {
+    private Widget[] stack = new Widget[64];
+    private final LongHashSet visited = new LongHashSet(256);
+    private final IntIntMap quantities = new IntIntMap(32);
+
+    /**
+     * Collect the items under a widget, replacing the previous result
+     *
+     * @return Number of distinct items found
+     */
+    int extract(Widget root) {
+        visited.clear();
+        quantities.clear();
+
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            Widget widget = stack[--top];
+            stack[top] = null;
+            if (widget == null || widget.isHidden() || !visited.add(key(widget))) {
+                continue;
+            }
+
+            int itemId = widget.getItemId();
+            int quantity = widget.getItemQuantity();
+            if (itemId > 0 && quantity > 0) {
+                quantities.addTo(itemId, quantity);
+            }
+
+            // Pushed in reverse, so static children are visited first
+            top = push(widget.getDynamicChildren(), top);
+            top = push(widget.getChildren(), top);
+            top = push(widget.getStaticChildren(), top);
+        }
+
+        return quantities.size();
+    }
+
+    /**
+     * @param index 0 for the first item found, up to the count returned by {@link #extract} - 1
+     */
+    int getItemId(int index) {
+        return quantities.keyAt(index);
+    }
+
+    /**
+     * @param index 0 for the first item found, up to the count returned by {@link #extract} - 1
+     */
+    int getQuantity(int index) {
+        return quantities.valueAt(index);
+    }
+
+    private int push(Widget[] children, int top) {
+        if (children == null) {
+            return top;
+        }
+
+        if (top + children.length > stack.length) {
+            Widget[] grown = new Widget[Math.max(stack.length * 2, top + children.length)];
+            System.arraycopy(stack, 0, grown, 0, top);
+            stack = grown;
+        }
+        for (int i = children.length - 1; i >= 0; i--) {
+            stack[top++] = children[i];
+        }
+        return top;
+    }
+
+    /**
+     * Static widgets have their own ID and index -1, dynamic children share their
+     * parent's ID and differ by index
+     */
+    private static long key(Widget widget) {
+        return ((long) widget.getId() << 32) | (widget.getIndex() & 0xFFFFFFFFL);
+    }
+}
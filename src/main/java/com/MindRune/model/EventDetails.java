@@ -0,0 +1,38 @@
+package com.MindRune.model;
+
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+
+/**
+ * Typed payload of a game event.
+ *
+ * Implementations hold primitives and ids captured on the client thread and are only
+ * turned into JSON when the event is sent, so no JSON tree is built on the game loop.
+ * Instances must not be modified once they have been logged.
+ */
+public interface EventDetails {
+
+    /**
+     * Write the details as a JSON object
+     *
+     * @param out Writer positioned where the details object belongs
+     * @throws IOException If the underlying stream fails
+     */
+    void writeJson(JsonWriter out) throws IOException;
+
+    /**
+     * @return Key that rate limits are applied to separately within the event type, such
+     * as a menu option, or null to share one limit across the type
+     */
+    default String getThrottleKey() {
+        return null;
+    }
+
+    /**
+     * @return true if these details repeat {@code other}, so the event adds nothing when
+     * logged shortly after it
+     */
+    default boolean isRepeatOf(EventDetails other) {
+        return false;
+    }
+}
@@ -1,63 +1,105 @@
 package com.MindRune.model;
 
-import com.google.gson.JsonObject;
-import net.runelite.api.Player;
-import net.runelite.api.coords.WorldPoint;
-import java.time.Instant;
+import com.MindRune.util.BinaryEventWriter;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
 
 /**
  * Represents a game event that will be logged and sent to the API
  */
 public class GameEvent {
     private final String eventType;
-    private final Instant timestamp;
-    private final JsonObject playerLocation;
-    private final JsonObject details;
+    private final TickContext context;
+    private final EventDetails details;
+    private final int suppressed;
 
-    private GameEvent(String eventType, JsonObject playerLocation, JsonObject details) {
+    private GameEvent(String eventType, TickContext context, EventDetails details, int suppressed) {
         this.eventType = eventType;
-        this.timestamp = Instant.now();
-        this.playerLocation = playerLocation;
+        this.context = context;
         this.details = details;
+        this.suppressed = suppressed;
     }
 
     /**
      * Create a new game event
      *
      * @param eventType Type of event
-     * @param player Player involved in the event
+     * @param context Tick the event happened in, shared with the tick's other events
      * @param details Additional event details
      * @return New GameEvent object
      */
-    public static GameEvent create(String eventType, Player player, JsonObject details) {
-        JsonObject playerLocation = null;
-
-        if (player != null) {
-            WorldPoint location = player.getWorldLocation();
-            playerLocation = new JsonObject();
-            playerLocation.addProperty("x", location.getX());
-            playerLocation.addProperty("y", location.getY());
-            playerLocation.addProperty("plane", location.getPlane());
-        }
+    public static GameEvent create(String eventType, TickContext context, EventDetails details) {
+        return new GameEvent(eventType, context, details, 0);
+    }
+
+    /**
+     * @param suppressed Number of similar events dropped since the last one was logged
+     * @return Copy of this event that stands in for the dropped events
+     */
+    public GameEvent withSuppressed(int suppressed) {
+        return new GameEvent(eventType, context, details, suppressed);
+    }
 
-        return new GameEvent(eventType, playerLocation, details);
+    public String getEventType() {
+        return eventType;
+    }
+
+    public EventDetails getDetails() {
+        return details;
     }
 
     /**
-     * Convert the event to a JSON object
+     * @return Time the event was captured in epoch milliseconds
+     */
+    public long getTimestampMillis() {
+        return context.getTimestampMillis();
+    }
+
+    /**
+     * Write the event as a JSON object. This is where the typed details are
+     * materialized, so it should be called from the sender rather than the client thread.
      *
-     * @return JSON representation of the event
+     * @param out Writer positioned where the event object belongs
+     * @throws IOException If the underlying stream fails
      */
-    public JsonObject toJson() {
-        JsonObject json = new JsonObject();
-        json.addProperty("eventType", eventType);
-        json.addProperty("timestamp", timestamp.toString());
+    public void writeJson(JsonWriter out) throws IOException {
+        out.beginObject();
+        out.name("eventType").value(eventType);
+        out.name("timestamp").value(context.getTimestampString());
 
-        if (playerLocation != null) {
-            json.add("playerLocation", playerLocation);
+        if (context.hasLocation()) {
+            out.name("playerLocation").beginObject();
+            out.name("x").value(context.getX());
+            out.name("y").value(context.getY());
+            out.name("plane").value(context.getPlane());
+            out.endObject();
         }
 
-        json.add("details", details);
-        return json;
+        out.name("details");
+        details.writeJson(out);
+
+        if (suppressed > 0) {
+            out.name("suppressed").value(suppressed);
+        }
+        out.endObject();
+    }
+
+    /**
+     * Write the event as a binary record body
+     *
+     * @param out Binary writer positioned at the start of the record body
+     * @param baseMillis Segment base time the timestamp is written relative to
+     * @throws IOException If the underlying stream fails
+     */
+    public void writeBinary(BinaryEventWriter out, long baseMillis) throws IOException {
+        out.writeEventHeader(eventType, context.getTimestampMillis() - baseMillis,
+                context.hasLocation(), context.getX(), context.getY(), context.getPlane());
+        details.writeJson(out);
+
+        if (suppressed > 0) {
+            out.beginObject();
+            out.name("suppressed").value(suppressed);
+            out.endObject();
+        }
     }
-}
\ No newline at end of file
+}
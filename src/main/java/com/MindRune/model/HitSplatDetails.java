@@ -0,0 +1,112 @@
+package com.MindRune.model;
+
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import net.runelite.api.HitsplatID;
+
+/**
+ * Details of a hitsplat dealt to or by the local player, or of several hitsplats of one
+ * type between the same actors rolled up into one event
+ */
+public class HitSplatDetails implements EventDetails {
+    private static final String PLAYER = "Player";
+
+    private final boolean outgoing;
+    private final String opponent;
+    private final int damage;
+    private final int type;
+    private final int count;
+    private final int minDamage;
+    private final int maxDamage;
+    private final int windowTicks;
+
+    /**
+     * @param outgoing true if the player dealt the hit, false if the player received it
+     * @param opponent Name of the other actor with markup stripped, or null if unknown
+     * @param damage Hitsplat amount
+     * @param type Hitsplat type ID
+     */
+    public HitSplatDetails(boolean outgoing, String opponent, int damage, int type) {
+        this(outgoing, opponent, damage, type, 1, damage, damage, 0);
+    }
+
+    /**
+     * @param outgoing true if the player dealt the hits, false if the player received them
+     * @param opponent Name of the other actor with markup stripped, or null if unknown
+     * @param damage Sum of the hitsplat amounts
+     * @param type Hitsplat type ID
+     * @param count Number of hitsplats
+     * @param minDamage Smallest hitsplat amount
+     * @param maxDamage Largest hitsplat amount
+     * @param windowTicks Game ticks from the first hitsplat until the hitsplats were logged
+     */
+    public HitSplatDetails(boolean outgoing, String opponent, int damage, int type,
+                           int count, int minDamage, int maxDamage, int windowTicks) {
+        this.outgoing = outgoing;
+        this.opponent = opponent;
+        this.damage = damage;
+        this.type = type;
+        this.count = count;
+        this.minDamage = minDamage;
+        this.maxDamage = maxDamage;
+        this.windowTicks = windowTicks;
+    }
+
+    /**
+     * Convert a hitsplat type ID to a readable string
+     * @param hitsplatType The hitsplat type ID
+     * @return A readable string representation
+     */
+    public static String getHitsplatTypeString(int hitsplatType) {
+        // Map hitsplat type IDs to readable strings
+        switch (hitsplatType) {
+            case HitsplatID.POISON:
+                return "Poison";
+            case HitsplatID.DISEASE:
+                return "Disease";
+            case HitsplatID.VENOM:
+                return "Venom";
+            case HitsplatID.HEAL:
+                return "Heal";
+            case HitsplatID.DAMAGE_ME:
+            case HitsplatID.DAMAGE_OTHER:
+                return "Damage";
+            case HitsplatID.DAMAGE_MAX_ME:
+            case HitsplatID.DAMAGE_MAX_ME_CYAN:
+            case HitsplatID.DAMAGE_MAX_ME_ORANGE:
+            case HitsplatID.DAMAGE_MAX_ME_WHITE:
+            case HitsplatID.DAMAGE_MAX_ME_YELLOW:
+                return "Max Damage";
+            case HitsplatID.BLOCK_ME:
+                return "Block";
+            default:
+                return "" + hitsplatType;
+        }
+    }
+
+    @Override
+    public void writeJson(JsonWriter out) throws IOException {
+        String typeString = getHitsplatTypeString(type);
+
+        out.beginObject();
+        if (outgoing) {
+            out.name("source").value(PLAYER);
+            out.name("target").value(opponent);
+        } else {
+            out.name("target").value(PLAYER);
+            // Without an attacker, fall back to the type (poison, venom, ...)
+            out.name("source").value(opponent != null ? opponent : typeString);
+        }
+        out.name("damage").value(damage);
+        out.name("type").value(type);
+        out.name("typeString").value(typeString);
+        out.name("direction").value(outgoing ? "outgoing" : "incoming");
+        if (count > 1) {
+            out.name("count").value(count);
+            out.name("min").value(minDamage);
+            out.name("max").value(maxDamage);
+            out.name("windowTicks").value(windowTicks);
+        }
+        out.endObject();
+    }
+}
@@ -0,0 +1,75 @@
+package com.MindRune.model;
+
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+
+/**
+ * Details of a change to a single item in the player's inventory
+ */
+public class InventoryChangeDetails implements EventDetails {
+    private final int itemId;
+    private final String itemName;
+    private final int quantity;
+    private final String changeType;
+    private final int[] oldSlots;
+    private final int[] newSlots;
+
+    /**
+     * @param itemId Item ID
+     * @param itemName Item name, or null if names are resolved by the server
+     * @param quantity Quantity added or removed, the change in stack size, or the stack quantity for moves
+     * @param changeType ADD, REMOVE or STACK
+     */
+    public InventoryChangeDetails(int itemId, String itemName, int quantity, String changeType) {
+        this(itemId, itemName, quantity, changeType, null, null);
+    }
+
+    /**
+     * @param itemId Item ID
+     * @param itemName Item name, or null if names are resolved by the server
+     * @param quantity Quantity added or removed, the change in stack size, or the stack quantity for moves
+     * @param changeType ADD, REMOVE, STACK or MOVE
+     * @param oldSlots Slots the item moved from, or null. Must not be modified afterwards.
+     * @param newSlots Slots the item moved to, in the same order, or null. Must not be modified afterwards.
+     */
+    public InventoryChangeDetails(int itemId, String itemName, int quantity, String changeType,
+                                  int[] oldSlots, int[] newSlots) {
+        this.itemId = itemId;
+        this.itemName = itemName;
+        this.quantity = quantity;
+        this.changeType = changeType;
+        this.oldSlots = oldSlots;
+        this.newSlots = newSlots;
+    }
+
+    @Override
+    public void writeJson(JsonWriter out) throws IOException {
+        out.beginObject();
+        out.name("itemId").value(itemId);
+        if (itemName != null) {
+            out.name("itemName").value(itemName);
+        }
+        out.name("quantity").value(quantity);
+        out.name("changeType").value(changeType);
+
+        // Comma separated, oldPositions[i] moved to newPositions[i]
+        if (oldSlots != null) {
+            out.name("oldPositions").value(joinSlots(oldSlots));
+        }
+        if (newSlots != null) {
+            out.name("newPositions").value(joinSlots(newSlots));
+        }
+        out.endObject();
+    }
+
+    private static String joinSlots(int[] slots) {
+        StringBuilder sb = new StringBuilder(slots.length * 3);
+        for (int i = 0; i < slots.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(slots[i]);
+        }
+        return sb.toString();
+    }
+}
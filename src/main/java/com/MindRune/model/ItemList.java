@@ -0,0 +1,124 @@
+package com.MindRune.model;
+
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Compact growable list of item stacks backed by parallel primitive arrays
+ */
+public class ItemList {
+    private int[] itemIds;
+    private int[] quantities;
+    private String[] itemNames;
+    private int size;
+
+    public ItemList() {
+        this(8);
+    }
+
+    public ItemList(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        itemIds = new int[capacity];
+        quantities = new int[capacity];
+        itemNames = new String[capacity];
+    }
+
+    /**
+     * Append an item stack
+     *
+     * @param itemId Item ID
+     * @param itemName Item name
+     * @param quantity Quantity
+     */
+    public void add(int itemId, String itemName, int quantity) {
+        if (size == itemIds.length) {
+            int capacity = size * 2;
+            itemIds = Arrays.copyOf(itemIds, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            itemNames = Arrays.copyOf(itemNames, capacity);
+        }
+
+        itemIds[size] = itemId;
+        itemNames[size] = itemName;
+        quantities[size] = quantity;
+        size++;
+    }
+
+    /**
+     * Append all item stacks from another list
+     *
+     * @param other List to copy from
+     */
+    public void addAll(ItemList other) {
+        for (int i = 0; i < other.size; i++) {
+            add(other.itemIds[i], other.itemNames[i], other.quantities[i]);
+        }
+    }
+
+    /**
+     * Add to the quantity of an existing stack of the same item
+     *
+     * @param itemId Item ID
+     * @param quantity Quantity to add
+     * @return true if a stack was found and updated
+     */
+    public boolean merge(int itemId, int quantity) {
+        for (int i = 0; i < size; i++) {
+            if (itemIds[i] == itemId) {
+                quantities[i] += quantity;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return Independent copy of this list
+     */
+    public ItemList copy() {
+        ItemList copy = new ItemList(size);
+        copy.addAll(this);
+        return copy;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getItemId(int index) {
+        return itemIds[index];
+    }
+
+    public int getQuantity(int index) {
+        return quantities[index];
+    }
+
+    public String getItemName(int index) {
+        return itemNames[index];
+    }
+
+    /**
+     * Write as a JSON array of item objects
+     *
+     * @param out Writer positioned where the array belongs
+     * @throws IOException If the underlying stream fails
+     */
+    public void writeJson(JsonWriter out) throws IOException {
+        out.beginArray();
+        for (int i = 0; i < size; i++) {
+            out.beginObject();
+            out.name("itemId").value(itemIds[i]);
+            if (itemNames[i] != null) {
+                out.name("itemName").value(itemNames[i]);
+            }
+            out.name("quantity").value(quantities[i]);
+            out.endObject();
+        }
+        out.endArray();
+    }
+}
@@ -0,0 +1,62 @@
+package com.MindRune.model;
+
+/**
+ * Immutable snapshot of the item properties the plugin needs, so item definitions
+ * only have to be looked up once per item
+ */
+public class ItemMetadata {
+    private final int itemId;
+    private final String name;
+    private final boolean stackable;
+    private final boolean noted;
+    private final int linkedNoteId;
+    private final int price;
+
+    /**
+     * @param itemId Item ID
+     * @param name Item name
+     * @param stackable Whether the item stacks in the inventory
+     * @param noted Whether this is the noted form of an item
+     * @param linkedNoteId ID of the noted form of an unnoted item, or of the unnoted form of a noted item, or -1
+     * @param price Grand Exchange price at the time of the lookup
+     */
+    public ItemMetadata(int itemId, String name, boolean stackable, boolean noted, int linkedNoteId, int price) {
+        this.itemId = itemId;
+        this.name = name;
+        this.stackable = stackable;
+        this.noted = noted;
+        this.linkedNoteId = linkedNoteId;
+        this.price = price;
+    }
+
+    public int getItemId() {
+        return itemId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isStackable() {
+        return stackable;
+    }
+
+    public boolean isNoted() {
+        return noted;
+    }
+
+    public int getLinkedNoteId() {
+        return linkedNoteId;
+    }
+
+    /**
+     * @return ID of the unnoted form of this item
+     */
+    public int getUnnotedId() {
+        return noted && linkedNoteId != -1 ? linkedNoteId : itemId;
+    }
+
+    public int getPrice() {
+        return price;
+    }
+}
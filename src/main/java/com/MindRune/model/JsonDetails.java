@@ -0,0 +1,29 @@
+package com.MindRune.model;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+
+/**
+ * Details for infrequent events that are still built as a JSON tree by their listener
+ */
+public class JsonDetails implements EventDetails {
+    private static final Gson GSON = new Gson();
+
+    private final JsonObject json;
+
+    public JsonDetails(JsonObject json) {
+        this.json = json;
+    }
+
+    @Override
+    public void writeJson(JsonWriter out) throws IOException {
+        try {
+            GSON.toJson(json, out);
+        } catch (JsonIOException e) {
+            throw new IOException("Failed to write event details", e);
+        }
+    }
+}
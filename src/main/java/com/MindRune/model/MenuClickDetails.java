@@ -0,0 +1,52 @@
+package com.MindRune.model;
+
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Details of a menu option click
+ */
+public class MenuClickDetails implements EventDetails {
+    private final String action;
+    private final String target;
+    private final int id;
+
+    /**
+     * @param action Menu option with markup stripped
+     * @param target Menu target with markup stripped
+     * @param id Menu identifier, or -1 if not available
+     */
+    public MenuClickDetails(String action, String target, int id) {
+        this.action = action;
+        this.target = target;
+        this.id = id;
+    }
+
+    @Override
+    public String getThrottleKey() {
+        return action;
+    }
+
+    @Override
+    public boolean isRepeatOf(EventDetails other) {
+        if (!(other instanceof MenuClickDetails)) {
+            return false;
+        }
+        MenuClickDetails click = (MenuClickDetails) other;
+        return id == click.id && Objects.equals(action, click.action) && Objects.equals(target, click.target);
+    }
+
+    @Override
+    public void writeJson(JsonWriter out) throws IOException {
+        out.beginObject();
+        out.name("action").value(action);
+        out.name("target").value(target);
+
+        // Add identifier if available
+        if (id != -1) {
+            out.name("id").value(id);
+        }
+        out.endObject();
+    }
+}
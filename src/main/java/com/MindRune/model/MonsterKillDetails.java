@@ -0,0 +1,66 @@
+package com.MindRune.model;
+
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import net.runelite.api.coords.WorldPoint;
+
+/**
+ * Details of an NPC kill and the loot attributed to it
+ */
+public class MonsterKillDetails implements EventDetails {
+    private final String monsterName;
+    private final int monsterId;
+    private final int combatLevel;
+    private final boolean hasLocation;
+    private final int regionId;
+    private final int x;
+    private final int y;
+    private final int plane;
+    private final String killId;
+    private final ItemList items;
+
+    /**
+     * @param monsterName NPC name with markup stripped
+     * @param monsterId NPC ID, or -1 if not known
+     * @param combatLevel NPC combat level
+     * @param location Where the NPC died, or null if not known
+     * @param killId Unique ID of this kill
+     * @param items Loot attributed to the kill; not modified after this call
+     */
+    public MonsterKillDetails(String monsterName, int monsterId, int combatLevel, WorldPoint location,
+                              String killId, ItemList items) {
+        this.monsterName = monsterName;
+        this.monsterId = monsterId;
+        this.combatLevel = combatLevel;
+        this.hasLocation = location != null;
+        this.regionId = location != null ? location.getRegionID() : 0;
+        this.x = location != null ? location.getX() : 0;
+        this.y = location != null ? location.getY() : 0;
+        this.plane = location != null ? location.getPlane() : 0;
+        this.killId = killId;
+        this.items = items;
+    }
+
+    @Override
+    public void writeJson(JsonWriter out) throws IOException {
+        out.beginObject();
+        out.name("monsterName").value(monsterName);
+        if (monsterId != -1) {
+            out.name("monsterId").value(monsterId);
+        }
+        out.name("combatLevel").value(combatLevel);
+
+        // Region information is useful for contextual analysis
+        if (hasLocation) {
+            out.name("regionId").value(regionId);
+            out.name("x").value(x);
+            out.name("y").value(y);
+            out.name("plane").value(plane);
+        }
+
+        out.name("killId").value(killId);
+        out.name("items");
+        items.writeJson(out);
+        out.endObject();
+    }
+}
@@ -1,6 +1,8 @@
 package com.MindRune.model;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
 import net.runelite.api.Client;
 import net.runelite.api.Player;
 import net.runelite.api.Skill;
@@ -66,4 +68,20 @@ public class PlayerInfo {
         json.addProperty("totalXp", totalXp);
         return json;
     }
+
+    /**
+     * Write as a JSON object
+     *
+     * @param out Writer positioned where the player object belongs
+     * @throws IOException If the underlying stream fails
+     */
+    public void writeJson(JsonWriter out) throws IOException {
+        out.beginObject();
+        out.name("playerName").value(playerName);
+        out.name("playerId").value(playerId);
+        out.name("combatLevel").value(combatLevel);
+        out.name("totalLevel").value(totalLevel);
+        out.name("totalXp").value(totalXp);
+        out.endObject();
+    }
 }
\ No newline at end of file
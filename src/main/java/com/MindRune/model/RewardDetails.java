@@ -0,0 +1,111 @@
+package com.MindRune.model;
+
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+
+/**
+ * Details of a reward from a chest, minigame, container or other source.
+ *
+ * Unlike the other details this is filled in over several events while the reward is
+ * pending, so it is mutable until it has been logged.
+ */
+public class RewardDetails implements EventDetails {
+    private static final int UNSET = -1;
+
+    private final String rewardSource;
+    private final long timestamp;
+    private int completionCount = UNSET;
+    private String message;
+    private int skillLevel = UNSET;
+    private int raidLevel = UNSET;
+    private int teamSize = UNSET;
+    private int raidDamage = UNSET;
+    private int woodcuttingLevel = UNSET;
+    private int herbloreLevel = UNSET;
+    private int hunterLevel = UNSET;
+    private ItemList items = new ItemList();
+    private String rewardId;
+
+    /**
+     * @param rewardSource Name of the reward source
+     * @param timestamp Time the reward was detected, in epoch milliseconds
+     */
+    public RewardDetails(String rewardSource, long timestamp) {
+        this.rewardSource = rewardSource;
+        this.timestamp = timestamp;
+    }
+
+    public String getRewardSource() {
+        return rewardSource;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public ItemList getItems() {
+        return items;
+    }
+
+    public void setItems(ItemList items) {
+        this.items = items;
+    }
+
+    public void setCompletion(int completionCount, String message) {
+        this.completionCount = completionCount;
+        this.message = message;
+    }
+
+    public void setSkillLevel(int skillLevel) {
+        this.skillLevel = skillLevel;
+    }
+
+    public void setRaidInfo(int raidLevel, int teamSize, int raidDamage) {
+        this.raidLevel = raidLevel;
+        this.teamSize = teamSize;
+        this.raidDamage = raidDamage;
+    }
+
+    public void setHunterLootLevels(int woodcuttingLevel, int herbloreLevel, int hunterLevel) {
+        this.woodcuttingLevel = woodcuttingLevel;
+        this.herbloreLevel = herbloreLevel;
+        this.hunterLevel = hunterLevel;
+    }
+
+    public void setRewardId(String rewardId) {
+        this.rewardId = rewardId;
+    }
+
+    @Override
+    public void writeJson(JsonWriter out) throws IOException {
+        out.beginObject();
+        out.name("rewardSource").value(rewardSource);
+        out.name("timestamp").value(timestamp);
+
+        if (completionCount != UNSET) {
+            out.name("completionCount").value(completionCount);
+            out.name("message").value(message);
+        }
+        if (skillLevel != UNSET) {
+            out.name("skillLevel").value(skillLevel);
+        }
+        if (raidLevel != UNSET) {
+            out.name("raidLevel").value(raidLevel);
+            out.name("teamSize").value(teamSize);
+            out.name("raidDamage").value(raidDamage);
+        }
+        if (hunterLevel != UNSET) {
+            out.name("woodcuttingLevel").value(woodcuttingLevel);
+            out.name("herbloreLevel").value(herbloreLevel);
+            out.name("hunterLevel").value(hunterLevel);
+        }
+
+        out.name("items");
+        items.writeJson(out);
+        out.name("itemCount").value(items.size());
+        if (rewardId != null) {
+            out.name("rewardId").value(rewardId);
+        }
+        out.endObject();
+    }
+}
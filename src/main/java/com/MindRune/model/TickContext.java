@@ -0,0 +1,91 @@
+package com.MindRune.model;
+
+import net.runelite.api.Client;
+import net.runelite.api.Player;
+import net.runelite.api.coords.WorldPoint;
+import java.time.Instant;
+
+/**
+ * What every event logged during one game tick has in common: the tick, the time it was
+ * captured and where the player stood. Captured once per tick on the client thread and
+ * shared by all of that tick's events, since the player's location only changes between
+ * ticks.
+ */
+public final class TickContext {
+    private final int tick;
+    private final long timestampMillis;
+    private final boolean hasLocation;
+    private final int x;
+    private final int y;
+    private final int plane;
+    private final int regionId;
+
+    // Formatted on first use by the sender and shared by the tick's events
+    private String timestampString;
+
+    private TickContext(int tick, long timestampMillis, WorldPoint location) {
+        this.tick = tick;
+        this.timestampMillis = timestampMillis;
+        this.hasLocation = location != null;
+        this.x = location != null ? location.getX() : 0;
+        this.y = location != null ? location.getY() : 0;
+        this.plane = location != null ? location.getPlane() : 0;
+        this.regionId = location != null ? location.getRegionID() : -1;
+    }
+
+    /**
+     * Capture the context of the current tick. Must be called on the client thread.
+     */
+    public static TickContext capture(Client client) {
+        Player player = client.getLocalPlayer();
+        WorldPoint location = player != null ? player.getWorldLocation() : null;
+        return new TickContext(client.getTickCount(), System.currentTimeMillis(), location);
+    }
+
+    public int getTick() {
+        return tick;
+    }
+
+    /**
+     * @return Time the context was captured in epoch milliseconds
+     */
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    /**
+     * @return Capture time in ISO-8601 form
+     */
+    public String getTimestampString() {
+        // Racy but benign, at worst two threads format the same value
+        String formatted = timestampString;
+        if (formatted == null) {
+            formatted = Instant.ofEpochMilli(timestampMillis).toString();
+            timestampString = formatted;
+        }
+        return formatted;
+    }
+
+    public boolean hasLocation() {
+        return hasLocation;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getPlane() {
+        return plane;
+    }
+
+    /**
+     * @return Region the player stood in, or -1 without a location
+     */
+    public int getRegionId() {
+        return regionId;
+    }
+}
@@ -0,0 +1,60 @@
+package com.MindRune.model;
+
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import net.runelite.api.Skill;
+
+/**
+ * Details of an XP drop, or of several drops in one skill rolled up into one event
+ */
+public class XpGainDetails implements EventDetails {
+    private final Skill skill;
+    private final int totalXp;
+    private final int xpGained;
+    private final int level;
+    private final int count;
+    private final int minGained;
+    private final int maxGained;
+    private final int windowTicks;
+
+    public XpGainDetails(Skill skill, int totalXp, int xpGained, int level) {
+        this(skill, totalXp, xpGained, level, 1, xpGained, xpGained, 0);
+    }
+
+    /**
+     * @param totalXp XP in the skill after the last drop
+     * @param xpGained Sum of the drops
+     * @param level Level after the last drop
+     * @param count Number of drops
+     * @param minGained Smallest drop
+     * @param maxGained Largest drop
+     * @param windowTicks Game ticks from the first drop until the drops were logged
+     */
+    public XpGainDetails(Skill skill, int totalXp, int xpGained, int level,
+                         int count, int minGained, int maxGained, int windowTicks) {
+        this.skill = skill;
+        this.totalXp = totalXp;
+        this.xpGained = xpGained;
+        this.level = level;
+        this.count = count;
+        this.minGained = minGained;
+        this.maxGained = maxGained;
+        this.windowTicks = windowTicks;
+    }
+
+    @Override
+    public void writeJson(JsonWriter out) throws IOException {
+        out.beginObject();
+        out.name("skill").value(skill.getName());
+        out.name("totalXp").value(totalXp);
+        out.name("xpGained").value(xpGained);
+        out.name("level").value(level);
+        if (count > 1) {
+            out.name("count").value(count);
+            out.name("min").value(minGained);
+            out.name("max").value(maxGained);
+            out.name("windowTicks").value(windowTicks);
+        }
+        out.endObject();
+    }
+}
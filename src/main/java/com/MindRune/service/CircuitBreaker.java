@@ -0,0 +1,99 @@
+package com.MindRune.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Circuit breaker that parks uploads while the API keeps failing.
+ *
+ * After a run of consecutive failures the circuit opens and no requests are allowed
+ * until the cool-down has passed. The first request after that is a probe: success
+ * closes the circuit, failure opens it again for another cool-down.
+ */
+@Slf4j
+public class CircuitBreaker {
+    private enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openDurationMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtMillis;
+
+    /**
+     * @param failureThreshold Consecutive failures before the circuit opens
+     * @param openDurationMillis How long the circuit stays open before a probe is allowed
+     */
+    public CircuitBreaker(int failureThreshold, long openDurationMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openDurationMillis = openDurationMillis;
+    }
+
+    /**
+     * @param nowMillis Current time
+     * @return true if a request may be sent now
+     */
+    public synchronized boolean allowRequest(long nowMillis) {
+        if (state == State.OPEN && nowMillis - openedAtMillis >= openDurationMillis) {
+            log.debug("Upload circuit half-open, sending probe");
+            state = State.HALF_OPEN;
+        }
+        return state != State.OPEN;
+    }
+
+    /**
+     * @return true while the probe after a cool-down is outstanding, only that one
+     * request should be in flight
+     */
+    public synchronized boolean isHalfOpen() {
+        return state == State.HALF_OPEN;
+    }
+
+    /**
+     * Record a successful request, closing the circuit
+     */
+    public synchronized void recordSuccess() {
+        if (state != State.CLOSED) {
+            log.info("Upload circuit closed, API is responding again");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    /**
+     * Record a failed request
+     *
+     * @param nowMillis Current time
+     */
+    public synchronized void recordFailure(long nowMillis) {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            log.warn("Upload circuit opened after {} consecutive failures, parking uploads for {} s",
+                    consecutiveFailures, openDurationMillis / 1000);
+            state = State.OPEN;
+            openedAtMillis = nowMillis;
+        }
+    }
+
+    /**
+     * @return Failures since the last success
+     */
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * @param nowMillis Current time
+     * @return Milliseconds until a probe is allowed, or 0 if the circuit is not open
+     */
+    public synchronized long remainingOpenMillis(long nowMillis) {
+        if (state != State.OPEN) {
+            return 0;
+        }
+        return Math.max(0, openedAtMillis + openDurationMillis - nowMillis);
+    }
+}
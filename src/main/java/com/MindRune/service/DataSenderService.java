@@ -1,190 +1,791 @@
 package com.MindRune.service;
 
 import com.MindRune.MindRuneConfig;
+import com.MindRune.MindRuneConfig.UploadCompression;
+import com.MindRune.MindRuneConfig.UploadFormat;
 import com.MindRune.model.PlayerInfo;
+import com.MindRune.util.BinaryEventWriter;
+import com.MindRune.util.BinaryFormat;
+import com.MindRune.util.CompressingInputStream;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.ChatMessageType;
 import net.runelite.api.Client;
 import net.runelite.client.callback.ClientThread;
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
 import java.net.HttpURLConnection;
-import java.net.URL;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * Service for sending event data to the API
  */
 @Slf4j
 public class DataSenderService {
-    private static final String API_URL = "http://localhost:5575/osrs/create";
-    private static final int SEND_INTERVAL_MS = 60000; // 60 seconds
+    private static final URI API_URI = URI.create("http://localhost:5575/osrs/create");
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final byte[] JSON_FOOTER = {']'};
+    private static final byte[] BINARY_FOOTER = {};
+    private static final int CHECK_INTERVAL_MS = 1000;
+    // Shutdown runs on the UI thread, so it only waits briefly for the final spool
+    private static final long STOP_WAIT_MS = 1000;
+    private static final long RESTART_WAIT_MS = 10_000;
+    private static final int SPOOL_INTERVAL_MS = 5000; // bounds what a crash can lose
+    private static final int SPOOL_BATCH_EVENTS = 500;
+    private static final int HTTP_UNSUPPORTED_MEDIA_TYPE = 415;
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final long MAX_RETRY_AFTER_MS = 60 * 60 * 1000; // ignore anything beyond an hour
+    // Times the server may refuse a segment's content before it is set aside
+    private static final int MAX_SEGMENT_REFUSALS = 5;
 
+    private final URI apiUri;
     private final Client client;
     private final MindRuneConfig config;
     private final ClientThread clientThread;
     private final EventLogService eventLogService;
+    private final EventSpoolService eventSpoolService;
     private final Gson gson = new Gson();
-    private Timer timer;
+    private final RetryPolicy retryPolicy = new RetryPolicy(15_000, 15 * 60 * 1000);
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker(5, 5 * 60 * 1000);
+
+    // Shared so connections are kept alive between batches
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .build();
+
+    private ScheduledExecutorService executor;
+
+    // Sender that was stopped but may still be running its final spool
+    private ScheduledExecutorService stoppingExecutor;
+
+    // Upload batch currently in progress. Retry state below is only written by the
+    // sender thread while this is done, and by the HTTP client's threads while it is not.
+    private volatile CompletableFuture<Void> inFlight = CompletableFuture.completedFuture(null);
+
+    // Earliest time the next upload may start, pushed back after failures
+    private volatile long nextSendMillis;
+
+    // Set once the server rejects a compressed upload, so we stop offering it this session
+    private volatile boolean compressionRejected;
+
+    // Set once the server rejects a binary upload, so we spool and send JSON for the rest of the session
+    private volatile boolean binaryRejected;
 
     public DataSenderService(
             Client client,
             MindRuneConfig config,
             ClientThread clientThread,
-            EventLogService eventLogService) {
+            EventLogService eventLogService,
+            EventSpoolService eventSpoolService) {
+        this(API_URI, client, config, clientThread, eventLogService, eventSpoolService);
+    }
+
+    /**
+     * @param apiUri Endpoint events are posted to
+     */
+    DataSenderService(
+            URI apiUri,
+            Client client,
+            MindRuneConfig config,
+            ClientThread clientThread,
+            EventLogService eventLogService,
+            EventSpoolService eventSpoolService) {
+        this.apiUri = apiUri;
         this.client = client;
         this.config = config;
         this.clientThread = clientThread;
         this.eventLogService = eventLogService;
+        this.eventSpoolService = eventSpoolService;
     }
 
     /**
      * Start the periodic data sender
      */
     public void startDataSender() {
-        // Cancel any existing timer
+        // Cancel any existing sender
         stopDataSender();
 
-        // Create and start a new timer
-        timer = new Timer("MindRune-DataSender");
-        timer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                sendEventData();
-            }
-        }, 0, SEND_INTERVAL_MS);
+        // A second sender would be a second consumer of the event log
+        if (!awaitStopped(RESTART_WAIT_MS)) {
+            log.error("Previous data sender is still busy, not starting a new one");
+            return;
+        }
+
+        // Pick up anything a previous session did not get acknowledged
+        eventSpoolService.open();
+        nextSendMillis = 0;
+
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "MindRune-DataSender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::checkFlush, 0, CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        prewarmConnection();
     }
 
     /**
      * Stop the periodic data sender
      */
     public void stopDataSender() {
-        if (timer != null) {
-            timer.cancel();
-            timer = null;
+        ScheduledExecutorService sender = executor;
+        if (sender == null) {
+            return;
+        }
+        executor = null;
+
+        // Persist whatever is still queued so it is sent on the next start. This runs as
+        // the sender's last task, so the event log keeps a single consumer even when the
+        // sender is busy for longer than we are willing to wait. Uploads in flight finish
+        // on the HTTP client's threads and are retried next session if they fail.
+        sender.execute(() -> {
+            spoolEventData();
+            eventSpoolService.close();
+        });
+        sender.shutdown();
+        stoppingExecutor = sender;
+
+        if (!awaitStopped(STOP_WAIT_MS)) {
+            log.warn("Data sender is still busy, queued events are spooled once it finishes");
         }
     }
 
     /**
-     * Send collected event data to the API
+     * Wait for a stopped sender to run its final spool
+     *
+     * @return true if no stopped sender is still running
      */
-    private void sendEventData() {
+    private boolean awaitStopped(long timeoutMillis) {
+        ScheduledExecutorService sender = stoppingExecutor;
+        if (sender == null) {
+            return true;
+        }
+
+        try {
+            if (!sender.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        stoppingExecutor = null;
+        return true;
+    }
+
+    /**
+     * Decide whether queued events should be spooled or uploaded. Runs every second but
+     * returns almost immediately when nothing is queued. Exceptions are caught so a
+     * failure never cancels the periodic check.
+     */
+    private void checkFlush() {
+        try {
+            long now = System.currentTimeMillis();
+
+            // Spool regularly so a crash loses at most a few seconds of events
+            long oldestQueued = eventLogService.getOldestEventMillis();
+            if (eventLogService.getEventCount() >= SPOOL_BATCH_EVENTS
+                    || (oldestQueued != 0 && now - oldestQueued >= SPOOL_INTERVAL_MS)) {
+                spoolEventData();
+            }
+
+            if (inFlight.isDone() && now >= nextSendMillis && isFlushDue(now)) {
+                spoolEventData();
+                sendEventData();
+            }
+        } catch (RuntimeException e) {
+            log.error("Error in data sender", e);
+        }
+    }
+
+    /**
+     * A batch is due when a full segment is waiting, enough events are pending, or the
+     * oldest pending event has reached the maximum age
+     */
+    private boolean isFlushDue(long now) {
+        if (eventSpoolService.hasSealedSegments()) {
+            return true;
+        }
+
+        int pendingEvents = eventSpoolService.getActiveEventCount() + eventLogService.getEventCount();
+        if (pendingEvents == 0) {
+            return false;
+        }
+        if (pendingEvents >= config.maxBatchEvents()) {
+            return true;
+        }
+
+        long oldest = eventSpoolService.getActiveOldestMillis();
+        long oldestQueued = eventLogService.getOldestEventMillis();
+        if (oldest == 0 || (oldestQueued != 0 && oldestQueued < oldest)) {
+            oldest = oldestQueued;
+        }
+        return oldest != 0 && now - oldest >= config.maxBatchAge() * 1000L;
+    }
+
+    /**
+     * Move queued events from the in-memory log to the on-disk spool
+     */
+    private void spoolEventData() {
         if (!eventLogService.hasEvents()) {
             return;
         }
 
-        HttpURLConnection conn = null;
         try {
-            // Get player information
-            PlayerInfo playerInfo = PlayerInfo.fromClient(client);
-            if (playerInfo == null) {
-                log.warn("No local player found, skipping data send.");
-                return;
-            }
+            long oldest = eventLogService.getOldestEventMillis();
+            UploadFormat format = binaryRejected ? UploadFormat.JSON : config.uploadFormat();
+            eventSpoolService.append(eventLogService.getAndClearEvents(), oldest != 0 ? oldest : System.currentTimeMillis(), format);
+        } catch (IOException e) {
+            log.error("Error spooling event data", e);
+        }
+    }
+
+    /**
+     * Send spooled event data to the API. Segments are uploaded on the HTTP client's
+     * threads, so this returns as soon as the first requests are queued. Each segment is
+     * only deleted from the spool once the server has acknowledged it. Segments that
+     * fail stay parked in the spool and the next attempt is pushed back by the retry
+     * policy, a server supplied Retry-After, or the circuit breaker, whichever is longest.
+     * Only a segment whose content the server keeps refusing is ever set aside.
+     */
+    private void sendEventData() {
+        long now = System.currentTimeMillis();
+        if (!circuitBreaker.allowRequest(now)) {
+            nextSendMillis = now + circuitBreaker.remainingOpenMillis(now);
+            return;
+        }
+
+        try {
+            eventSpoolService.seal();
+        } catch (IOException e) {
+            log.error("Error sealing spool segment", e);
+            return;
+        }
 
-            // Prepare payload
-            List<JsonObject> finalPayload = new ArrayList<>();
-            finalPayload.add(playerInfo.toJson());
-            finalPayload.addAll(eventLogService.getAndClearEvents());
+        List<File> segments = eventSpoolService.getSealedSegments();
+        if (segments.isEmpty()) {
+            return;
+        }
 
-            // Convert to JSON
-            String jsonPayload = gson.toJson(finalPayload);
+        // Get player information
+        PlayerInfo playerInfo = PlayerInfo.fromClient(client);
+        if (playerInfo == null) {
+            log.warn("No local player found, skipping data send.");
+            nextSendMillis = now + config.maxBatchAge() * 1000L;
+            return;
+        }
 
-            // Set up connection
-            conn = (HttpURLConnection) new URL(API_URL).openConnection();
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json");
+        UploadBatch batch = new UploadBatch(playerInfo, segments, config.maxInFlightUploads(), circuitBreaker.isHalfOpen());
+        inFlight = batch.done;
+        batch.start();
+    }
 
-            // Add authorization if available
-            String registrationKey = config.registrationKey();
-            if (registrationKey != null && !registrationKey.isEmpty()) {
-                conn.setRequestProperty("Authorization", "Bearer " + registrationKey);
-            } else {
-                log.warn("No registration key found. Request may be unauthorized.");
+    /**
+     * Upload one segment, falling back to uncompressed and then JSON if the server
+     * rejects the encoding
+     */
+    private CompletableFuture<UploadResult> uploadSegment(PlayerInfo playerInfo, File segment) {
+        UploadCompression compression = compressionRejected ? UploadCompression.NONE : config.uploadCompression();
+        boolean binary = !binaryRejected && EventSpoolService.isBinary(segment);
+        return upload(playerInfo, segment, compression, binary)
+                .thenCompose(result -> {
+                    if (result.formatRejected) {
+                        // Server does not understand the encoding, send the same batch again with the fallback
+                        return uploadSegment(playerInfo, segment);
+                    }
+                    return CompletableFuture.completedFuture(result);
+                });
+    }
+
+    /**
+     * Settle the retry state once every upload of a batch has finished
+     *
+     * @param saved true if at least one segment was accepted
+     * @param responded true if the server handled at least one segment, accepted or refused
+     * @param refused Segments whose content the server refused, kept for another try
+     * @param failed Segments that failed for any other reason and stay in the spool
+     */
+    private void finishBatch(boolean saved, boolean responded, List<File> refused, List<File> failed, long retryAfterMillis) {
+        if (!failed.isEmpty()) {
+            // Timeouts, connection errors, 5xx and 429 are no fault of the segments, so
+            // they are only backed off and retried
+            scheduleRetry(retryAfterMillis);
+        } else if (responded) {
+            circuitBreaker.recordSuccess();
+            if (!refused.isEmpty()) {
+                nextSendMillis = System.currentTimeMillis() + retryPolicy.nextDelayMillis(1);
+                log.info("{} segments were refused, retrying them later", refused.size());
             }
+        }
 
-            conn.setDoOutput(true);
+        if (saved) {
+            notifySaved();
+        }
+    }
 
-            // Send data
-            try (OutputStream os = conn.getOutputStream()) {
-                byte[] input = jsonPayload.getBytes(StandardCharsets.UTF_8);
-                os.write(input, 0, input.length);
+    /**
+     * Count a refusal of a segment's content, setting the segment aside once the server
+     * has refused it too often to be a passing problem
+     *
+     * @return true if the segment was set aside
+     */
+    private boolean refuseSegment(File segment) {
+        if (eventSpoolService.recordRefusal(segment) < MAX_SEGMENT_REFUSALS) {
+            eventSpoolService.endUpload(segment);
+            return false;
+        }
+        log.warn("Setting aside {}: the server refused it as invalid {} times", segment.getName(), MAX_SEGMENT_REFUSALS);
+        eventSpoolService.reject(segment);
+        return true;
+    }
+
+    /**
+     * Record a failed upload and push back the next attempt
+     *
+     * @param retryAfterMillis Delay requested by the server, or 0
+     */
+    private void scheduleRetry(long retryAfterMillis) {
+        long now = System.currentTimeMillis();
+        circuitBreaker.recordFailure(now);
+
+        long delay = retryPolicy.nextDelayMillis(circuitBreaker.getConsecutiveFailures());
+        delay = Math.max(delay, retryAfterMillis);
+        delay = Math.max(delay, circuitBreaker.remainingOpenMillis(now));
+        nextSendMillis = now + delay;
+
+        log.info("Upload failed, retrying in {} s", delay / 1000);
+    }
+
+    /**
+     * Open a connection to the API ahead of the first upload, so the first batch does
+     * not pay for the TCP handshake and protocol negotiation
+     */
+    private void prewarmConnection() {
+        HttpRequest request = HttpRequest.newBuilder(apiUri)
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .timeout(CONNECT_TIMEOUT)
+                .build();
+
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    if (error != null) {
+                        log.debug("Could not prewarm connection to {}: {}", apiUri, error.getMessage());
+                    } else {
+                        log.debug("Prewarmed {} connection to {}", response.version(), apiUri);
+                    }
+                });
+    }
+
+    /**
+     * Post one spooled segment to the API
+     *
+     * @return Outcome of the request, completed on the HTTP client's threads
+     */
+    private CompletableFuture<UploadResult> upload(PlayerInfo playerInfo, File segment, UploadCompression compression, boolean binary) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(apiUri)
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", binary ? BinaryFormat.CONTENT_TYPE : "application/json");
+        if (compression != UploadCompression.NONE) {
+            request.header("Content-Encoding", compression == UploadCompression.GZIP ? "gzip" : "deflate");
+        }
+
+        // Add authorization if available
+        String registrationKey = config.registrationKey();
+        if (registrationKey != null && !registrationKey.isEmpty()) {
+            request.header("Authorization", "Bearer " + registrationKey);
+        } else {
+            log.warn("No registration key found. Request may be unauthorized.");
+        }
+
+        long startNanos = System.nanoTime();
+        try {
+            request.POST(bodyPublisher(playerInfo, segment, compression, binary));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Posted {} ({}, {}) over {} in {} ms, response code {}",
+                                segment.getName(), binary ? "binary" : "JSON", compression, response.version(),
+                                (System.nanoTime() - startNanos) / 1_000_000, response.statusCode());
+                    }
+                    return processResponse(response, compression, binary);
+                });
+    }
+
+    /**
+     * Turn an API response into an upload outcome
+     */
+    private UploadResult processResponse(HttpResponse<String> response, UploadCompression compression, boolean binary) {
+        int responseCode = response.statusCode();
+        if (responseCode == 200) {
+            processSuccessResponse(response.body());
+            return new UploadResult(true, 0, false, false);
+        }
+
+        // Drop one encoding at a time, so a server that only lacks compression still gets binary
+        boolean formatRejected = false;
+        if (compression != UploadCompression.NONE
+                && (responseCode == HTTP_UNSUPPORTED_MEDIA_TYPE || responseCode == HttpURLConnection.HTTP_BAD_REQUEST)) {
+            log.warn("Server rejected {} upload (response code {}), disabling compression", compression, responseCode);
+            compressionRejected = true;
+            formatRejected = true;
+        } else if (binary && responseCode == HTTP_UNSUPPORTED_MEDIA_TYPE) {
+            log.warn("Server does not accept binary uploads, falling back to JSON");
+            binaryRejected = true;
+            formatRejected = true;
+        }
+
+        long retryAfterMillis = 0;
+        if (responseCode == HTTP_TOO_MANY_REQUESTS || responseCode == HttpURLConnection.HTTP_UNAVAILABLE) {
+            retryAfterMillis = parseRetryAfter(response.headers().firstValue("Retry-After").orElse(null));
+        }
+
+        processErrorResponse(response.body(), responseCode);
+        return new UploadResult(false, retryAfterMillis, formatRejected, !formatRejected && isContentRefusal(responseCode));
+    }
+
+    /**
+     * A client error about the payload itself, sending the same segment again is unlikely
+     * to succeed. Authentication, missing endpoints, timeouts and rate limits are not the
+     * segment's fault.
+     */
+    private static boolean isContentRefusal(int responseCode) {
+        return responseCode >= 400 && responseCode < 500
+                && responseCode != HttpURLConnection.HTTP_UNAUTHORIZED
+                && responseCode != HttpURLConnection.HTTP_FORBIDDEN
+                && responseCode != HttpURLConnection.HTTP_NOT_FOUND
+                && responseCode != HttpURLConnection.HTTP_CLIENT_TIMEOUT
+                && responseCode != HTTP_TOO_MANY_REQUESTS;
+    }
+
+    /**
+     * Build the request body for a segment. The body is produced as the HTTP client reads
+     * it: records are streamed from the spool file, converted to JSON one at a time when
+     * the server does not accept binary, and compressed on the fly, so only a buffer of
+     * the body is held in memory at once. A segment sent unchanged and uncompressed has a
+     * known length, any other body is sent without one.
+     */
+    private HttpRequest.BodyPublisher bodyPublisher(PlayerInfo playerInfo, File segment,
+            UploadCompression compression, boolean binary) throws IOException {
+        byte[] header = binary ? binaryPayloadHeader(playerInfo) : jsonPayloadHeader(playerInfo);
+        byte[] footer = binary ? BINARY_FOOTER : JSON_FOOTER;
+        boolean transcode = !binary && EventSpoolService.isBinary(segment);
+
+        // Called again if the request has to be resent, so each call opens the segment afresh
+        Supplier<InputStream> body = () -> {
+            try {
+                InputStream records = transcode
+                        ? eventSpoolService.openSegmentAsJson(segment)
+                        : eventSpoolService.openSegment(segment);
+                return wrapCompression(new SequenceInputStream(Collections.enumeration(Arrays.asList(
+                        new ByteArrayInputStream(header),
+                        records,
+                        new ByteArrayInputStream(footer)))), compression);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
+        };
 
-            // Process response
-            int responseCode = conn.getResponseCode();
-            if (responseCode == 200) {
-                processSuccessResponse(conn.getInputStream());
-            } else {
-                processErrorResponse(conn.getErrorStream(), responseCode);
+        if (compression == UploadCompression.NONE && !transcode) {
+            long length = header.length + segment.length() + footer.length;
+            return HttpRequest.BodyPublishers.fromPublisher(HttpRequest.BodyPublishers.ofInputStream(body), length);
+        }
+        return HttpRequest.BodyPublishers.ofInputStream(body);
+    }
+
+    /**
+     * Parse a Retry-After header, given either in seconds or as an HTTP date
+     *
+     * @return Requested delay in milliseconds, or 0 if absent or invalid
+     */
+    private static long parseRetryAfter(String value) {
+        if (value == null || value.isEmpty()) {
+            return 0;
+        }
+
+        long millis;
+        try {
+            millis = Long.parseLong(value.trim()) * 1000;
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime date = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                millis = Duration.between(ZonedDateTime.now(date.getZone()), date).toMillis();
+            } catch (DateTimeParseException e2) {
+                log.debug("Ignoring malformed Retry-After header: {}", value);
+                return 0;
             }
-        } catch (Exception e) {
-            log.error("Error sending event data", e);
         }
+        return Math.max(0, Math.min(millis, MAX_RETRY_AFTER_MS));
+    }
+
+    /**
+     * Wrap a stream in the compressor for the chosen encoding. Reading the returned stream
+     * compresses the data as it goes, and closing it closes the underlying stream.
+     */
+    private static InputStream wrapCompression(InputStream in, UploadCompression compression) {
+        switch (compression) {
+            case GZIP:
+                return CompressingInputStream.gzip(in);
+            case DEFLATE:
+                return CompressingInputStream.deflate(in);
+            default:
+                return in;
+        }
+    }
+
+    /**
+     * The JSON payload is an array of the player information followed by every event in
+     * the segment. Spooled records each start with their own separator, so the segment
+     * sits between this header and the closing bracket unchanged.
+     */
+    private static byte[] jsonPayloadHeader(PlayerInfo playerInfo) throws IOException {
+        ByteArrayOutputStream header = new ByteArrayOutputStream(256);
+        header.write('[');
+        JsonWriter writer = new JsonWriter(new OutputStreamWriter(header, StandardCharsets.UTF_8));
+        playerInfo.writeJson(writer);
+        writer.flush();
+        return header.toByteArray();
+    }
+
+    /**
+     * The binary payload is the player information value followed by the segment, which
+     * carries its own header
+     */
+    private static byte[] binaryPayloadHeader(PlayerInfo playerInfo) throws IOException {
+        ByteArrayOutputStream header = new ByteArrayOutputStream(64);
+        playerInfo.writeJson(new BinaryEventWriter(header));
+        return header.toByteArray();
     }
 
     /**
      * Process successful API response
      */
-    private void processSuccessResponse(InputStream inputStream) {
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+    private void processSuccessResponse(String response) {
+        // Parse response for points
+        int points = 0;
+        try {
+            JsonObject responseJson = gson.fromJson(response, JsonObject.class);
+        } catch (Exception e) {
+            log.warn("Could not parse points from response", e);
+        }
+    }
+
+    /**
+     * @return true while an upload batch is in progress
+     */
+    boolean isUploading() {
+        return !inFlight.isDone();
+    }
+
+    /**
+     * One pass over the sealed segments. Up to the configured number of segments are
+     * uploaded at once and each is acknowledged on its own, so a segment the server
+     * refuses does not hold back the others. New uploads stop being started once the
+     * server asks us to back off, or once uploads fail without any being accepted.
+     * While the circuit breaker is half-open only the probe is in flight, the rest follow
+     * once it has been accepted.
+     */
+    private final class UploadBatch {
+        private final PlayerInfo playerInfo;
+        private final Deque<File> pending;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private final int maxInFlight;
+
+        private boolean probing;
+        private final List<File> refused = new ArrayList<>();
+        private final List<File> failed = new ArrayList<>();
 
-            StringBuilder responseStr = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                responseStr.append(line);
+        private int active;
+        private boolean saved;
+        private boolean responded;
+        private long retryAfterMillis;
+        private boolean finished;
+
+        private UploadBatch(PlayerInfo playerInfo, List<File> segments, int maxInFlight, boolean probing) {
+            this.playerInfo = playerInfo;
+            this.pending = new ArrayDeque<>(segments);
+            this.maxInFlight = maxInFlight;
+            this.probing = probing;
+        }
+
+        private void start() {
+            fill();
+            finishIfIdle();
+        }
+
+        /**
+         * Start uploads until the in-flight limit is reached
+         */
+        private void fill() {
+            while (uploadNext()) {
+                // keep going
             }
+        }
 
-            // Parse response for points
-            int points = 0;
-            try {
-                JsonObject responseJson = gson.fromJson(responseStr.toString(), JsonObject.class);
-            } catch (Exception e) {
-                log.warn("Could not parse points from response", e);
+        /**
+         * @return true if another upload was started
+         */
+        private boolean uploadNext() {
+            File segment;
+            synchronized (this) {
+                segment = canContinue() && active < (probing ? 1 : maxInFlight) ? pending.poll() : null;
+                if (segment == null) {
+                    return false;
+                }
+                active++;
             }
 
-            // Show notification if enabled
-            if (config.enableChatNotifications()) {
-                clientThread.invokeLater(() -> {
-                    client.addChatMessage(
-                            ChatMessageType.GAMEMESSAGE,
-                            "",
-                            "New MindRune data has been saved!",
-                            null
-                    );
-                });
+            if (!eventSpoolService.beginUpload(segment)) {
+                // Dropped from the backlog since the batch was put together
+                synchronized (this) {
+                    active--;
+                }
+                return true;
             }
-        } catch (Exception e) {
-            log.error("Error processing API response", e);
+            uploadSegment(playerInfo, segment)
+                    .whenComplete((result, error) -> onUploaded(segment, result, error));
+            return true;
+        }
+
+        private void onUploaded(File segment, UploadResult result, Throwable error) {
+            boolean accepted = error == null && result.isAccepted();
+            boolean refusedContent = error == null && result.refused;
+            boolean setAside = false;
+            if (error != null) {
+                log.error("Error sending {}", segment.getName(), error);
+            }
+            if (accepted) {
+                eventSpoolService.acknowledge(segment);
+            } else if (refusedContent) {
+                setAside = refuseSegment(segment);
+            } else {
+                eventSpoolService.endUpload(segment);
+            }
+
+            if (accepted && probing) {
+                // The probe got through, close the circuit before widening to the full limit
+                circuitBreaker.recordSuccess();
+            }
+
+            synchronized (this) {
+                active--;
+                if (accepted || refusedContent) {
+                    responded = true;
+                    saved |= accepted;
+                    probing = false;
+                    if (refusedContent && !setAside) {
+                        refused.add(segment);
+                    }
+                } else {
+                    // The segment stays in the spool for the next pass
+                    failed.add(segment);
+                    if (result != null) {
+                        retryAfterMillis = Math.max(retryAfterMillis, result.retryAfterMillis);
+                    }
+                }
+            }
+
+            fill();
+            finishIfIdle();
+        }
+
+        /**
+         * Settle the pass once nothing is in flight. Called by the thread that starts the
+         * batch and after every upload, since either may be the last to let go of a
+         * segment, and only the first caller to find the batch idle settles it.
+         */
+        private void finishIfIdle() {
+            synchronized (this) {
+                if (active > 0 || finished) {
+                    return;
+                }
+                finished = true;
+            }
+            finishBatch(saved, responded, refused, failed, retryAfterMillis);
+            done.complete(null);
+        }
+
+        private boolean canContinue() {
+            return retryAfterMillis == 0 && (failed.isEmpty() || responded);
         }
     }
 
     /**
-     * Process error API response
+     * Outcome of a single upload request
      */
-    private void processErrorResponse(InputStream errorStream, int responseCode) {
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(errorStream, StandardCharsets.UTF_8))) {
+    private static final class UploadResult {
+        private final boolean accepted;
+        private final long retryAfterMillis;
+        // The server refused the encoding and a fallback is now in effect
+        private final boolean formatRejected;
+        // The server refused the segment's content, as opposed to failing to handle it
+        private final boolean refused;
 
-            StringBuilder errorResponse = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                errorResponse.append(line);
-            }
+        private UploadResult(boolean accepted, long retryAfterMillis, boolean formatRejected, boolean refused) {
+            this.accepted = accepted;
+            this.retryAfterMillis = retryAfterMillis;
+            this.formatRejected = formatRejected;
+            this.refused = refused;
+        }
 
-            log.warn("Failed to send data, response code: {}, error: {}",
-                    responseCode, errorResponse.toString());
-        } catch (Exception e) {
-            log.error("Failed to read error response", e);
+        private boolean isAccepted() {
+            return accepted;
+        }
+    }
+
+    /**
+     * Let the player know their data was saved
+     */
+    private void notifySaved() {
+        // Show notification if enabled
+        if (config.enableChatNotifications()) {
+            clientThread.invokeLater(() -> {
+                client.addChatMessage(
+                        ChatMessageType.GAMEMESSAGE,
+                        "",
+                        "New MindRune data has been saved!",
+                        null
+                );
+            });
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Process error API response
+     */
+    private void processErrorResponse(String errorResponse, int responseCode) {
+        log.warn("Failed to send data, response code: {}, error: {}", responseCode, errorResponse);
+    }
+}
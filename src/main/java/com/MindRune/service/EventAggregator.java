@@ -0,0 +1,222 @@
+package com.MindRune.service;
+
+import com.MindRune.MindRuneConfig;
+import com.MindRune.model.HitSplatDetails;
+import com.MindRune.model.XpGainDetails;
+import net.runelite.api.Client;
+import net.runelite.api.Skill;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Rolls up XP drops and hitsplats before they reach the {@link EventLogService}.
+ *
+ * While {@link MindRuneConfig#aggregateEvents()} is on, XP drops are summed per skill and
+ * hitsplats per direction, opponent and hitsplat type, and each window is logged as one
+ * XP_GAIN or HIT_SPLAT event with its count, minimum and maximum once it is
+ * {@link MindRuneConfig#aggregationWindow()} ticks old. A level up ends the skill's window,
+ * and hitting or being hit by a different opponent ends the windows for the old one. A
+ * window holding a single drop or hitsplat is logged exactly as it would be without
+ * aggregation. Aggregated events carry the player's state at the time they are logged.
+ *
+ * While aggregation is off every drop and hitsplat is logged straight away.
+ *
+ * Not thread safe, all calls must come from the client thread.
+ */
+public class EventAggregator {
+    private static final String EVENT_XP_GAIN = "XP_GAIN";
+    private static final String EVENT_HIT_SPLAT = "HIT_SPLAT";
+
+    private final Client client;
+    private final EventLogService eventLogService;
+    private final MindRuneConfig config;
+
+    // One window per skill, indexed by ordinal and reused
+    private final XpWindow[] xpWindows;
+    private final List<HitWindow> hitWindows = new ArrayList<>();
+
+    // Game ticks seen by onTick, used to age windows
+    private int tick;
+
+    public EventAggregator(Client client, EventLogService eventLogService, MindRuneConfig config) {
+        this.client = client;
+        this.eventLogService = eventLogService;
+        this.config = config;
+
+        Skill[] skills = Skill.values();
+        xpWindows = new XpWindow[skills.length];
+        for (Skill skill : skills) {
+            xpWindows[skill.ordinal()] = new XpWindow(skill);
+        }
+    }
+
+    /**
+     * Log an XP drop, or add it to the skill's window
+     *
+     * @param totalXp XP in the skill after the drop
+     * @param xpGained Size of the drop
+     * @param level Level after the drop
+     */
+    public void addXp(Skill skill, int totalXp, int xpGained, int level) {
+        if (!config.aggregateEvents()) {
+            eventLogService.logEvent(EVENT_XP_GAIN, client, new XpGainDetails(skill, totalXp, xpGained, level));
+            return;
+        }
+
+        XpWindow window = xpWindows[skill.ordinal()];
+        if (window.count > 0 && window.level != level) {
+            flush(window);
+        }
+        window.add(totalXp, xpGained, level, tick);
+    }
+
+    /**
+     * Log a hitsplat, or add it to the window for its opponent and type
+     *
+     * @param outgoing true if the player dealt the hit, false if the player received it
+     * @param opponent Name of the other actor with markup stripped, or null if unknown
+     */
+    public void addHit(boolean outgoing, String opponent, int damage, int type) {
+        if (!config.aggregateEvents()) {
+            eventLogService.logEvent(EVENT_HIT_SPLAT, client, new HitSplatDetails(outgoing, opponent, damage, type));
+            return;
+        }
+
+        HitWindow match = null;
+        for (int i = hitWindows.size() - 1; i >= 0; i--) {
+            HitWindow window = hitWindows.get(i);
+            if (window.outgoing != outgoing) {
+                continue;
+            }
+            if (!Objects.equals(window.opponent, opponent)) {
+                // Target changed, the old opponent's windows are complete
+                flush(window);
+                hitWindows.remove(i);
+            } else if (window.type == type) {
+                match = window;
+            }
+        }
+
+        if (match == null) {
+            match = new HitWindow(outgoing, opponent, type, tick);
+            hitWindows.add(match);
+        }
+        match.add(damage);
+    }
+
+    /**
+     * Advance by one game tick and log the windows that have reached the configured length
+     */
+    public void onTick() {
+        tick++;
+
+        if (!config.aggregateEvents()) {
+            // Aggregation was just turned off, don't hold on to what was collected
+            flushAll();
+            return;
+        }
+
+        int length = config.aggregationWindow();
+        for (XpWindow window : xpWindows) {
+            if (window.count > 0 && tick - window.startTick >= length) {
+                flush(window);
+            }
+        }
+        for (int i = 0; i < hitWindows.size(); i++) {
+            HitWindow window = hitWindows.get(i);
+            if (tick - window.startTick >= length) {
+                flush(window);
+                hitWindows.remove(i--);
+            }
+        }
+    }
+
+    /**
+     * Log every open window, such as before logging out or shutting down
+     */
+    public void flushAll() {
+        for (XpWindow window : xpWindows) {
+            if (window.count > 0) {
+                flush(window);
+            }
+        }
+        for (HitWindow window : hitWindows) {
+            flush(window);
+        }
+        hitWindows.clear();
+    }
+
+    private void flush(XpWindow window) {
+        XpGainDetails details = window.count == 1
+                ? new XpGainDetails(window.skill, window.totalXp, window.sum, window.level)
+                : new XpGainDetails(window.skill, window.totalXp, window.sum, window.level,
+                        window.count, window.min, window.max, tick - window.startTick);
+        eventLogService.logEvent(EVENT_XP_GAIN, client, details);
+        window.count = 0;
+    }
+
+    private void flush(HitWindow window) {
+        HitSplatDetails details = window.count == 1
+                ? new HitSplatDetails(window.outgoing, window.opponent, window.sum, window.type)
+                : new HitSplatDetails(window.outgoing, window.opponent, window.sum, window.type,
+                        window.count, window.min, window.max, tick - window.startTick);
+        eventLogService.logEvent(EVENT_HIT_SPLAT, client, details);
+    }
+
+    private static final class XpWindow {
+        private final Skill skill;
+        private int startTick;
+        private int count;
+        private int sum;
+        private int min;
+        private int max;
+        private int totalXp;
+        private int level;
+
+        private XpWindow(Skill skill) {
+            this.skill = skill;
+        }
+
+        private void add(int totalXp, int xpGained, int level, int tick) {
+            if (count == 0) {
+                startTick = tick;
+                sum = 0;
+                min = Integer.MAX_VALUE;
+                max = Integer.MIN_VALUE;
+            }
+            count++;
+            sum += xpGained;
+            min = Math.min(min, xpGained);
+            max = Math.max(max, xpGained);
+            this.totalXp = totalXp;
+            this.level = level;
+        }
+    }
+
+    private static final class HitWindow {
+        private final boolean outgoing;
+        private final String opponent;
+        private final int type;
+        private final int startTick;
+        private int count;
+        private int sum;
+        private int min = Integer.MAX_VALUE;
+        private int max = Integer.MIN_VALUE;
+
+        private HitWindow(boolean outgoing, String opponent, int type, int startTick) {
+            this.outgoing = outgoing;
+            this.opponent = opponent;
+            this.type = type;
+            this.startTick = startTick;
+        }
+
+        private void add(int damage) {
+            count++;
+            sum += damage;
+            min = Math.min(min, damage);
+            max = Math.max(max, damage);
+        }
+    }
+}
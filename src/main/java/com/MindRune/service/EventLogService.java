@@ -1,19 +1,124 @@
 package com.MindRune.service;
 
+import com.MindRune.model.EventDetails;
 import com.MindRune.model.GameEvent;
+import com.MindRune.model.JsonDetails;
+import com.MindRune.model.TickContext;
+import com.MindRune.util.EventRingBuffer;
 import com.google.gson.JsonObject;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.Client;
-import net.runelite.api.Player;
 
 /**
- * Service for logging game events
+ * Service for logging game events.
+ *
+ * Logging only captures the event and queues it, which is all the client thread pays
+ * for. A worker thread takes events from that queue, passes them through the
+ * {@link EventStage}s in order and queues the survivors for the sender. The time spent
+ * in each stage is reported at debug level every minute and when the pipeline stops.
  */
+@Slf4j
 public class EventLogService {
-    // Using CopyOnWriteArrayList for thread safety
-    private final List<JsonObject> eventLog = new CopyOnWriteArrayList<>();
+    // Enough headroom for several minutes of heavy combat between sends
+    private static final int EVENT_BUFFER_CAPACITY = 16384;
+    // Only has to cover the gap between two pipeline passes
+    private static final int INTAKE_CAPACITY = 4096;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    private static final long REPORT_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+    // Stopping runs on the UI thread, so it only waits briefly
+    private static final long STOP_TIMEOUT_MS = 1000;
+    private static final long RESTART_TIMEOUT_MS = 10_000;
+
+    // Events captured on the client thread, waiting for the pipeline
+    private final EventRingBuffer<GameEvent> intake = new EventRingBuffer<>(INTAKE_CAPACITY);
+
+    // Lock-free ring so the pipeline never copies the backlog
+    private final EventRingBuffer<GameEvent> eventLog = new EventRingBuffer<>(EVENT_BUFFER_CAPACITY);
+
+    // Time the oldest queued event was logged, or 0 when nothing has been logged since the last drain
+    private final AtomicLong oldestEventMillis = new AtomicLong();
+
+    // Context of the tick events are being logged in, shared by all of the tick's events
+    private volatile TickContext tickContext;
+
+    private final EventStage[] stages;
+
+    // Time spent per stage since the last report, with the sink in the last slot.
+    // Only touched by the worker thread.
+    private final long[] stageNanos;
+    private long processedEvents;
+
+    private volatile boolean running;
+    // Current worker, or a stopped one that has not exited yet
+    private Thread worker;
+
+    /**
+     * @param stages Stages every event passes through before it is queued for the sender
+     */
+    public EventLogService(List<EventStage> stages) {
+        this.stages = stages.toArray(new EventStage[0]);
+        this.stageNanos = new long[this.stages.length + 1];
+    }
+
+    /**
+     * Start the pipeline's worker thread
+     */
+    public synchronized void start() {
+        if (worker != null) {
+            if (running) {
+                return;
+            }
+
+            // A second worker would be a second consumer of the intake ring
+            joinWorker(RESTART_TIMEOUT_MS);
+            if (worker != null) {
+                log.error("Previous event pipeline worker is still running, not starting a new one");
+                return;
+            }
+        }
+
+        running = true;
+        worker = new Thread(this::runPipeline, "MindRune-EventPipeline");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Stop the worker thread once everything logged so far has been through the
+     * pipeline. Events logged after this stay queued until the next start.
+     */
+    public synchronized void stop() {
+        if (worker == null) {
+            return;
+        }
+
+        running = false;
+        LockSupport.unpark(worker);
+        joinWorker(STOP_TIMEOUT_MS);
+        if (worker != null) {
+            log.warn("Event pipeline did not stop in time, it finishes in the background");
+        }
+    }
+
+    /**
+     * Wait for a stopped worker to exit, forgetting it once it has
+     */
+    private void joinWorker(long timeoutMillis) {
+        try {
+            worker.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!worker.isAlive()) {
+            worker = null;
+        }
+    }
 
     /**
      * Log a game event
@@ -23,19 +128,156 @@ public class EventLogService {
      * @param details Additional event details
      */
     public void logEvent(String eventType, Client client, JsonObject details) {
-        Player player = client.getLocalPlayer();
-        GameEvent event = GameEvent.create(eventType, player, details);
-        eventLog.add(event.toJson());
+        logEvent(eventType, client, new JsonDetails(details));
     }
 
     /**
-     * Get all logged events and clear the log
+     * Log a game event with typed details. The details are only serialized once the
+     * event is sent.
      *
-     * @return List of event JSONs
+     * @param eventType The type of event
+     * @param client The RuneLite client
+     * @param details Typed event details
+     */
+    public void logEvent(String eventType, Client client, EventDetails details) {
+        if (!intake.offer(GameEvent.create(eventType, currentTickContext(client), details))) {
+            if (intake.getDroppedCount() % 1000 == 1) {
+                log.warn("Event pipeline is falling behind, {} events dropped so far", intake.getDroppedCount());
+            }
+        }
+    }
+
+    /**
+     * Capture the context of a new game tick, so the tick's events don't each look up
+     * the player's location. Events logged before the game tick event in the same tick
+     * capture it themselves.
      */
-    public List<JsonObject> getAndClearEvents() {
-        List<JsonObject> events = new ArrayList<>(eventLog);
-        eventLog.clear();
+    public void beginTick(Client client) {
+        currentTickContext(client);
+    }
+
+    /**
+     * Forget the captured context, for when the player can move without a tick passing,
+     * such as while a new map loads
+     */
+    public void resetTickContext() {
+        tickContext = null;
+    }
+
+    private TickContext currentTickContext(Client client) {
+        TickContext context = tickContext;
+        if (context == null || context.getTick() != client.getTickCount()) {
+            context = TickContext.capture(client);
+            tickContext = context;
+        }
+        return context;
+    }
+
+    private void runPipeline() {
+        long nextReport = System.nanoTime() + REPORT_INTERVAL_NANOS;
+        while (true) {
+            // Read before draining, so everything logged before stop() is processed
+            boolean stopping = !running;
+
+            boolean idle = true;
+            GameEvent event;
+            for (int i = 0; i < INTAKE_CAPACITY && (event = intake.poll()) != null; i++) {
+                process(event, 0);
+                idle = false;
+            }
+
+            if (stopping) {
+                break;
+            }
+            if (System.nanoTime() >= nextReport) {
+                reportTimings();
+                nextReport = System.nanoTime() + REPORT_INTERVAL_NANOS;
+            }
+            if (idle) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+
+        for (int i = 0; i < stages.length; i++) {
+            try {
+                for (GameEvent held : stages[i].flush()) {
+                    process(held, i + 1);
+                }
+            } catch (RuntimeException e) {
+                log.error("Error flushing event pipeline stage {}", stages[i].getName(), e);
+            }
+        }
+        reportTimings();
+    }
+
+    private void process(GameEvent event, int firstStage) {
+        processedEvents++;
+        long start = System.nanoTime();
+        for (int i = firstStage; i < stages.length; i++) {
+            try {
+                event = stages[i].process(event);
+            } catch (RuntimeException e) {
+                log.error("Error in event pipeline stage {}, dropping {} event", stages[i].getName(), event.getEventType(), e);
+                event = null;
+            }
+
+            long end = System.nanoTime();
+            stageNanos[i] += end - start;
+            start = end;
+            if (event == null) {
+                return;
+            }
+        }
+
+        sink(event);
+        stageNanos[stages.length] += System.nanoTime() - start;
+    }
+
+    private void sink(GameEvent event) {
+        if (!eventLog.offer(event)) {
+            if (eventLog.getDroppedCount() % 1000 == 1) {
+                log.warn("Event buffer full, {} events dropped so far", eventLog.getDroppedCount());
+            }
+            return;
+        }
+
+        if (oldestEventMillis.get() == 0) {
+            oldestEventMillis.compareAndSet(0, System.currentTimeMillis());
+        }
+    }
+
+    private void reportTimings() {
+        if (processedEvents == 0) {
+            return;
+        }
+
+        if (log.isDebugEnabled()) {
+            StringBuilder timings = new StringBuilder();
+            for (int i = 0; i <= stages.length; i++) {
+                timings.append(i < stages.length ? stages[i].getName() : "sink")
+                        .append(' ')
+                        .append(stageNanos[i] / processedEvents)
+                        .append(" ns/event, ");
+            }
+            timings.setLength(timings.length() - 2);
+            log.debug("Event pipeline processed {} events: {}", processedEvents, timings);
+        }
+
+        processedEvents = 0;
+        Arrays.fill(stageNanos, 0);
+    }
+
+    /**
+     * Get all logged events and clear the log. Events logged while the drain is in
+     * progress stay queued for the next call. Must only be called from the sender thread.
+     *
+     * @return List of events
+     */
+    public List<GameEvent> getAndClearEvents() {
+        // Reset first, so an event logged during the drain can only make the next batch look older
+        oldestEventMillis.set(0);
+        List<GameEvent> events = new ArrayList<>(eventLog.size());
+        eventLog.drainTo(events);
         return events;
     }
 
@@ -47,4 +289,18 @@ public class EventLogService {
     public boolean hasEvents() {
         return !eventLog.isEmpty();
     }
-}
\ No newline at end of file
+
+    /**
+     * @return Approximate number of queued events
+     */
+    public int getEventCount() {
+        return eventLog.size();
+    }
+
+    /**
+     * @return Time the oldest queued event was logged in epoch milliseconds, or 0 if none
+     */
+    public long getOldestEventMillis() {
+        return oldestEventMillis.get();
+    }
+}
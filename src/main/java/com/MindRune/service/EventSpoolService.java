@@ -0,0 +1,488 @@
+package com.MindRune.service;
+
+import com.MindRune.MindRuneConfig.UploadFormat;
+import com.MindRune.model.GameEvent;
+import com.MindRune.util.BinaryEventReader;
+import com.MindRune.util.BinaryEventWriter;
+import com.MindRune.util.BinaryFormat;
+import com.google.gson.stream.JsonWriter;
+import lombok.extern.slf4j.Slf4j;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Append-only on-disk spool for events that have not been acknowledged by the API.
+ *
+ * Events are appended to the active segment as JSON records, each prefixed with a
+ * comma and terminated by a newline, so a segment can be spliced straight into the
+ * upload array after the player information. Binary segments hold length-prefixed
+ * records as described in {@link BinaryFormat} and are spliced the same way. The file
+ * suffix records the format of a segment. Segments are rotated by size, sealed
+ * before upload and only deleted once the server has acknowledged them. When the backlog
+ * is full the oldest segments are dropped, except those being uploaded. Segments left
+ * over from a previous session are picked up again by {@link #open()}.
+ *
+ * Segments are written from the data sender thread and acknowledged from the HTTP
+ * client's threads. Contention is negligible, so access is simply synchronized.
+ */
+@Slf4j
+public class EventSpoolService {
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String JSON_SUFFIX = ".json";
+    private static final String BINARY_SUFFIX = ".bin";
+    private static final long MAX_SEGMENT_BYTES = 256 * 1024;
+    // Bounds the retry backlog on disk while the API is unavailable
+    private static final int MAX_SEALED_SEGMENTS = 64;
+    // Segments the server refused, kept for inspection but never sent again
+    private static final String REJECTED_DIRECTORY = "rejected";
+    private static final int MAX_REJECTED_SEGMENTS = 8;
+
+    private final File directory;
+    private final Deque<File> sealedSegments = new ArrayDeque<>();
+    // Sealed segments with an upload in flight, which must not be dropped from under it
+    private final Set<File> uploading = new HashSet<>();
+    // Times the server refused the content of a sealed segment, dropped with the segment
+    private final Map<File, Integer> refusals = new HashMap<>();
+    private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream(4096);
+    private final ByteArrayOutputStream recordBody = new ByteArrayOutputStream(256);
+
+    private long nextSegmentId;
+    private File activeSegment;
+    private FileChannel activeChannel;
+    private UploadFormat activeFormat;
+    private long activeBaseMillis;
+    private int activeEventCount;
+    private long activeOldestMillis;
+
+    public EventSpoolService(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Open the spool, queueing any segments left behind by a previous session for replay
+     */
+    public synchronized void open() {
+        close();
+        sealedSegments.clear();
+        uploading.clear();
+        refusals.clear();
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            log.warn("Unable to create spool directory {}", directory);
+            return;
+        }
+
+        File[] existing = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX)
+                && (name.endsWith(JSON_SUFFIX) || name.endsWith(BINARY_SUFFIX)));
+        if (existing == null) {
+            return;
+        }
+
+        // Segment names are zero padded, so name order is write order
+        Arrays.sort(existing);
+        for (File segment : existing) {
+            nextSegmentId = Math.max(nextSegmentId, parseSegmentId(segment) + 1);
+            if (recover(segment)) {
+                sealedSegments.addLast(segment);
+            }
+        }
+
+        trimSealedSegments();
+        if (!sealedSegments.isEmpty()) {
+            log.info("Replaying {} unsent event segments", sealedSegments.size());
+        }
+    }
+
+    /**
+     * Append events to the active segment, rotating it when it grows too large or when
+     * the format changes
+     *
+     * @param events Events to persist
+     * @param oldestMillis Time the oldest of the events was logged
+     * @param format Encoding of the records
+     */
+    public synchronized void append(List<GameEvent> events, long oldestMillis, UploadFormat format) throws IOException {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        if (activeChannel != null && activeFormat != format) {
+            seal();
+        }
+        FileChannel channel = activeChannel(format);
+
+        recordBuffer.reset();
+        if (format == UploadFormat.BINARY) {
+            encodeBinary(events);
+        } else {
+            encodeJson(events);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(recordBuffer.toByteArray());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+        if (activeEventCount == 0 || oldestMillis < activeOldestMillis) {
+            activeOldestMillis = oldestMillis;
+        }
+        activeEventCount += events.size();
+
+        if (channel.size() >= MAX_SEGMENT_BYTES) {
+            seal();
+        }
+    }
+
+    private void encodeJson(List<GameEvent> events) throws IOException {
+        JsonWriter writer = new JsonWriter(new OutputStreamWriter(recordBuffer, StandardCharsets.UTF_8));
+        writer.setLenient(true); // allow several top level values in one writer
+        for (GameEvent event : events) {
+            recordBuffer.write(',');
+            event.writeJson(writer);
+            writer.flush();
+            recordBuffer.write('\n');
+        }
+    }
+
+    private void encodeBinary(List<GameEvent> events) throws IOException {
+        BinaryEventWriter writer = new BinaryEventWriter(recordBody);
+        for (GameEvent event : events) {
+            recordBody.reset();
+            event.writeBinary(writer, activeBaseMillis);
+            BinaryFormat.writeVarint(recordBuffer, recordBody.size());
+            recordBody.writeTo(recordBuffer);
+        }
+    }
+
+    /**
+     * Close the active segment so it becomes eligible for upload
+     */
+    public synchronized void seal() throws IOException {
+        if (activeChannel == null) {
+            return;
+        }
+
+        activeChannel.close();
+        activeChannel = null;
+        if (activeEventCount > 0) {
+            sealedSegments.addLast(activeSegment);
+            trimSealedSegments();
+        } else {
+            Files.deleteIfExists(activeSegment.toPath());
+        }
+        activeSegment = null;
+        activeEventCount = 0;
+    }
+
+    /**
+     * @return Number of events in the active segment
+     */
+    public synchronized int getActiveEventCount() {
+        return activeEventCount;
+    }
+
+    /**
+     * @return Time the oldest event in the active segment was logged, or 0 if it is empty
+     */
+    public synchronized long getActiveOldestMillis() {
+        return activeEventCount > 0 ? activeOldestMillis : 0;
+    }
+
+    /**
+     * @return Sealed segments waiting for upload, oldest first
+     */
+    public synchronized List<File> getSealedSegments() {
+        return new ArrayList<>(sealedSegments);
+    }
+
+    /**
+     * @return true if there is a sealed segment waiting for upload
+     */
+    public synchronized boolean hasSealedSegments() {
+        return !sealedSegments.isEmpty();
+    }
+
+    /**
+     * Mark a segment as being uploaded, so it is not dropped while the backlog is full
+     *
+     * @param segment Sealed segment
+     * @return false if the segment has been dropped since it was listed
+     */
+    public synchronized boolean beginUpload(File segment) {
+        if (!sealedSegments.contains(segment)) {
+            return false;
+        }
+        uploading.add(segment);
+        return true;
+    }
+
+    /**
+     * Return a segment whose upload failed to the backlog
+     *
+     * @param segment Sealed segment
+     */
+    public synchronized void endUpload(File segment) {
+        uploading.remove(segment);
+    }
+
+    /**
+     * Count a refusal of a segment's content by the server
+     *
+     * @param segment Sealed segment
+     * @return Number of times the segment has been refused, or 0 if it has been dropped
+     * from the backlog in the meantime
+     */
+    public synchronized int recordRefusal(File segment) {
+        if (!sealedSegments.contains(segment)) {
+            return 0;
+        }
+        return refusals.merge(segment, 1, Integer::sum);
+    }
+
+    /**
+     * @return Number of segments with a refusal on record
+     */
+    synchronized int getRefusedSegmentCount() {
+        return refusals.size();
+    }
+
+    /**
+     * Open the records of a segment for upload
+     *
+     * @param segment Sealed segment
+     * @return Stream of the records, to follow the first element of the payload array
+     */
+    public InputStream openSegment(File segment) throws IOException {
+        return Files.newInputStream(segment.toPath());
+    }
+
+    /**
+     * Open the records of a segment for upload as JSON, converting binary segments for a
+     * server that does not accept the binary format. The binary records are read in full,
+     * which is bounded by the segment size, and converted as the stream is read.
+     *
+     * @param segment Sealed segment
+     * @return Stream of the records, to follow the first element of the payload array
+     */
+    public InputStream openSegmentAsJson(File segment) throws IOException {
+        if (isBinary(segment)) {
+            return BinaryEventReader.openAsJson(Files.readAllBytes(segment.toPath()));
+        }
+        return openSegment(segment);
+    }
+
+    /**
+     * @return true if the segment holds binary records
+     */
+    public static boolean isBinary(File segment) {
+        return segment.getName().endsWith(BINARY_SUFFIX);
+    }
+
+    /**
+     * Delete a segment after the server has acknowledged it
+     *
+     * @param segment Sealed segment
+     */
+    public synchronized void acknowledge(File segment) {
+        sealedSegments.remove(segment);
+        uploading.remove(segment);
+        refusals.remove(segment);
+        try {
+            Files.deleteIfExists(segment.toPath());
+        } catch (IOException e) {
+            log.warn("Unable to delete acknowledged segment {}", segment, e);
+        }
+    }
+
+    /**
+     * Stop uploading a segment the server will not accept. It is moved aside rather than
+     * deleted, and only the most recent few are kept.
+     *
+     * @param segment Sealed segment
+     */
+    public synchronized void reject(File segment) {
+        sealedSegments.remove(segment);
+        uploading.remove(segment);
+        refusals.remove(segment);
+
+        File rejected = new File(directory, REJECTED_DIRECTORY);
+        try {
+            Files.createDirectories(rejected.toPath());
+            Files.move(segment.toPath(), new File(rejected, segment.getName()).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.warn("Unable to move rejected segment {} aside, deleting it", segment, e);
+            try {
+                Files.deleteIfExists(segment.toPath());
+            } catch (IOException e2) {
+                log.warn("Unable to delete rejected segment {}", segment, e2);
+            }
+            return;
+        }
+
+        File[] kept = rejected.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX));
+        if (kept != null && kept.length > MAX_REJECTED_SEGMENTS) {
+            Arrays.sort(kept);
+            for (int i = 0; i < kept.length - MAX_REJECTED_SEGMENTS; i++) {
+                if (!kept[i].delete()) {
+                    log.warn("Unable to delete old rejected segment {}", kept[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Close the active segment without sealing it. It is replayed on the next {@link #open()}.
+     */
+    public synchronized void close() {
+        if (activeChannel != null) {
+            try {
+                activeChannel.close();
+            } catch (IOException e) {
+                log.warn("Error closing spool segment", e);
+            }
+            activeChannel = null;
+            activeSegment = null;
+            activeEventCount = 0;
+        }
+    }
+
+    /**
+     * Drop the oldest segments once the backlog is over its limit. Segments being uploaded
+     * are skipped, deleting them would lose the acknowledgement or, where an open file
+     * can't be deleted, leave them behind to be replayed as duplicates.
+     */
+    private void trimSealedSegments() {
+        Iterator<File> segments = sealedSegments.iterator();
+        while (sealedSegments.size() > MAX_SEALED_SEGMENTS && segments.hasNext()) {
+            File oldest = segments.next();
+            if (uploading.contains(oldest)) {
+                continue;
+            }
+            segments.remove();
+            refusals.remove(oldest);
+            log.warn("Unsent event backlog is full, dropping oldest segment {}", oldest.getName());
+            try {
+                Files.deleteIfExists(oldest.toPath());
+            } catch (IOException e) {
+                log.warn("Unable to delete spool segment {}", oldest, e);
+            }
+        }
+    }
+
+    private FileChannel activeChannel(UploadFormat format) throws IOException {
+        if (activeChannel == null) {
+            String suffix = format == UploadFormat.BINARY ? BINARY_SUFFIX : JSON_SUFFIX;
+            activeSegment = new File(directory, String.format("%s%016d%s", SEGMENT_PREFIX, nextSegmentId++, suffix));
+            activeChannel = FileChannel.open(activeSegment.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            activeFormat = format;
+
+            if (format == UploadFormat.BINARY) {
+                activeBaseMillis = System.currentTimeMillis();
+                ByteArrayOutputStream header = new ByteArrayOutputStream(16);
+                BinaryFormat.writeSegmentHeader(header, activeBaseMillis);
+                activeChannel.write(ByteBuffer.wrap(header.toByteArray()));
+            }
+        }
+        return activeChannel;
+    }
+
+    /**
+     * Cut a segment back to its last complete record, in case the client died mid-write
+     *
+     * @return true if the segment still holds at least one record
+     */
+    private boolean recover(File segment) {
+        if (isBinary(segment)) {
+            return recoverBinary(segment);
+        }
+
+        try (FileChannel channel = FileChannel.open(segment.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            ByteBuffer one = ByteBuffer.allocate(1);
+            long end = size;
+            while (end > 0) {
+                one.clear();
+                channel.read(one, end - 1);
+                if (one.get(0) == '\n') {
+                    break;
+                }
+                end--;
+            }
+
+            if (end < size) {
+                log.debug("Truncating incomplete record in {} from {} to {} bytes", segment, size, end);
+                channel.truncate(end);
+            }
+            if (end > 0) {
+                return true;
+            }
+        } catch (IOException e) {
+            log.warn("Unable to recover spool segment {}", segment, e);
+            return false;
+        }
+
+        try {
+            Files.deleteIfExists(segment.toPath());
+        } catch (IOException e) {
+            log.warn("Unable to delete empty spool segment {}", segment, e);
+        }
+        return false;
+    }
+
+    /**
+     * Binary records are length prefixed, so the last complete one is found by walking
+     * the prefixes from the start
+     */
+    private boolean recoverBinary(File segment) {
+        try (FileChannel channel = FileChannel.open(segment.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            int size = (int) channel.size();
+            int end = BinaryEventReader.completeLength(Files.readAllBytes(segment.toPath()));
+            if (end > 0) {
+                if (end < size) {
+                    log.debug("Truncating incomplete record in {} from {} to {} bytes", segment, size, end);
+                    channel.truncate(end);
+                }
+                return true;
+            }
+        } catch (IOException e) {
+            log.warn("Unable to recover spool segment {}", segment, e);
+            return false;
+        }
+
+        try {
+            Files.deleteIfExists(segment.toPath());
+        } catch (IOException e) {
+            log.warn("Unable to delete empty spool segment {}", segment, e);
+        }
+        return false;
+    }
+
+    private static long parseSegmentId(File segment) {
+        String name = segment.getName();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.lastIndexOf('.')));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.MindRune.service;
+
+import com.MindRune.model.GameEvent;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One step of the event pipeline in {@link EventLogService}.
+ *
+ * Stages run in order on the pipeline's worker thread, never on the client thread, so
+ * they must not call into the client. Each event passes through every stage before it
+ * is queued for the sender.
+ */
+public interface EventStage {
+
+    /**
+     * @return Short name used when reporting stage timings
+     */
+    String getName();
+
+    /**
+     * @return The event to pass on, which may be a replacement, or null to drop it
+     */
+    GameEvent process(GameEvent event);
+
+    /**
+     * Called once the pipeline has drained on stop
+     *
+     * @return Events the stage was still holding back, passed on to the stages after it
+     */
+    default List<GameEvent> flush() {
+        return Collections.emptyList();
+    }
+}
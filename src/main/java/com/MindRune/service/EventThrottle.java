@@ -0,0 +1,214 @@
+package com.MindRune.service;
+
+import com.MindRune.MindRuneConfig;
+import com.MindRune.model.EventDetails;
+import com.MindRune.model.GameEvent;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rate limiting and duplicate suppression for noisy event types.
+ *
+ * Rules come from {@link MindRuneConfig#eventRateLimits()}, one per event type, and apply
+ * separately to each {@link EventDetails#getThrottleKey() throttle key} of the type, such
+ * as each menu option. Within a key, an event is dropped if it repeats the last logged
+ * event within the rule's duplicate window, or if the key's token bucket is empty. The
+ * number of dropped events is handed to the next event logged under the same key. When
+ * the pipeline stops, the last event dropped under each key is logged after all, standing
+ * in for the rest.
+ *
+ * Event types without a rule are never throttled. Editing the rules keeps the state of
+ * every type that still has one, counts for types whose rule was removed are lost. Runs
+ * as the filter stage of the event pipeline, using the time each event was captured.
+ */
+@Slf4j
+public class EventThrottle implements EventStage {
+    /** Returned by {@link #admit} when the event should be dropped */
+    public static final int DROP = -1;
+
+    private final MindRuneConfig config;
+
+    // Spec the rules were parsed from, re-parsed when the config changes
+    private String spec;
+    private Map<String, Rule> rules = Collections.emptyMap();
+
+    public EventThrottle(MindRuneConfig config) {
+        this.config = config;
+    }
+
+    @Override
+    public String getName() {
+        return "filter";
+    }
+
+    @Override
+    public GameEvent process(GameEvent event) {
+        int suppressed = admit(event);
+        if (suppressed == DROP) {
+            return null;
+        }
+        return suppressed > 0 ? event.withSuppressed(suppressed) : event;
+    }
+
+    @Override
+    public synchronized List<GameEvent> flush() {
+        List<GameEvent> held = new ArrayList<>();
+        for (Rule rule : rules.values()) {
+            for (Bucket bucket : rule.buckets.values()) {
+                if (bucket.dropped != null) {
+                    held.add(bucket.suppressed > 1 ? bucket.dropped.withSuppressed(bucket.suppressed - 1) : bucket.dropped);
+                    bucket.dropped = null;
+                    bucket.suppressed = 0;
+                }
+            }
+        }
+        return held;
+    }
+
+    /**
+     * Decide whether an event is logged
+     *
+     * @return {@link #DROP}, or the number of events dropped under the same key since the
+     * last one that was logged
+     */
+    public synchronized int admit(GameEvent event) {
+        refreshRules();
+        Rule rule = rules.get(event.getEventType());
+        if (rule == null) {
+            return 0;
+        }
+
+        EventDetails details = event.getDetails();
+        long nowMillis = event.getTimestampMillis();
+        String key = details.getThrottleKey();
+        Bucket bucket = rule.buckets.get(key != null ? key : "");
+        if (bucket == null) {
+            bucket = new Bucket(rule.burst, nowMillis);
+            rule.buckets.put(key != null ? key : "", bucket);
+        }
+
+        if (rule.dedupMillis > 0 && bucket.last != null
+                && nowMillis - bucket.lastMillis < rule.dedupMillis && details.isRepeatOf(bucket.last)) {
+            bucket.drop(event);
+            return DROP;
+        }
+
+        if (rule.perSecond > 0) {
+            bucket.tokens = Math.min(rule.burst, bucket.tokens + (nowMillis - bucket.refillMillis) * rule.perSecond / 1000);
+            bucket.refillMillis = nowMillis;
+            if (bucket.tokens < 1) {
+                bucket.drop(event);
+                return DROP;
+            }
+            bucket.tokens--;
+        }
+
+        int suppressed = bucket.suppressed;
+        bucket.suppressed = 0;
+        bucket.dropped = null;
+        bucket.last = details;
+        bucket.lastMillis = nowMillis;
+        return suppressed;
+    }
+
+    private void refreshRules() {
+        String current = config.eventRateLimits();
+        if (current == null) {
+            current = "";
+        }
+        if (current.equals(spec)) {
+            return;
+        }
+
+        spec = current;
+        Map<String, Rule> parsed = parse(current);
+        for (Map.Entry<String, Rule> entry : parsed.entrySet()) {
+            Rule old = rules.get(entry.getKey());
+            if (old != null) {
+                entry.getValue().adopt(old);
+            }
+        }
+        rules = parsed;
+    }
+
+    /**
+     * Parse rules of the form {@code TYPE perSecond burst dedupMillis}, separated by
+     * newlines, commas or semicolons. A rate of 0 turns off rate limiting and a window
+     * of 0 turns off duplicate suppression for the type.
+     */
+    private static Map<String, Rule> parse(String spec) {
+        Map<String, Rule> parsed = new HashMap<>();
+        for (String line : spec.split("[\\n,;]")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+
+            String[] parts = trimmed.split("\\s+");
+            try {
+                if (parts.length != 4) {
+                    throw new IllegalArgumentException("expected 4 values");
+                }
+                double perSecond = Double.parseDouble(parts[1]);
+                int burst = Integer.parseInt(parts[2]);
+                long dedupMillis = Long.parseLong(parts[3]);
+                if (perSecond < 0 || burst < 1 || dedupMillis < 0) {
+                    throw new IllegalArgumentException("values out of range");
+                }
+                parsed.put(parts[0], new Rule(perSecond, burst, dedupMillis));
+            } catch (IllegalArgumentException e) {
+                log.warn("Ignoring event rate limit \"{}\": {}", trimmed, e.getMessage());
+            }
+        }
+        return parsed;
+    }
+
+    private static final class Rule {
+        private final double perSecond;
+        private final int burst;
+        private final long dedupMillis;
+        private final Map<String, Bucket> buckets = new HashMap<>();
+
+        private Rule(double perSecond, int burst, long dedupMillis) {
+            this.perSecond = perSecond;
+            this.burst = burst;
+            this.dedupMillis = dedupMillis;
+        }
+
+        /**
+         * Take over the buckets of the rule this one replaces, so editing the config
+         * neither refills them nor loses the dropped counts
+         */
+        private void adopt(Rule old) {
+            for (Bucket bucket : old.buckets.values()) {
+                bucket.tokens = Math.min(bucket.tokens, burst);
+            }
+            buckets.putAll(old.buckets);
+        }
+    }
+
+    private static final class Bucket {
+        private double tokens;
+        private long refillMillis;
+        private EventDetails last;
+        private long lastMillis;
+        private int suppressed;
+        // Most recent dropped event, logged in place of the dropped ones on flush
+        private GameEvent dropped;
+
+        private Bucket(int tokens, long nowMillis) {
+            this.tokens = tokens;
+            this.refillMillis = nowMillis;
+        }
+
+        private void drop(GameEvent event) {
+            suppressed++;
+            dropped = event;
+        }
+    }
+}
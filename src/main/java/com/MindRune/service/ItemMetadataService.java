@@ -0,0 +1,101 @@
+package com.MindRune.service;
+
+import com.MindRune.MindRuneConfig;
+import com.MindRune.model.ItemMetadata;
+import net.runelite.api.ItemComposition;
+import net.runelite.client.game.ItemManager;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Shared cache of item metadata for all listeners.
+ *
+ * The cache is a direct-mapped table keyed by item ID, so it holds at most
+ * {@link #CACHE_SIZE} entries and a lookup is an array read with no boxing. An item
+ * that maps to a slot already taken by another item simply replaces it. Entries are
+ * immutable and published through an atomic array, so they are loaded on the client
+ * thread, where item definitions may be read, and can be read from any thread
+ * without locking.
+ */
+public class ItemMetadataService {
+    // Comfortably more than the distinct items seen in a long session
+    private static final int CACHE_SIZE = 4096;
+    private static final int NOTE_TEMPLATE_ID = 799;
+
+    private final ItemManager itemManager;
+    private final MindRuneConfig config;
+    private final AtomicReferenceArray<ItemMetadata> cache = new AtomicReferenceArray<>(CACHE_SIZE);
+
+    public ItemMetadataService(ItemManager itemManager, MindRuneConfig config) {
+        this.itemManager = itemManager;
+        this.config = config;
+    }
+
+    /**
+     * Get the metadata of an item, loading it on a cache miss. Must be called on the
+     * client thread.
+     *
+     * @param itemId Item ID
+     * @return Metadata, or null if the item does not exist
+     */
+    public ItemMetadata get(int itemId) {
+        ItemMetadata metadata = peek(itemId);
+        if (metadata != null) {
+            return metadata;
+        }
+
+        ItemComposition itemComp = itemManager.getItemComposition(itemId);
+        if (itemComp == null) {
+            return null;
+        }
+
+        boolean noted = itemComp.getNote() == NOTE_TEMPLATE_ID;
+        metadata = new ItemMetadata(itemId, itemComp.getName(), itemComp.isStackable(), noted,
+                itemComp.getLinkedNoteId(), itemManager.getItemPrice(itemId));
+        cache.set(slot(itemId), metadata);
+        return metadata;
+    }
+
+    /**
+     * Get the metadata of an item if it is cached. Safe to call from any thread.
+     *
+     * @param itemId Item ID
+     * @return Metadata, or null if the item is not cached
+     */
+    public ItemMetadata peek(int itemId) {
+        ItemMetadata metadata = cache.get(slot(itemId));
+        return metadata != null && metadata.getItemId() == itemId ? metadata : null;
+    }
+
+    /**
+     * Get the name of an item. Must be called on the client thread.
+     *
+     * @param itemId Item ID
+     * @return Item name, or null if the item does not exist
+     */
+    public String getName(int itemId) {
+        ItemMetadata metadata = get(itemId);
+        return metadata != null ? metadata.getName() : null;
+    }
+
+    /**
+     * Get the name of an item to include in an event. In ids-only mode names are
+     * resolved by the server and left out of the payload. Must be called on the client
+     * thread.
+     *
+     * @param itemId Item ID
+     * @param fallback Name to use if the item does not exist
+     * @return Item name, or null if names are not sent
+     */
+    public String getPayloadName(int itemId, String fallback) {
+        if (!config.includeItemNames()) {
+            return null;
+        }
+        String name = getName(itemId);
+        return name != null ? name : fallback;
+    }
+
+    private static int slot(int itemId) {
+        // Item IDs are dense, so the low bits spread them well enough
+        return itemId & (CACHE_SIZE - 1);
+    }
+}
@@ -0,0 +1,80 @@
+package com.MindRune.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Service for knowing which activity areas are in the loaded map.
+ *
+ * Every region ID indexes a table of 65536 activity bit masks built once at class load.
+ * The masks of the loaded map regions are combined whenever a new map loads, so checking
+ * whether the player is at an activity is a single field read.
+ */
+@Slf4j
+public class RegionActivityService {
+    public enum Activity {
+        WINTERTODT(6461),
+        TEMPOROSS(12588),
+        GUARDIANS_OF_THE_RIFT(14484),
+        HALLOWED_SEPULCHRE(8797, 10077, 9308, 10074, 9050),
+        THEATRE_OF_BLOOD(12867, 14642),
+        HAM_STOREROOM(10321),
+        HESPORI(5021),
+        FONT_OF_CONSUMPTION(12106),
+        BARBARIAN_ASSAULT_LOBBY(10039),
+        SOUL_WARS(8493, 8749, 9005),
+        LAVA_MAZE(12348);
+
+        private final int[] regions;
+
+        Activity(int... regions) {
+            this.regions = regions;
+        }
+
+        private int bit() {
+            return 1 << ordinal();
+        }
+    }
+
+    private static final int[] REGION_ACTIVITIES = new int[1 << 16];
+
+    static {
+        for (Activity activity : Activity.values()) {
+            for (int region : activity.regions) {
+                REGION_ACTIVITIES[region] |= activity.bit();
+            }
+        }
+    }
+
+    // Activities in the loaded map, written on the client thread when a map loads
+    private volatile int activities;
+
+    /**
+     * Recompute the current activities for a newly loaded map
+     *
+     * @param mapRegions Region IDs of the loaded map, may be null while logged out
+     */
+    public void update(int[] mapRegions) {
+        int mask = 0;
+        if (mapRegions != null) {
+            for (int region : mapRegions) {
+                mask |= REGION_ACTIVITIES[region & 0xFFFF];
+            }
+        }
+
+        if (mask != activities) {
+            log.debug("Loaded map activities changed: {} -> {}", activities, mask);
+        }
+        activities = mask;
+    }
+
+    /**
+     * @return true if the loaded map includes one of the activity's regions
+     */
+    public boolean isAt(Activity activity) {
+        return (activities & activity.bit()) != 0;
+    }
+
+    public void clear() {
+        activities = 0;
+    }
+}
@@ -0,0 +1,35 @@
+package com.MindRune.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Capped exponential backoff with jitter for failed uploads
+ */
+public class RetryPolicy {
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+
+    /**
+     * @param baseDelayMillis Delay ceiling after the first failure
+     * @param maxDelayMillis Upper bound for the delay ceiling
+     */
+    public RetryPolicy(long baseDelayMillis, long maxDelayMillis) {
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    /**
+     * Delay before the next attempt. The ceiling doubles with each consecutive failure up
+     * to the cap, and the delay is drawn from the upper half of it so that clients which
+     * failed together do not all retry together.
+     *
+     * @param consecutiveFailures Number of failures in a row, at least 1
+     * @return Delay in milliseconds
+     */
+    public long nextDelayMillis(int consecutiveFailures) {
+        int exponent = Math.min(Math.max(consecutiveFailures - 1, 0), 20);
+        long ceiling = Math.min(maxDelayMillis, baseDelayMillis << exponent);
+        long half = ceiling / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+}
@@ -0,0 +1,246 @@
+package com.MindRune.service;
+
+import com.MindRune.util.IntObjectMap;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.ObjectID;
+import net.runelite.api.Skill;
+import net.runelite.api.widgets.InterfaceID;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reward source definitions, loaded from the bundled {@code rewards.json}.
+ *
+ * The file is compiled once into tables keyed by interface group, item, object, region
+ * and bird house XP, so every lookup is a single probe. Interface and object IDs may be
+ * given as numbers or as the names of RuneLite's {@link InterfaceID} and {@link ObjectID}
+ * constants. Chests, shade chests and bird houses are always tracked through the
+ * inventory, other sources only when listed under {@code inventorySources}.
+ */
+@Slf4j
+public class RewardRegistry {
+    private static final String RESOURCE = "/com/MindRune/rewards.json";
+
+    public enum ItemAction {
+        /** Snapshot the inventory under the reward's source */
+        SNAPSHOT,
+        /** Hunter's loot sack, which also records hunting skill levels */
+        HUNTER_SACK,
+        /** Impling jar, its removal from the inventory is a reward too */
+        IMPLING_JAR
+    }
+
+    /**
+     * An item that gives a reward when one of its menu options is used
+     */
+    public static final class ItemReward {
+        private final String source;
+        private final List<String> options;
+        private final ItemAction action;
+        private final Skill skill;
+
+        private ItemReward(String source, List<String> options, ItemAction action, Skill skill) {
+            this.source = source;
+            this.options = options;
+            this.action = action;
+            this.skill = skill;
+        }
+
+        /**
+         * @return Reward source, or null if the source is the item's name
+         */
+        public String getSource() {
+            return source;
+        }
+
+        public ItemAction getAction() {
+            return action;
+        }
+
+        /**
+         * @return Skill whose boosted level is recorded with the reward, or null
+         */
+        public Skill getSkill() {
+            return skill;
+        }
+
+        public boolean isTriggeredBy(String option) {
+            return options.contains(option);
+        }
+    }
+
+    private final IntObjectMap<String> interfaces = new IntObjectMap<>();
+    private final IntObjectMap<ItemReward> items = new IntObjectMap<>();
+    private final IntObjectMap<String> shadeChests = new IntObjectMap<>();
+    private final IntObjectMap<String> chestRegions = new IntObjectMap<>();
+    private final IntObjectMap<String> birdhouses = new IntObjectMap<>();
+    private final Set<String> inventorySources = new HashSet<>();
+
+    private RewardRegistry(Definitions definitions) {
+        for (IdDefinition definition : definitions.interfaces) {
+            Integer id = resolve(definition.id, InterfaceID.class);
+            if (id != null) {
+                interfaces.put(id, definition.source);
+            }
+        }
+
+        for (ItemDefinition definition : definitions.items) {
+            ItemAction action = definition.action != null ? ItemAction.valueOf(definition.action) : ItemAction.SNAPSHOT;
+            Skill skill = definition.skill != null ? Skill.valueOf(definition.skill) : null;
+            ItemReward reward = new ItemReward(definition.source, List.copyOf(definition.options), action, skill);
+            for (int id : definition.ids) {
+                items.put(id, reward);
+            }
+        }
+
+        for (IdDefinition definition : definitions.objects) {
+            Integer id = resolve(definition.id, ObjectID.class);
+            if (id != null) {
+                shadeChests.put(id, definition.source);
+                inventorySources.add(definition.source);
+            }
+        }
+
+        for (RegionDefinition definition : definitions.chestRegions) {
+            chestRegions.put(definition.region, definition.source);
+            inventorySources.add(definition.source);
+        }
+
+        for (BirdhouseDefinition definition : definitions.birdhouses) {
+            birdhouses.put(definition.xp, definition.source);
+            inventorySources.add(definition.source);
+        }
+
+        inventorySources.addAll(definitions.inventorySources);
+
+        log.info("Loaded {} reward interfaces, {} reward items, {} shade chests, {} chest regions and {} bird houses",
+                interfaces.size(), items.size(), shadeChests.size(), chestRegions.size(), birdhouses.size());
+    }
+
+    /**
+     * Load the bundled definitions
+     *
+     * @throws IllegalStateException if the resource is missing or malformed
+     */
+    public static RewardRegistry load() {
+        InputStream in = RewardRegistry.class.getResourceAsStream(RESOURCE);
+        if (in == null) {
+            throw new IllegalStateException("Missing resource " + RESOURCE);
+        }
+
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            return new RewardRegistry(new Gson().fromJson(reader, Definitions.class));
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalStateException("Could not load " + RESOURCE, e);
+        }
+    }
+
+    /**
+     * @return Source of the reward interface with this group ID, or null
+     */
+    public String getInterfaceSource(int groupId) {
+        return interfaces.get(groupId);
+    }
+
+    /**
+     * @return Reward given by using this item, or null
+     */
+    public ItemReward getItemReward(int itemId) {
+        return items.get(itemId);
+    }
+
+    public boolean isImplingJar(int itemId) {
+        ItemReward reward = items.get(itemId);
+        return reward != null && reward.action == ItemAction.IMPLING_JAR;
+    }
+
+    /**
+     * @return Key type of the shade chest with this object ID, or null
+     */
+    public String getShadeChestSource(int objectId) {
+        return shadeChests.get(objectId);
+    }
+
+    /**
+     * @return Name of the chest in this region, or null
+     */
+    public String getChestSource(int regionId) {
+        return chestRegions.get(regionId);
+    }
+
+    /**
+     * @return Bird house type that gives this much Hunter XP when dismantled, or null
+     */
+    public String getBirdhouseSource(int xp) {
+        return birdhouses.get(xp);
+    }
+
+    /**
+     * @return true if rewards from this source arrive in the inventory rather than an interface
+     */
+    public boolean shouldTrackInventory(String source) {
+        return inventorySources.contains(source);
+    }
+
+    /**
+     * @return The numeric ID, or the value of the named constant in {@code constants}, or
+     * null if there is no such constant
+     */
+    private static Integer resolve(JsonElement id, Class<?> constants) {
+        if (id.getAsJsonPrimitive().isNumber()) {
+            return id.getAsInt();
+        }
+
+        String name = id.getAsString();
+        try {
+            return constants.getField(name).getInt(null);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            log.warn("Unknown {} constant {}, skipping", constants.getSimpleName(), name);
+            return null;
+        }
+    }
+
+    // Shape of rewards.json, filled in by Gson
+
+    private static class Definitions {
+        List<IdDefinition> interfaces = Collections.emptyList();
+        List<ItemDefinition> items = Collections.emptyList();
+        List<IdDefinition> objects = Collections.emptyList();
+        List<RegionDefinition> chestRegions = Collections.emptyList();
+        List<BirdhouseDefinition> birdhouses = Collections.emptyList();
+        List<String> inventorySources = Collections.emptyList();
+    }
+
+    private static class IdDefinition {
+        JsonElement id;
+        String source;
+    }
+
+    private static class ItemDefinition {
+        int[] ids;
+        List<String> options;
+        String source;
+        String action;
+        String skill;
+    }
+
+    private static class RegionDefinition {
+        int region;
+        String source;
+    }
+
+    private static class BirdhouseDefinition {
+        int xp;
+        String source;
+    }
+}
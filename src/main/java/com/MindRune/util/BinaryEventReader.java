@@ -0,0 +1,287 @@
+package com.MindRune.util;
+
+import com.google.gson.stream.JsonWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+
+import static com.MindRune.util.BinaryFormat.*;
+
+/**
+ * Reads segments in the binary encoding described in {@link BinaryFormat}. Used to
+ * recover segments after a crash, and to turn binary segments back into JSON when the
+ * server turns out not to accept the binary format.
+ */
+public final class BinaryEventReader {
+    private final byte[] data;
+    private int position;
+
+    private BinaryEventReader(byte[] data) {
+        this.data = data;
+    }
+
+    /**
+     * Find the end of the last complete record, in case the client died mid-write
+     *
+     * @param segment Segment contents
+     * @return Length of the segment up to and including its last complete record, or 0
+     * if it does not hold a single complete record
+     */
+    public static int completeLength(byte[] segment) {
+        BinaryEventReader reader = new BinaryEventReader(segment);
+        try {
+            reader.readHeader();
+        } catch (IOException e) {
+            return 0;
+        }
+
+        int headerLength = reader.position;
+        int end = headerLength;
+        try {
+            while (reader.position < segment.length) {
+                long length = reader.readVarint();
+                if (length < 0 || length > segment.length - reader.position) {
+                    break;
+                }
+                reader.position += (int) length;
+                end = reader.position;
+            }
+        } catch (IOException e) {
+            // Length prefix itself was cut off
+        }
+        return end > headerLength ? end : 0;
+    }
+
+    /**
+     * Rewrite a binary segment as spooled JSON records, each prefixed with a comma and
+     * terminated by a newline
+     *
+     * @param segment Segment contents
+     * @param out Stream to write the JSON records to
+     */
+    public static void transcodeToJson(byte[] segment, OutputStream out) throws IOException {
+        try (InputStream records = openAsJson(segment)) {
+            records.transferTo(out);
+        }
+    }
+
+    /**
+     * Read a binary segment as spooled JSON records. Records are converted one at a time
+     * as the stream is read, so only the current record is ever held as JSON.
+     *
+     * @param segment Segment contents
+     * @return Stream of JSON records, each prefixed with a comma and terminated by a newline
+     */
+    public static InputStream openAsJson(byte[] segment) throws IOException {
+        return new JsonRecordStream(segment);
+    }
+
+    /**
+     * Converts the next record whenever the previous one has been read
+     */
+    private static final class JsonRecordStream extends InputStream {
+        private final BinaryEventReader reader;
+        private final long baseMillis;
+        private final RecordBuffer record = new RecordBuffer();
+        private final JsonWriter writer;
+        private int recordPosition;
+
+        private JsonRecordStream(byte[] segment) throws IOException {
+            reader = new BinaryEventReader(segment);
+            baseMillis = reader.readHeader();
+            writer = new JsonWriter(new OutputStreamWriter(record, StandardCharsets.UTF_8));
+            writer.setLenient(true); // allow several top level values in one writer
+        }
+
+        @Override
+        public int read() throws IOException {
+            return fill() ? record.array()[recordPosition++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int n = Math.min(len, record.size() - recordPosition);
+            System.arraycopy(record.array(), recordPosition, b, off, n);
+            recordPosition += n;
+            return n;
+        }
+
+        /**
+         * @return false once every record has been read
+         */
+        private boolean fill() throws IOException {
+            while (recordPosition == record.size()) {
+                if (reader.position >= reader.data.length) {
+                    return false;
+                }
+                record.reset();
+                recordPosition = 0;
+
+                int end = (int) reader.readVarint() + reader.position;
+                record.write(',');
+                reader.readEvent(writer, baseMillis, end);
+                writer.flush();
+                record.write('\n');
+                reader.position = end;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Gives the stream read access to the record without copying it
+     */
+    private static final class RecordBuffer extends ByteArrayOutputStream {
+        private RecordBuffer() {
+            super(512);
+        }
+
+        private byte[] array() {
+            return buf;
+        }
+    }
+
+    private long readHeader() throws IOException {
+        if (data.length < MAGIC.length || !Arrays.equals(Arrays.copyOf(data, MAGIC.length), MAGIC)) {
+            throw new IOException("Not a binary event segment");
+        }
+        position = MAGIC.length;
+        return readVarint();
+    }
+
+    private void readEvent(JsonWriter out, long baseMillis, int end) throws IOException {
+        int tag = readByte();
+        int code = tag & ~HAS_LOCATION;
+        if (code > EVENT_TYPES.length) {
+            throw new IOException("Unknown event type " + code);
+        }
+        String eventType = code != 0 ? EVENT_TYPES[code - 1] : readString();
+        long timestamp = baseMillis + readSignedVarint();
+
+        out.beginObject();
+        out.name("eventType").value(eventType);
+        out.name("timestamp").value(Instant.ofEpochMilli(timestamp).toString());
+
+        if ((tag & HAS_LOCATION) != 0) {
+            out.name("playerLocation").beginObject();
+            out.name("x").value(readSignedVarint());
+            out.name("y").value(readSignedVarint());
+            out.name("plane").value(readVarint());
+            out.endObject();
+        }
+
+        out.name("details");
+        readValue(out, readByte());
+
+        // Extra event fields go next to the details
+        if (position < end) {
+            if (readByte() != TAG_BEGIN_OBJECT) {
+                throw new IOException("Expected extra event fields at offset " + (position - 1));
+            }
+            readEntries(out);
+        }
+        out.endObject();
+    }
+
+    private void readValue(JsonWriter out, int tag) throws IOException {
+        switch (tag) {
+            case TAG_NULL:
+                out.nullValue();
+                break;
+            case TAG_FALSE:
+            case TAG_TRUE:
+                out.value(tag == TAG_TRUE);
+                break;
+            case TAG_INT:
+                out.value(readSignedVarint());
+                break;
+            case TAG_DOUBLE:
+                long bits = 0;
+                for (int i = 0; i < 8; i++) {
+                    bits = (bits << 8) | readByte();
+                }
+                out.value(Double.longBitsToDouble(bits));
+                break;
+            case TAG_STRING:
+                out.value(readString());
+                break;
+            case TAG_BEGIN_OBJECT:
+                out.beginObject();
+                readEntries(out);
+                out.endObject();
+                break;
+            case TAG_BEGIN_ARRAY:
+                out.beginArray();
+                for (int next = readByte(); next != TAG_END_ARRAY; next = readByte()) {
+                    readValue(out, next);
+                }
+                out.endArray();
+                break;
+            default:
+                throw new IOException("Unknown tag " + tag + " at offset " + (position - 1));
+        }
+    }
+
+    /**
+     * Copy the entries of an object whose begin tag has been read, up to and including
+     * its end tag
+     */
+    private void readEntries(JsonWriter out) throws IOException {
+        for (int next = readByte(); next != TAG_END_OBJECT; next = readByte()) {
+            if (next != TAG_NAME) {
+                throw new IOException("Expected a key at offset " + (position - 1));
+            }
+            int code = (int) readVarint();
+            if (code < 0 || code > KEYS.length) {
+                throw new IOException("Unknown key " + code);
+            }
+            out.name(code != 0 ? KEYS[code - 1] : readString());
+            readValue(out, readByte());
+        }
+    }
+
+    private int readByte() throws IOException {
+        if (position >= data.length) {
+            throw new IOException("Unexpected end of segment");
+        }
+        return data[position++] & 0xFF;
+    }
+
+    private long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint at offset " + position);
+    }
+
+    private long readSignedVarint() throws IOException {
+        long value = readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private String readString() throws IOException {
+        int length = (int) readVarint();
+        if (length < 0 || length > data.length - position) {
+            throw new IOException("String runs past the end of the segment");
+        }
+        String value = new String(data, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+}
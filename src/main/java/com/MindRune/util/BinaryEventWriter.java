@@ -0,0 +1,177 @@
+package com.MindRune.util;
+
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.MindRune.util.BinaryFormat.*;
+
+/**
+ * {@link JsonWriter} that emits the compact binary encoding described in
+ * {@link BinaryFormat} instead of JSON text. Event details and player information
+ * write themselves through the same {@code writeJson} methods in both formats, so a
+ * new detail type needs no extra code to be sent in binary.
+ *
+ * The writer does not check that the token sequence is well formed. It relies on the
+ * callers producing the same sequences they produce for JSON.
+ */
+public class BinaryEventWriter extends JsonWriter {
+    private final OutputStream out;
+
+    public BinaryEventWriter(OutputStream out) {
+        super(Writer.nullWriter());
+        this.out = out;
+    }
+
+    /**
+     * Write the fixed part of a record. The details value must follow.
+     *
+     * @param eventType Type of event
+     * @param timestampOffset Event time relative to the segment base in milliseconds
+     */
+    public void writeEventHeader(String eventType, long timestampOffset, boolean hasLocation, int x, int y, int plane) throws IOException {
+        int code = eventTypeCode(eventType);
+        out.write(code | (hasLocation ? HAS_LOCATION : 0));
+        if (code == 0) {
+            writeString(eventType);
+        }
+
+        writeSignedVarint(out, timestampOffset);
+        if (hasLocation) {
+            writeSignedVarint(out, x);
+            writeSignedVarint(out, y);
+            writeVarint(out, plane);
+        }
+    }
+
+    @Override
+    public JsonWriter beginArray() throws IOException {
+        out.write(TAG_BEGIN_ARRAY);
+        return this;
+    }
+
+    @Override
+    public JsonWriter endArray() throws IOException {
+        out.write(TAG_END_ARRAY);
+        return this;
+    }
+
+    @Override
+    public JsonWriter beginObject() throws IOException {
+        out.write(TAG_BEGIN_OBJECT);
+        return this;
+    }
+
+    @Override
+    public JsonWriter endObject() throws IOException {
+        out.write(TAG_END_OBJECT);
+        return this;
+    }
+
+    @Override
+    public JsonWriter name(String name) throws IOException {
+        int code = keyCode(name);
+        out.write(TAG_NAME);
+        writeVarint(out, code);
+        if (code == 0) {
+            writeString(name);
+        }
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        out.write(TAG_STRING);
+        writeString(value);
+        return this;
+    }
+
+    @Override
+    public JsonWriter jsonValue(String value) {
+        throw new UnsupportedOperationException("Raw JSON cannot be written in the binary format");
+    }
+
+    @Override
+    public JsonWriter nullValue() throws IOException {
+        out.write(TAG_NULL);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(boolean value) throws IOException {
+        out.write(value ? TAG_TRUE : TAG_FALSE);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(Boolean value) throws IOException {
+        return value == null ? nullValue() : value(value.booleanValue());
+    }
+
+    @Override
+    public JsonWriter value(double value) throws IOException {
+        if (value == (long) value) {
+            return value((long) value);
+        }
+        out.write(TAG_DOUBLE);
+        long bits = Double.doubleToLongBits(value);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (bits >>> shift));
+        }
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(long value) throws IOException {
+        out.write(TAG_INT);
+        writeSignedVarint(out, value);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(Number value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte
+                || value instanceof AtomicInteger || value instanceof AtomicLong) {
+            return value(value.longValue());
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return value(value.doubleValue());
+        }
+
+        // Gson's lazily parsed numbers and big numbers only know their text form
+        BigDecimal decimal = new BigDecimal(value.toString());
+        try {
+            return value(decimal.toBigIntegerExact().longValueExact());
+        } catch (ArithmeticException e) {
+            return value(decimal.doubleValue());
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+}
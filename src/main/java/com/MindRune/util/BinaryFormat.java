@@ -0,0 +1,124 @@
+package com.MindRune.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Constants and primitives of the compact binary event encoding.
+ *
+ * A binary payload is the player information value followed by one spool segment.
+ * A segment starts with {@link #MAGIC} and the segment's base time in epoch
+ * milliseconds as a varint, followed by records that are each prefixed with their
+ * varint length. A record holds:
+ * <ul>
+ *     <li>a tag byte: the index into {@link #EVENT_TYPES} plus one, or 0 followed by the
+ *     event type as a string, with {@link #HAS_LOCATION} set if a location follows</li>
+ *     <li>the event time relative to the segment base as a zigzag varint</li>
+ *     <li>if present, the player location as zigzag x and y and varint plane</li>
+ *     <li>the details as a value</li>
+ *     <li>optionally, an object of extra event fields such as {@code suppressed}, which
+ *     readers that predate it skip along with the rest of the record</li>
+ * </ul>
+ * Values mirror JSON: each starts with one of the {@code TAG_} bytes. Integers are
+ * zigzag varints, strings are a varint byte length followed by UTF-8, and object keys
+ * are an index into {@link #KEYS} plus one, or 0 followed by the key as a string.
+ *
+ * Both tables are part of the wire format. Decoders reject codes they don't know, so
+ * the tables can only grow together with the version in {@link #MAGIC}. Keys added since
+ * version 1, such as the aggregation and suppression counts, are written inline.
+ */
+public final class BinaryFormat {
+    public static final String CONTENT_TYPE = "application/x-mindrune-events";
+    public static final byte[] MAGIC = {'M', 'R', 'B', 1};
+
+    public static final int HAS_LOCATION = 0x80;
+
+    public static final int TAG_NULL = 0;
+    public static final int TAG_FALSE = 1;
+    public static final int TAG_TRUE = 2;
+    public static final int TAG_INT = 3;
+    public static final int TAG_DOUBLE = 4;
+    public static final int TAG_STRING = 5;
+    public static final int TAG_BEGIN_OBJECT = 6;
+    public static final int TAG_END_OBJECT = 7;
+    public static final int TAG_BEGIN_ARRAY = 8;
+    public static final int TAG_END_ARRAY = 9;
+    public static final int TAG_NAME = 10;
+
+    static final String[] EVENT_TYPES = {
+            "XP_GAIN", "HIT_SPLAT", "MENU_CLICK", "INVENTORY_CHANGE", "MONSTER_KILL", "REWARD",
+            "WORLD_CHANGE", "QUEST_COMPLETION", "ACHIEVEMENT_DIARY_COMPLETION", "COMBAT_ACHIEVEMENT_COMPLETION",
+    };
+
+    static final String[] KEYS = {
+            "playerName", "playerId", "combatLevel", "totalLevel", "totalXp",
+            "skill", "xpGained", "level", "action", "target", "id",
+            "damage", "type", "typeString", "source", "direction",
+            "itemId", "itemName", "quantity", "changeType", "oldPositions", "newPositions",
+            "monsterName", "monsterId", "location", "x", "y", "plane", "killId", "items", "itemCount",
+            "rewardSource", "timestamp", "completionCount", "message", "skillLevel", "rewardId",
+            "raidLevel", "raidDamage", "teamSize", "hunterLevel", "herbloreLevel", "woodcuttingLevel",
+            "regionId", "worldId", "questName", "diaryName", "diaryTier", "achievementName",
+    };
+
+    private static final Map<String, Integer> EVENT_TYPE_INDEX = index(EVENT_TYPES);
+    private static final Map<String, Integer> KEY_INDEX = index(KEYS);
+
+    private BinaryFormat() {
+    }
+
+    /**
+     * @return Index plus one of the event type, or 0 if it has to be written out
+     */
+    static int eventTypeCode(String eventType) {
+        Integer index = EVENT_TYPE_INDEX.get(eventType);
+        return index != null ? index + 1 : 0;
+    }
+
+    /**
+     * @return Index plus one of the key, or 0 if it has to be written out
+     */
+    static int keyCode(String key) {
+        Integer index = KEY_INDEX.get(key);
+        return index != null ? index + 1 : 0;
+    }
+
+    /**
+     * Write the header that starts every binary segment
+     *
+     * @param out Stream positioned at the start of the segment
+     * @param baseMillis Time that record timestamps are relative to
+     */
+    public static void writeSegmentHeader(OutputStream out, long baseMillis) throws IOException {
+        out.write(MAGIC);
+        writeVarint(out, baseMillis);
+    }
+
+    /**
+     * Write an unsigned LEB128 varint
+     */
+    public static void writeVarint(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * Write a signed value as a zigzag varint, so small negative numbers stay short
+     */
+    public static void writeSignedVarint(OutputStream out, long value) throws IOException {
+        writeVarint(out, (value << 1) ^ (value >> 63));
+    }
+
+    private static Map<String, Integer> index(String[] table) {
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < table.length; i++) {
+            index.put(table[i], i);
+        }
+        return index;
+    }
+}
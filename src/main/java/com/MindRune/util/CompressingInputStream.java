@@ -0,0 +1,112 @@
+package com.MindRune.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+
+/**
+ * Compresses another stream as it is read. A request body can then be compressed by
+ * the thread that sends it, a buffer at a time, instead of being compressed into memory
+ * up front. The gzip variant adds the same header and trailer as
+ * {@link java.util.zip.GZIPOutputStream}, the deflate variant produces zlib data like
+ * {@link java.util.zip.DeflaterOutputStream}.
+ */
+public final class CompressingInputStream extends InputStream {
+    private static final int BUFFER_SIZE = 8192;
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+    private final Deflater deflater;
+    private final InputStream deflated;
+    // Checksum of the uncompressed data for the gzip trailer, null for deflate
+    private final CRC32 crc;
+    private final byte[] single = new byte[1];
+
+    // Gzip header or trailer still to be read
+    private byte[] framing;
+    private int framingPosition;
+    private boolean trailerQueued;
+
+    private CompressingInputStream(InputStream in, Deflater deflater, CRC32 crc, byte[] header) {
+        this.deflater = deflater;
+        this.crc = crc;
+        this.deflated = new DeflaterInputStream(crc != null ? new CheckedInputStream(in, crc) : in, deflater, BUFFER_SIZE);
+        this.framing = header;
+    }
+
+    /**
+     * @param in Uncompressed data, closed with the returned stream
+     * @return Stream of the data in gzip format
+     */
+    public static InputStream gzip(InputStream in) {
+        return new CompressingInputStream(in, new Deflater(Deflater.DEFAULT_COMPRESSION, true), new CRC32(), GZIP_HEADER.clone());
+    }
+
+    /**
+     * @param in Uncompressed data, closed with the returned stream
+     * @return Stream of the data in zlib format, as sent for the deflate content encoding
+     */
+    public static InputStream deflate(InputStream in) {
+        return new CompressingInputStream(in, new Deflater(), null, null);
+    }
+
+    @Override
+    public int read() throws IOException {
+        return read(single, 0, 1) == 1 ? single[0] & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
+        while (true) {
+            if (framing != null) {
+                if (framingPosition < framing.length) {
+                    int n = Math.min(len, framing.length - framingPosition);
+                    System.arraycopy(framing, framingPosition, b, off, n);
+                    framingPosition += n;
+                    return n;
+                }
+                framing = null;
+            }
+
+            int n = deflated.read(b, off, len);
+            if (n >= 0) {
+                return n;
+            }
+            if (crc == null || trailerQueued) {
+                return -1;
+            }
+            trailerQueued = true;
+            framing = gzipTrailer();
+            framingPosition = 0;
+        }
+    }
+
+    /**
+     * Checksum and length of the uncompressed data, little endian
+     */
+    private byte[] gzipTrailer() {
+        long checksum = crc.getValue();
+        long length = deflater.getBytesRead();
+        byte[] trailer = new byte[8];
+        for (int i = 0; i < 4; i++) {
+            trailer[i] = (byte) (checksum >>> (i * 8));
+            trailer[4 + i] = (byte) (length >>> (i * 8));
+        }
+        return trailer;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            deflated.close();
+        } finally {
+            deflater.end();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.MindRune.util;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free multi-producer/single-consumer ring buffer.
+ *
+ * Producers claim a slot with a single CAS on the tail counter and publish it by
+ * advancing the slot's sequence number, so offering is O(1) and allocation-free.
+ * The single consumer only takes slots whose publication it can observe, which
+ * means an element offered while a drain is running is picked up by the next
+ * drain instead of being lost.
+ *
+ * @param <T> Element type
+ */
+public class EventRingBuffer<T> {
+    private final int mask;
+    private final AtomicReferenceArray<T> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    // Only ever written by the consumer thread, read by producers for size()
+    private volatile long head;
+
+    /**
+     * @param capacity Requested capacity, rounded up to the next power of two
+     */
+    public EventRingBuffer(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("capacity must be at least 2");
+        }
+
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = size - 1;
+        this.elements = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Add an element to the buffer. Safe to call from any thread.
+     *
+     * @param element Element to add
+     * @return true if added, false if the buffer was full and the element was dropped
+     */
+    public boolean offer(T element) {
+        if (element == null) {
+            throw new NullPointerException("element");
+        }
+
+        while (true) {
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long diff = sequences.get(index) - position;
+
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.lazySet(index, element);
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                // The consumer has not freed this slot yet, so the buffer is full
+                dropped.incrementAndGet();
+                return false;
+            }
+            // Another producer claimed this position, retry with the new tail
+        }
+    }
+
+    /**
+     * Take the next published element. Must only be called from the consumer thread.
+     *
+     * @return Element, or null if nothing is published
+     */
+    public T poll() {
+        long position = head;
+        int index = (int) (position & mask);
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+
+        T element = elements.get(index);
+        elements.lazySet(index, null);
+        sequences.lazySet(index, position + mask + 1);
+        head = position + 1;
+        return element;
+    }
+
+    /**
+     * Move every published element into the given list. Must only be called from the
+     * consumer thread. At most one buffer's worth is drained per call so a steady
+     * stream of producers cannot keep the consumer here forever.
+     *
+     * @param target List to append to
+     * @return Number of elements drained
+     */
+    public int drainTo(List<? super T> target) {
+        int limit = mask + 1;
+        int count = 0;
+        T element;
+        while (count < limit && (element = poll()) != null) {
+            target.add(element);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return Approximate number of queued elements
+     */
+    public int size() {
+        long size = tail.get() - head;
+        return (int) Math.max(0, Math.min(size, mask + 1));
+    }
+
+    /**
+     * @return true if no elements are queued
+     */
+    public boolean isEmpty() {
+        return tail.get() == head;
+    }
+
+    /**
+     * @return Total number of elements rejected because the buffer was full
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * @return Maximum number of elements the buffer can hold
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,129 @@
+package com.MindRune.util;
+
+import java.util.Arrays;
+
+/**
+ * Map from int keys to int counts that never boxes, meant to be cleared and reused.
+ *
+ * Open addressing with linear probing, kept at most half full. Keys are also kept in the
+ * order they were first added, so the entries can be walked by position in that order
+ * with {@link #keyAt(int)} and {@link #valueAt(int)}.
+ */
+public class IntIntMap {
+    private static final int NO_KEY = Integer.MIN_VALUE;
+
+    private int[] keys;
+    // Position of each slot's key in the insertion order
+    private int[] positions;
+    private int mask;
+
+    private int[] orderedKeys;
+    private int[] orderedValues;
+    private int size;
+
+    public IntIntMap() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize Number of keys expected to be stored at once
+     */
+    public IntIntMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 4) * 2 - 1) << 1;
+        allocate(capacity);
+        orderedKeys = new int[capacity / 2];
+        orderedValues = new int[capacity / 2];
+    }
+
+    /**
+     * Add to the value of a key, starting from 0 for a new key
+     *
+     * @param key Any key except {@link Integer#MIN_VALUE}
+     * @return The new value
+     */
+    public int addTo(int key, int delta) {
+        if (key == NO_KEY) {
+            throw new IllegalArgumentException("Key " + key + " is reserved");
+        }
+
+        int index = indexOf(key);
+        if (keys[index] == key) {
+            return orderedValues[positions[index]] += delta;
+        }
+
+        if ((size + 1) * 2 > keys.length) {
+            grow(keys.length * 2);
+            index = indexOf(key);
+        }
+        keys[index] = key;
+        positions[index] = size;
+        orderedKeys[size] = key;
+        orderedValues[size] = delta;
+        size++;
+        return delta;
+    }
+
+    /**
+     * @return Value of the key, or 0 if it is not in the map
+     */
+    public int get(int key) {
+        int index = indexOf(key);
+        return keys[index] == key && key != NO_KEY ? orderedValues[positions[index]] : 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param position 0 for the first key added, up to {@link #size()} - 1
+     */
+    public int keyAt(int position) {
+        return orderedKeys[position];
+    }
+
+    /**
+     * @param position 0 for the first key added, up to {@link #size()} - 1
+     */
+    public int valueAt(int position) {
+        return orderedValues[position];
+    }
+
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(keys, NO_KEY);
+            size = 0;
+        }
+    }
+
+    private int indexOf(int key) {
+        int index = hash(key) & mask;
+        while (keys[index] != NO_KEY && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void grow(int capacity) {
+        allocate(capacity);
+        orderedKeys = Arrays.copyOf(orderedKeys, capacity / 2);
+        orderedValues = Arrays.copyOf(orderedValues, capacity / 2);
+        for (int i = 0; i < size; i++) {
+            int index = indexOf(orderedKeys[i]);
+            keys[index] = orderedKeys[i];
+            positions[index] = i;
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        positions = new int[capacity];
+        Arrays.fill(keys, NO_KEY);
+        mask = capacity - 1;
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
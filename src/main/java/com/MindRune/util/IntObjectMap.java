@@ -0,0 +1,111 @@
+package com.MindRune.util;
+
+import java.util.Arrays;
+
+/**
+ * Map from int keys to values, for lookup tables that are filled once and then only read.
+ *
+ * Open addressing with linear probing over a primitive key array, kept at most half
+ * full, so lookups never box the key and usually hit on the first probe.
+ *
+ * @param <V> Value type
+ */
+public class IntObjectMap<V> {
+    private static final int NO_KEY = Integer.MIN_VALUE;
+
+    private int[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+
+    public IntObjectMap() {
+        allocate(16);
+    }
+
+    /**
+     * Associate a key with a value, replacing any previous value
+     *
+     * @param key Any key except {@link Integer#MIN_VALUE}
+     */
+    public void put(int key, V value) {
+        if (key == NO_KEY) {
+            throw new IllegalArgumentException("Key " + key + " is reserved");
+        }
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+
+        int index = indexOf(key);
+        if (keys[index] == NO_KEY) {
+            keys[index] = key;
+            size++;
+        }
+        values[index] = value;
+    }
+
+    /**
+     * @return Value stored for the key, or null
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int index = indexOf(key);
+        return keys[index] == NO_KEY ? null : (V) values[index];
+    }
+
+    public boolean containsKey(int key) {
+        return key != NO_KEY && keys[indexOf(key)] == key;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Every value, in no particular order
+     */
+    @SuppressWarnings("unchecked")
+    public Iterable<V> values() {
+        Object[] copy = new Object[size];
+        int count = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != NO_KEY) {
+                copy[count++] = values[i];
+            }
+        }
+        return Arrays.asList((V[]) copy);
+    }
+
+    private int indexOf(int key) {
+        int index = hash(key) & mask;
+        while (keys[index] != NO_KEY && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != NO_KEY) {
+                int index = indexOf(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        Arrays.fill(keys, NO_KEY);
+        mask = capacity - 1;
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,93 @@
+package com.MindRune.util;
+
+import java.util.Arrays;
+
+/**
+ * Set of long values that never boxes, meant to be cleared and reused.
+ *
+ * Open addressing with linear probing, kept at most half full. There is no removal,
+ * only {@link #clear()}, which keeps the grown capacity for the next use.
+ */
+public class LongHashSet {
+    private static final long NO_KEY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private int mask;
+    private int size;
+
+    public LongHashSet() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize Number of values expected to be stored at once
+     */
+    public LongHashSet(int expectedSize) {
+        allocate(Integer.highestOneBit(Math.max(expectedSize, 4) * 2 - 1) << 1);
+    }
+
+    /**
+     * @param value Any value except {@link Long#MIN_VALUE}
+     * @return true if the value was not already in the set
+     */
+    public boolean add(long value) {
+        if (value == NO_KEY) {
+            throw new IllegalArgumentException("Value " + value + " is reserved");
+        }
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+
+        int index = indexOf(value);
+        if (keys[index] == value) {
+            return false;
+        }
+        keys[index] = value;
+        size++;
+        return true;
+    }
+
+    public boolean contains(long value) {
+        return value != NO_KEY && keys[indexOf(value)] == value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(keys, NO_KEY);
+            size = 0;
+        }
+    }
+
+    private int indexOf(long value) {
+        int index = hash(value) & mask;
+        while (keys[index] != NO_KEY && keys[index] != value) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        allocate(capacity);
+        for (long key : oldKeys) {
+            if (key != NO_KEY) {
+                keys[indexOf(key)] = key;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, NO_KEY);
+        mask = capacity - 1;
+    }
+
+    private static int hash(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,187 @@
+package com.MindRune.util;
+
+import java.util.Arrays;
+
+/**
+ * Map from world tiles to values, keyed by x, y and plane packed into a single long.
+ *
+ * Open addressing with linear probing over a primitive key array, so lookups never
+ * allocate or box. Removal shifts later entries of the probe run back instead of
+ * leaving tombstones, which keeps lookups short while kills come and go.
+ *
+ * @param <V> Value type
+ */
+public class PackedPointMap<V> {
+    private static final long NO_KEY = -1;
+    private static final int COORD_BITS = 20;
+    private static final long COORD_MASK = (1L << COORD_BITS) - 1;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+
+    public PackedPointMap() {
+        this(64);
+    }
+
+    /**
+     * @param expectedSize Number of tiles expected to be stored at once
+     */
+    public PackedPointMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 4) * 2 - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * Pack a tile into a key. Coordinates are masked to 20 bits and the plane to 2 bits,
+     * which covers the whole world map including instances.
+     */
+    public static long pack(int x, int y, int plane) {
+        return ((long) (plane & 3) << (2 * COORD_BITS)) | ((y & COORD_MASK) << COORD_BITS) | (x & COORD_MASK);
+    }
+
+    /**
+     * Associate a tile with a value, replacing any previous value
+     */
+    public void put(int x, int y, int plane, V value) {
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+
+        long key = pack(x, y, plane);
+        int index = indexOf(key);
+        if (keys[index] == NO_KEY) {
+            keys[index] = key;
+            size++;
+        }
+        values[index] = value;
+    }
+
+    /**
+     * @return Value stored for the tile, or null
+     */
+    public V get(int x, int y, int plane) {
+        int index = indexOf(pack(x, y, plane));
+        return keys[index] == NO_KEY ? null : value(index);
+    }
+
+    /**
+     * Find the value closest to a tile within a square radius. The tile itself is
+     * checked first, then each ring around it in turn.
+     *
+     * @param radius Maximum distance in tiles along either axis
+     * @return Closest value, or null if there is none within the radius
+     */
+    public V findNearest(int x, int y, int plane, int radius) {
+        if (size == 0) {
+            return null;
+        }
+
+        V value = get(x, y, plane);
+        for (int r = 1; value == null && r <= radius; r++) {
+            for (int d = -r; d <= r && value == null; d++) {
+                value = firstNonNull(get(x + d, y - r, plane), get(x + d, y + r, plane));
+                if (value == null && d > -r && d < r) {
+                    value = firstNonNull(get(x - r, y + d, plane), get(x + r, y + d, plane));
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Remove a tile, but only while it still maps to the given value. Tiles that were
+     * since claimed by another value are left alone.
+     *
+     * @return true if the tile was removed
+     */
+    public boolean remove(int x, int y, int plane, V expected) {
+        int index = indexOf(pack(x, y, plane));
+        if (keys[index] == NO_KEY || values[index] != expected) {
+            return false;
+        }
+
+        deleteAt(index);
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, NO_KEY);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * @return Slot holding the key, or the empty slot where it belongs
+     */
+    private int indexOf(long key) {
+        int index = hash(key) & mask;
+        while (keys[index] != NO_KEY && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void deleteAt(int index) {
+        // Shift later entries of the run back so no lookup stops at the gap
+        int gap = index;
+        int next = (gap + 1) & mask;
+        while (keys[next] != NO_KEY) {
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+
+        keys[gap] = NO_KEY;
+        values[gap] = null;
+        size--;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != NO_KEY) {
+                int index = indexOf(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        Arrays.fill(keys, NO_KEY);
+        mask = capacity - 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V value(int index) {
+        return (V) values[index];
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static <V> V firstNonNull(V a, V b) {
+        return a != null ? a : b;
+    }
+}
@@ -1,9 +1,15 @@
 package com.MindRune.util;
 
 /**
- * Utility class for text processing
+ * Utility class for text processing.
+ *
+ * Tags are removed by a single pass over the text instead of a regex, since these run
+ * for every menu click, hitsplat and NPC death. Text without a {@code <} is returned
+ * as is apart from trimming.
  */
 public class TextUtil {
+    // Listeners call these on the client thread, so one scratch buffer per thread is enough
+    private static final ThreadLocal<StringBuilder> SCRATCH = ThreadLocal.withInitial(() -> new StringBuilder(64));
 
     /**
      * Strip color tags from text
@@ -15,7 +21,39 @@ public class TextUtil {
         if (input == null) {
             return "";
         }
-        return input.replaceAll("<col=[0-9a-fA-F]+>", "").trim();
+        if (input.indexOf('<') < 0) {
+            return input.trim();
+        }
+
+        StringBuilder out = SCRATCH.get();
+        out.setLength(0);
+        return stripColorTags(input, out).toString();
+    }
+
+    /**
+     * Append text with color tags removed and surrounding whitespace trimmed
+     *
+     * @param input Text to process
+     * @param out Builder to append to
+     * @return The builder
+     */
+    public static StringBuilder stripColorTags(CharSequence input, StringBuilder out) {
+        int start = out.length();
+        int length = input.length();
+        int i = 0;
+        while (i < length) {
+            char c = input.charAt(i);
+            if (c == '<') {
+                int end = colorTagEnd(input, i);
+                if (end > 0) {
+                    i = end;
+                    continue;
+                }
+            }
+            appendTrimmed(out, start, c);
+            i++;
+        }
+        return trimEnd(out, start);
     }
 
     /**
@@ -28,6 +66,93 @@ public class TextUtil {
         if (input == null) {
             return "";
         }
-        return input.replaceAll("<[^>]*>", "").trim();
+        if (input.indexOf('<') < 0) {
+            return input.trim();
+        }
+
+        StringBuilder out = SCRATCH.get();
+        out.setLength(0);
+        return stripHtmlTags(input, out).toString();
+    }
+
+    /**
+     * Append text with all tags removed and surrounding whitespace trimmed
+     *
+     * @param input Text to process
+     * @param out Builder to append to
+     * @return The builder
+     */
+    public static StringBuilder stripHtmlTags(CharSequence input, StringBuilder out) {
+        int start = out.length();
+        int length = input.length();
+        int i = 0;
+        while (i < length) {
+            char c = input.charAt(i);
+            if (c == '<') {
+                int close = indexOf(input, '>', i + 1);
+                if (close < 0) {
+                    // An unterminated tag is kept as text, along with everything after it
+                    for (; i < length; i++) {
+                        appendTrimmed(out, start, input.charAt(i));
+                    }
+                    break;
+                }
+                i = close + 1;
+                continue;
+            }
+            appendTrimmed(out, start, c);
+            i++;
+        }
+        return trimEnd(out, start);
+    }
+
+    /**
+     * @return Index just past a {@code <col=hex>} tag starting at {@code from}, or -1 if
+     * there is no such tag there
+     */
+    private static int colorTagEnd(CharSequence input, int from) {
+        int length = input.length();
+        int i = from + 1;
+        if (i + 4 > length || input.charAt(i) != 'c' || input.charAt(i + 1) != 'o'
+                || input.charAt(i + 2) != 'l' || input.charAt(i + 3) != '=') {
+            return -1;
+        }
+
+        i += 4;
+        int digits = i;
+        while (i < length && Character.digit(input.charAt(i), 16) >= 0 && input.charAt(i) < 0x80) {
+            i++;
+        }
+        if (i == digits || i >= length || input.charAt(i) != '>') {
+            return -1;
+        }
+        return i + 1;
+    }
+
+    private static int indexOf(CharSequence input, char c, int from) {
+        for (int i = from; i < input.length(); i++) {
+            if (input.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Append a character, dropping leading whitespace the way {@link String#trim()} does
+     */
+    private static void appendTrimmed(StringBuilder out, int start, char c) {
+        if (c > ' ' || out.length() > start) {
+            out.append(c);
+        }
+    }
+
+    private static StringBuilder trimEnd(StringBuilder out, int start) {
+        int end = out.length();
+        while (end > start && out.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        out.setLength(end);
+        return out;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,144 @@
+package com.MindRune.util;
+
+import lombok.extern.slf4j.Slf4j;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hashed timing wheel driven by the game tick.
+ *
+ * Listeners schedule expiry tasks for time-bounded correlation state here instead of
+ * scanning their own maps every tick. Each slot holds a doubly linked list of the
+ * timeouts due on ticks that map to it, so advancing only visits the timeouts in the
+ * current slot, and cancelling is O(1). Delays up to the number of slots are exact;
+ * longer ones stay in their slot for extra rotations. A task that throws is logged and
+ * does not keep the other due tasks from running.
+ *
+ * Not thread safe, all calls must come from the client thread.
+ */
+@Slf4j
+public class TickWheel {
+    private static final int SLOTS = 512;
+
+    private final Timeout[] slots = new Timeout[SLOTS];
+    private final List<Timeout> due = new ArrayList<>();
+    private long currentTick;
+
+    /**
+     * Run a task after a number of game ticks
+     *
+     * @param delayTicks Ticks to wait, at least 1
+     * @param task Task to run on the client thread
+     * @return Handle that can cancel the task
+     */
+    public Timeout schedule(int delayTicks, Runnable task) {
+        Timeout timeout = new Timeout(this, currentTick + Math.max(1, delayTicks), task);
+        int slot = slotOf(timeout.deadline);
+        timeout.next = slots[slot];
+        if (timeout.next != null) {
+            timeout.next.prev = timeout;
+        }
+        slots[slot] = timeout;
+        return timeout;
+    }
+
+    /**
+     * Move to the next game tick and run every task that is now due
+     */
+    public void advance() {
+        currentTick++;
+
+        // Unlink everything that is due first, tasks may schedule or cancel others
+        for (Timeout timeout = slots[slotOf(currentTick)]; timeout != null; ) {
+            Timeout next = timeout.next;
+            if (timeout.deadline <= currentTick) {
+                unlink(timeout);
+                due.add(timeout);
+            }
+            timeout = next;
+        }
+
+        try {
+            for (int i = 0; i < due.size(); i++) {
+                Timeout timeout = due.get(i);
+                if (!timeout.cancelled) {
+                    timeout.done = true;
+                    try {
+                        timeout.task.run();
+                    } catch (RuntimeException e) {
+                        log.error("Error running tick task", e);
+                    }
+                }
+            }
+        } finally {
+            due.clear();
+        }
+    }
+
+    /**
+     * Drop every scheduled task without running it
+     */
+    public void clear() {
+        for (int i = 0; i < SLOTS; i++) {
+            for (Timeout timeout = slots[i]; timeout != null; timeout = timeout.next) {
+                timeout.cancelled = true;
+                timeout.linked = false;
+            }
+            slots[i] = null;
+        }
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            slots[slotOf(timeout.deadline)] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.linked = false;
+    }
+
+    private static int slotOf(long tick) {
+        return (int) (tick & (SLOTS - 1));
+    }
+
+    /**
+     * A scheduled task
+     */
+    public static final class Timeout {
+        private final TickWheel wheel;
+        private final long deadline;
+        private final Runnable task;
+        private Timeout prev;
+        private Timeout next;
+        private boolean linked = true;
+        private boolean cancelled;
+        private boolean done;
+
+        private Timeout(TickWheel wheel, long deadline, Runnable task) {
+            this.wheel = wheel;
+            this.deadline = deadline;
+            this.task = task;
+        }
+
+        /**
+         * Cancel the task if it has not run yet
+         *
+         * @return true if the task was still pending
+         */
+        public boolean cancel() {
+            if (cancelled || done) {
+                return false;
+            }
+            cancelled = true;
+            if (linked) {
+                wheel.unlink(this);
+            }
+            return true;
+        }
+    }
+}
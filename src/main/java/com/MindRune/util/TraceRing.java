@@ -0,0 +1,128 @@
+package com.MindRune.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.helpers.MessageFormatter;
+
+/**
+ * Fixed-size ring of recent trace entries.
+ *
+ * Listeners record their per-event decisions here instead of logging them. Recording
+ * only stores the message template and its arguments in a preallocated entry, nothing
+ * is formatted until the ring is dumped to the log, which happens on demand or when a
+ * listener notices something went wrong. Once full, each new entry overwrites the oldest.
+ *
+ * Not thread safe, all calls must come from the client thread.
+ */
+@Slf4j
+public class TraceRing {
+    private final String name;
+    private final Entry[] entries;
+    private int next;
+    private int size;
+
+    /**
+     * @param name Name shown in dumps
+     * @param capacity Number of entries kept
+     */
+    public TraceRing(String name, int capacity) {
+        this.name = name;
+        this.entries = new Entry[capacity];
+        for (int i = 0; i < capacity; i++) {
+            entries[i] = new Entry();
+        }
+    }
+
+    public void record(String format) {
+        claim(format, 0, null, null, null, null);
+    }
+
+    public void record(String format, Object arg) {
+        claim(format, 1, arg, null, null, null);
+    }
+
+    public void record(String format, Object arg1, Object arg2) {
+        claim(format, 2, arg1, arg2, null, null);
+    }
+
+    public void record(String format, Object arg1, Object arg2, Object arg3) {
+        claim(format, 3, arg1, arg2, arg3, null);
+    }
+
+    /**
+     * Record an entry with more than three arguments
+     */
+    public void record(String format, Object... args) {
+        claim(format, -1, null, null, null, args);
+    }
+
+    /**
+     * Log every entry, oldest first, in a single log statement
+     *
+     * @param reason Why the ring is being dumped
+     */
+    public void dump(String reason) {
+        StringBuilder out = new StringBuilder(size * 64);
+        out.append(name).append(" trace (").append(reason).append("), ").append(size).append(" entries");
+
+        int start = (next - size + entries.length) % entries.length;
+        for (int i = 0; i < size; i++) {
+            Entry entry = entries[(start + i) % entries.length];
+            out.append('\n').append(entry.timestamp).append(' ')
+                    .append(MessageFormatter.arrayFormat(entry.format, entry.arguments()).getMessage());
+        }
+
+        log.info("{}", out);
+    }
+
+    public void clear() {
+        for (Entry entry : entries) {
+            entry.set(0, null, 0, null, null, null, null);
+        }
+        next = 0;
+        size = 0;
+    }
+
+    private void claim(String format, int argCount, Object arg1, Object arg2, Object arg3, Object[] args) {
+        entries[next].set(System.currentTimeMillis(), format, argCount, arg1, arg2, arg3, args);
+        next = (next + 1) % entries.length;
+        if (size < entries.length) {
+            size++;
+        }
+    }
+
+    private static final class Entry {
+        private long timestamp;
+        private String format;
+        private int argCount;
+        private Object arg1;
+        private Object arg2;
+        private Object arg3;
+        private Object[] args;
+
+        private void set(long timestamp, String format, int argCount,
+                         Object arg1, Object arg2, Object arg3, Object[] args) {
+            this.timestamp = timestamp;
+            this.format = format;
+            this.argCount = argCount;
+            this.arg1 = arg1;
+            this.arg2 = arg2;
+            this.arg3 = arg3;
+            this.args = args;
+        }
+
+        private Object[] arguments() {
+            switch (argCount) {
+                case 0:
+                    return new Object[0];
+                case 1:
+                    return new Object[]{arg1};
+                case 2:
+                    return new Object[]{arg1, arg2};
+                case 3:
+                    return new Object[]{arg1, arg2, arg3};
+                default:
+                    return args;
+            }
+        }
+    }
+}
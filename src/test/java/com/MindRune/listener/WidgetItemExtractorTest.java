@@ -0,0 +1,379 @@
+package com.MindRune.listener;
+
+import com.MindRune.model.ItemList;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import net.runelite.api.widgets.Widget;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class WidgetItemExtractorTest
+{
+	private WidgetItemExtractor extractor;
+
+	@Before
+	public void setUp()
+	{
+		extractor = new WidgetItemExtractor();
+	}
+
+	@Test
+	public void testSumsQuantitiesInFirstSeenOrder()
+	{
+		Node root = new Node(1);
+		root.children(item(1, 0, 995, 100), item(1, 1, 526, 1), item(1, 2, 995, 50), item(1, 3, 0, 5), item(1, 4, 560, 0));
+
+		assertEquals(2, extractor.extract(root.widget()));
+		assertItem(0, 995, 150);
+		assertItem(1, 526, 1);
+	}
+
+	@Test
+	public void testChildrenSharedWithDynamicChildren()
+	{
+		// The client hands out the same child widgets from both lists
+		Node root = new Node(1);
+		Node[] slots = {item(1, 0, 995, 100), item(1, 1, 526, 1), item(1, 2, 560, 30)};
+		root.children = widgets(slots);
+		root.dynamicChildren = root.children;
+
+		assertEquals(3, extractor.extract(root.widget()));
+		assertItem(0, 995, 100);
+		assertItem(1, 526, 1);
+		assertItem(2, 560, 30);
+	}
+
+	@Test
+	public void testChildrenCopiedIntoDynamicChildren()
+	{
+		Node root = new Node(1);
+		Node[] slots = {item(1, 0, 995, 100), item(1, 1, 526, 1)};
+		root.children = widgets(slots);
+		root.dynamicChildren = root.children.clone();
+
+		assertEquals(2, extractor.extract(root.widget()));
+		assertItem(0, 995, 100);
+		assertItem(1, 526, 1);
+	}
+
+	@Test
+	public void testSkipsHiddenSubtrees()
+	{
+		Node hidden = new Node(2);
+		hidden.hidden = true;
+		hidden.children(item(2, 0, 4151, 1));
+		Node visible = new Node(3);
+		visible.children(item(3, 0, 526, 1));
+		Node root = new Node(1);
+		root.staticChildren(hidden, visible);
+
+		assertEquals(1, extractor.extract(root.widget()));
+		assertItem(0, 526, 1);
+	}
+
+	@Test
+	public void testVisitsStaticThenRegularThenDynamicChildren()
+	{
+		Node root = new Node(1);
+		root.staticChildren(item(2, -1, 100, 1));
+		root.children(item(1, 0, 200, 1));
+		root.dynamicChildren = widgets(item(1, 1, 300, 1));
+
+		assertEquals(3, extractor.extract(root.widget()));
+		assertItem(0, 100, 1);
+		assertItem(1, 200, 1);
+		assertItem(2, 300, 1);
+	}
+
+	@Test
+	public void testDeepTree()
+	{
+		Node root = new Node(0);
+		Node parent = root;
+		for (int i = 1; i < 20_000; i++)
+		{
+			Node child = new Node(i);
+			parent.staticChildren(child);
+			parent = child;
+		}
+		parent.children(item(parent.id, 0, 995, 7));
+
+		assertEquals(1, extractor.extract(root.widget()));
+		assertItem(0, 995, 7);
+	}
+
+	@Test
+	public void testReuseReplacesResult()
+	{
+		Node first = new Node(1);
+		first.children(item(1, 0, 995, 100), item(1, 1, 526, 1));
+		Node second = new Node(1);
+		second.children(item(1, 0, 560, 30));
+
+		assertEquals(2, extractor.extract(first.widget()));
+		assertEquals(1, extractor.extract(second.widget()));
+		assertItem(0, 560, 30);
+	}
+
+	@Test
+	public void testMatchesRecursiveSearch()
+	{
+		for (Node root : new Node[]{toa(), cox(), barrows()})
+		{
+			ItemList expected = recursiveSearch(root.widget());
+			assertEquals(expected.size(), extractor.extract(root.widget()));
+			for (int i = 0; i < expected.size(); i++)
+			{
+				assertItem(i, expected.getItemId(i), expected.getQuantity(i));
+			}
+		}
+	}
+
+	/**
+	 * Time per extraction against the recursive search with string keys it replaced, on
+	 * trees shaped like the reward interfaces
+	 */
+	@Test
+	public void testBenchmarkRewardInterfaces()
+	{
+		String[] names = {"ToA", "CoX", "Barrows"};
+		Widget[] roots = {toa().widget(), cox().widget(), barrows().widget()};
+		for (int i = 0; i < roots.length; i++)
+		{
+			long extractorNanos = Long.MAX_VALUE;
+			long recursiveNanos = Long.MAX_VALUE;
+			int sink = 0;
+			for (int round = 0; round < 20; round++)
+			{
+				long start = System.nanoTime();
+				for (int n = 0; n < 200; n++)
+				{
+					sink += extractor.extract(roots[i]);
+				}
+				extractorNanos = Math.min(extractorNanos, System.nanoTime() - start);
+
+				start = System.nanoTime();
+				for (int n = 0; n < 200; n++)
+				{
+					sink += recursiveSearch(roots[i]).size();
+				}
+				recursiveNanos = Math.min(recursiveNanos, System.nanoTime() - start);
+			}
+			System.out.printf("%s: %d ns/extract, recursive search %d ns/extract (%d)%n",
+				names[i], extractorNanos / 200, recursiveNanos / 200, sink);
+		}
+	}
+
+	/**
+	 * Tombs of Amascut: layout layers around a chest container holding a slot per item,
+	 * reached through both the regular and the dynamic children
+	 */
+	private static Node toa()
+	{
+		int group = 773 << 16;
+		Node container = new Node(group | 1);
+		List<Node> slots = new ArrayList<>();
+		for (int i = 0; i < 32; i++)
+		{
+			slots.add(i < 12 ? item(group | 1, i, 560 + i % 6, 10 + i) : item(group | 1, i, -1, 0));
+		}
+		container.children = widgets(slots.toArray(new Node[0]));
+		container.dynamicChildren = container.children.clone();
+		return layers(group, container, 12);
+	}
+
+	/**
+	 * Chambers of Xeric: a handful of items in dynamic children under a deep layout
+	 */
+	private static Node cox()
+	{
+		int group = 539 << 16;
+		Node container = new Node(group | 1);
+		container.dynamicChildren = widgets(item(group | 1, 0, 21034, 1), item(group | 1, 1, 560, 2_500),
+			item(group | 1, 2, 565, 1_200), item(group | 1, 3, 21043, 1));
+		return layers(group, container, 20);
+	}
+
+	/**
+	 * Barrows: a row of item slots as regular children, with decorations alongside
+	 */
+	private static Node barrows()
+	{
+		int group = 155 << 16;
+		Node container = new Node(group | 1);
+		container.children(item(group | 1, 0, 995, 4_000), item(group | 1, 1, 558, 600), item(group | 1, 2, 4708, 1),
+			item(group | 1, 3, 562, 120), item(group | 1, 4, 995, 250), item(group | 1, 5, -1, 0));
+		return layers(group, container, 6);
+	}
+
+	/**
+	 * Wrap a container in layers of static widgets, each with a few empty siblings
+	 */
+	private static Node layers(int group, Node container, int depth)
+	{
+		Node inner = container;
+		for (int i = 0; i < depth; i++)
+		{
+			Node layer = new Node(group | (depth - i + 1));
+			Node[] siblings = new Node[4];
+			siblings[0] = inner;
+			for (int j = 1; j < siblings.length; j++)
+			{
+				siblings[j] = new Node(group | (100 + i * 4 + j));
+			}
+			layer.staticChildren(siblings);
+			inner = layer;
+		}
+		return inner;
+	}
+
+	private void assertItem(int index, int itemId, int quantity)
+	{
+		assertEquals(itemId, extractor.getItemId(index));
+		assertEquals(quantity, extractor.getQuantity(index));
+	}
+
+	/**
+	 * The search the reward listener used before the extractor
+	 */
+	private static ItemList recursiveSearch(Widget root)
+	{
+		ItemList items = new ItemList();
+		recursiveSearch(root, items, new HashSet<>());
+		return items;
+	}
+
+	private static void recursiveSearch(Widget widget, ItemList items, Set<String> processedWidgets)
+	{
+		if (widget == null || widget.isHidden())
+		{
+			return;
+		}
+
+		String widgetKey = widget.getId() + "_" + widget.getItemId() + "_" + widget.getRelativeX() + "_" + widget.getRelativeY();
+		if (processedWidgets.contains(widgetKey) && widget.getItemId() > 0)
+		{
+			return;
+		}
+		if (widget.getItemId() > 0)
+		{
+			processedWidgets.add(widgetKey);
+		}
+		if (widget.getItemId() > 0 && widget.getItemQuantity() > 0 && !items.merge(widget.getItemId(), widget.getItemQuantity()))
+		{
+			items.add(widget.getItemId(), null, widget.getItemQuantity());
+		}
+
+		for (Widget[] children : new Widget[][]{widget.getStaticChildren(), widget.getChildren(), widget.getDynamicChildren()})
+		{
+			if (children != null)
+			{
+				for (Widget child : children)
+				{
+					recursiveSearch(child, items, processedWidgets);
+				}
+			}
+		}
+	}
+
+	private static Node item(int id, int index, int itemId, int quantity)
+	{
+		Node node = new Node(id);
+		node.index = index;
+		node.itemId = itemId;
+		node.quantity = quantity;
+		// Laid out in a grid like an item container
+		node.x = index * 42 % 336;
+		node.y = index * 42 / 336 * 36;
+		return node;
+	}
+
+	private static Widget[] widgets(Node... nodes)
+	{
+		Widget[] widgets = new Widget[nodes.length];
+		for (int i = 0; i < nodes.length; i++)
+		{
+			widgets[i] = nodes[i].widget();
+		}
+		return widgets;
+	}
+
+	/**
+	 * Widget state, exposed through a proxy of the client's widget interface
+	 */
+	private static final class Node
+	{
+		private final int id;
+		private int index = -1;
+		private int itemId = -1;
+		private int quantity;
+		private int x;
+		private int y;
+		private boolean hidden;
+		private Widget[] staticChildren;
+		private Widget[] children;
+		private Widget[] dynamicChildren;
+		private Widget widget;
+
+		private Node(int id)
+		{
+			this.id = id;
+		}
+
+		private void staticChildren(Node... nodes)
+		{
+			staticChildren = widgets(nodes);
+		}
+
+		private void children(Node... nodes)
+		{
+			children = widgets(nodes);
+		}
+
+		private Widget widget()
+		{
+			if (widget == null)
+			{
+				widget = (Widget) Proxy.newProxyInstance(Widget.class.getClassLoader(), new Class<?>[]{Widget.class},
+					(proxy, method, args) ->
+					{
+						switch (method.getName())
+						{
+							case "getId":
+								return id;
+							case "getIndex":
+								return index;
+							case "getItemId":
+								return itemId;
+							case "getItemQuantity":
+								return quantity;
+							case "getRelativeX":
+								return x;
+							case "getRelativeY":
+								return y;
+							case "isHidden":
+								return hidden;
+							case "getStaticChildren":
+								return staticChildren;
+							case "getChildren":
+								return children;
+							case "getDynamicChildren":
+								return dynamicChildren;
+							case "hashCode":
+								return System.identityHashCode(proxy);
+							case "equals":
+								return proxy == args[0];
+							default:
+								throw new UnsupportedOperationException(method.getName());
+						}
+					});
+			}
+			return widget;
+		}
+	}
+}
@@ -0,0 +1,409 @@
+package com.MindRune.service;
+
+import com.MindRune.MindRuneConfig;
+import com.MindRune.MindRuneConfig.UploadCompression;
+import com.MindRune.MindRuneConfig.UploadFormat;
+import com.MindRune.model.HitSplatDetails;
+import com.MindRune.model.MenuClickDetails;
+import com.MindRune.model.XpGainDetails;
+import com.MindRune.util.BinaryFormat;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Proxy;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+import net.runelite.api.Client;
+import net.runelite.api.Player;
+import net.runelite.api.Skill;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Uploads against a local stand-in for the ingestion endpoint
+ */
+public class DataSenderServiceTest
+{
+	private static final int EVENTS = 300;
+	private static final long TIMEOUT_MS = 10_000;
+
+	private final Map<String, Object> settings = new HashMap<>();
+	private final BlockingQueue<Upload> uploads = new LinkedBlockingQueue<>();
+	private final ConcurrentLinkedQueue<Integer> responseCodes = new ConcurrentLinkedQueue<>();
+
+	private HttpServer server;
+	private Path directory;
+	private Client client;
+	private EventLogService eventLogService;
+	private EventSpoolService eventSpoolService;
+	private DataSenderService dataSenderService;
+
+	@Before
+	public void setUp() throws IOException
+	{
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/osrs/create", exchange ->
+		{
+			if (!exchange.getRequestMethod().equals("POST"))
+			{
+				// Connection prewarm. Not kept alive, the server may close it before it is reused.
+				exchange.getResponseHeaders().add("Connection", "close");
+				exchange.sendResponseHeaders(200, -1);
+				exchange.close();
+				return;
+			}
+
+			byte[] body;
+			try (InputStream in = exchange.getRequestBody())
+			{
+				body = in.readAllBytes();
+			}
+			uploads.add(new Upload(exchange.getRequestHeaders().getFirst("Content-Encoding"),
+				exchange.getRequestHeaders().getFirst("Content-Type"), body));
+
+			Integer code = responseCodes.poll();
+			byte[] response = "{}".getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(code != null ? code : 200, response.length);
+			try (OutputStream out = exchange.getResponseBody())
+			{
+				out.write(response);
+			}
+		});
+		server.start();
+
+		settings.put("uploadFormat", UploadFormat.JSON);
+		settings.put("maxBatchEvents", 1);
+		settings.put("maxBatchAge", 60);
+		settings.put("maxInFlightUploads", 1);
+		settings.put("registrationKey", "key");
+		MindRuneConfig config = (MindRuneConfig) Proxy.newProxyInstance(getClass().getClassLoader(),
+			new Class<?>[]{MindRuneConfig.class},
+			(proxy, method, args) -> settings.containsKey(method.getName())
+				? settings.get(method.getName())
+				: defaultValue(method.getReturnType()));
+
+		Player player = (Player) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Player.class},
+			(proxy, method, args) -> method.getName().equals("getName") ? "Zezima" : defaultValue(method.getReturnType()));
+		client = (Client) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Client.class},
+			(proxy, method, args) -> method.getName().equals("getLocalPlayer") ? player : defaultValue(method.getReturnType()));
+
+		directory = Files.createTempDirectory("mindrune-upload");
+		eventLogService = new EventLogService(Collections.emptyList());
+		eventSpoolService = new EventSpoolService(directory.toFile());
+		URI uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/osrs/create");
+		dataSenderService = new DataSenderService(uri, client, config, null, eventLogService, eventSpoolService);
+	}
+
+	@After
+	public void tearDown() throws IOException
+	{
+		dataSenderService.stopDataSender();
+		eventLogService.stop();
+		server.stop(0);
+		try (Stream<Path> paths = Files.walk(directory))
+		{
+			paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		}
+	}
+
+	@Test
+	public void testUncompressedUpload() throws Exception
+	{
+		settings.put("uploadCompression", UploadCompression.NONE);
+		send();
+
+		Upload upload = nextUpload();
+		assertNull(upload.encoding);
+		assertEquals("application/json", upload.contentType);
+		assertPayload(upload.body);
+		assertAcknowledged();
+	}
+
+	@Test
+	public void testGzipUpload() throws Exception
+	{
+		settings.put("uploadCompression", UploadCompression.GZIP);
+		send();
+
+		Upload upload = nextUpload();
+		assertEquals("gzip", upload.encoding);
+		byte[] payload = upload.decode();
+		assertPayload(payload);
+		assertAcknowledged();
+		report(upload, payload);
+	}
+
+	@Test
+	public void testDeflateUpload() throws Exception
+	{
+		settings.put("uploadCompression", UploadCompression.DEFLATE);
+		send();
+
+		Upload upload = nextUpload();
+		assertEquals("deflate", upload.encoding);
+		byte[] payload = upload.decode();
+		assertPayload(payload);
+		assertAcknowledged();
+		report(upload, payload);
+	}
+
+	@Test
+	public void testFallbackOnUnsupportedMediaType() throws Exception
+	{
+		assertFallback(415);
+	}
+
+	@Test
+	public void testFallbackOnBadRequest() throws Exception
+	{
+		assertFallback(400);
+	}
+
+	@Test
+	public void testBinaryUploadFallsBackToJson() throws Exception
+	{
+		settings.put("uploadFormat", UploadFormat.BINARY);
+		settings.put("uploadCompression", UploadCompression.NONE);
+		responseCodes.add(415);
+		send();
+
+		Upload rejected = nextUpload();
+		assertEquals(BinaryFormat.CONTENT_TYPE, rejected.contentType);
+		// The binary segment is converted to JSON record by record as it is sent
+		Upload retried = nextUpload();
+		assertEquals("application/json", retried.contentType);
+		assertNull(retried.encoding);
+		assertPayload(retried.body);
+		assertAcknowledged();
+	}
+
+	@Test
+	public void testServerErrorKeepsSegmentWithoutStrike() throws Exception
+	{
+		settings.put("uploadCompression", UploadCompression.NONE);
+		responseCodes.add(503);
+		send();
+
+		nextUpload();
+		awaitBatch();
+		assertEquals(1, eventSpoolService.getSealedSegments().size());
+		assertEquals(0, eventSpoolService.getRefusedSegmentCount());
+		assertFalse(new File(directory.toFile(), "rejected").exists());
+	}
+
+	@Test
+	public void testRefusedSegmentIsKeptForAnotherTry() throws Exception
+	{
+		settings.put("uploadCompression", UploadCompression.NONE);
+		responseCodes.add(422);
+		send();
+
+		nextUpload();
+		awaitBatch();
+		assertEquals(1, eventSpoolService.getSealedSegments().size());
+		assertEquals(1, eventSpoolService.getRefusedSegmentCount());
+		assertFalse(new File(directory.toFile(), "rejected").exists());
+	}
+
+	/**
+	 * A server that refuses the compressed body gets the same batch again uncompressed,
+	 * and later batches are not compressed either
+	 */
+	private void assertFallback(int responseCode) throws Exception
+	{
+		settings.put("uploadCompression", UploadCompression.GZIP);
+		responseCodes.add(responseCode);
+		send();
+
+		Upload rejected = nextUpload();
+		assertEquals("gzip", rejected.encoding);
+		Upload retried = nextUpload();
+		assertNull(retried.encoding);
+		assertEquals(new String(rejected.decode(), StandardCharsets.UTF_8), new String(retried.body, StandardCharsets.UTF_8));
+		assertPayload(retried.body);
+		assertAcknowledged();
+
+		// The sender is running, so these may go out in more than one batch
+		logEvents();
+		Upload next = nextUpload();
+		assertNull(next.encoding);
+		JsonArray array = JsonParser.parseString(new String(next.body, StandardCharsets.UTF_8)).getAsJsonArray();
+		assertEquals("Zezima", array.get(0).getAsJsonObject().get("playerName").getAsString());
+	}
+
+	/**
+	 * Queue a session's worth of events and start the sender, which uploads them as one batch
+	 */
+	private void send() throws InterruptedException
+	{
+		eventLogService.start();
+		logEvents();
+
+		// Events reach the log through the pipeline worker
+		long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+		while (eventLogService.getEventCount() < EVENTS && System.currentTimeMillis() < deadline)
+		{
+			Thread.sleep(10);
+		}
+		dataSenderService.startDataSender();
+	}
+
+	private void logEvents()
+	{
+		for (int i = 0; i < EVENTS; i++)
+		{
+			switch (i % 3)
+			{
+				case 0:
+					eventLogService.logEvent("MENU_CLICK", client, new MenuClickDetails("Attack", "Goblin", 3029));
+					break;
+				case 1:
+					eventLogService.logEvent("HIT_SPLAT", client, new HitSplatDetails(true, "Goblin", i % 12, 16));
+					break;
+				default:
+					eventLogService.logEvent("XP_GAIN", client, new XpGainDetails(Skill.ATTACK, 100_000 + i * 4, 4, 50));
+					break;
+			}
+		}
+	}
+
+	private Upload nextUpload() throws InterruptedException
+	{
+		Upload upload = uploads.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+		assertNotNull("No upload received", upload);
+		return upload;
+	}
+
+	private void assertPayload(byte[] payload)
+	{
+		JsonArray array = JsonParser.parseString(new String(payload, StandardCharsets.UTF_8)).getAsJsonArray();
+		assertEquals(EVENTS + 1, array.size());
+		assertEquals("Zezima", array.get(0).getAsJsonObject().get("playerName").getAsString());
+		assertEquals("MENU_CLICK", array.get(1).getAsJsonObject().get("eventType").getAsString());
+		assertEquals("Attack", array.get(1).getAsJsonObject().getAsJsonObject("details").get("action").getAsString());
+	}
+
+	private void awaitBatch() throws InterruptedException
+	{
+		long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+		while (dataSenderService.isUploading() && System.currentTimeMillis() < deadline)
+		{
+			Thread.sleep(10);
+		}
+		assertFalse(dataSenderService.isUploading());
+	}
+
+	private void assertAcknowledged() throws InterruptedException
+	{
+		long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+		while (eventSpoolService.hasSealedSegments() && System.currentTimeMillis() < deadline)
+		{
+			Thread.sleep(10);
+		}
+		assertFalse(eventSpoolService.hasSealedSegments());
+	}
+
+	/**
+	 * Print the compression ratio of the batch and the CPU time it takes to compress
+	 */
+	private static void report(Upload upload, byte[] payload) throws IOException
+	{
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		long cpuNanos = Long.MAX_VALUE;
+		for (int round = 0; round < 20; round++)
+		{
+			long start = threads.getCurrentThreadCpuTime();
+			ByteArrayOutputStream wire = new ByteArrayOutputStream();
+			try (OutputStream out = upload.encoding.equals("gzip") ? new GZIPOutputStream(wire, 8192) : new DeflaterOutputStream(wire))
+			{
+				out.write(payload);
+			}
+			cpuNanos = Math.min(cpuNanos, threads.getCurrentThreadCpuTime() - start);
+		}
+
+		System.out.printf("%s: %d events, %d bytes -> %d bytes (%.1fx), %d us CPU per batch%n",
+			upload.encoding, EVENTS, payload.length, upload.body.length,
+			(double) payload.length / upload.body.length, cpuNanos / 1000);
+		assertTrue(upload.body.length * 5 < payload.length);
+	}
+
+	private static Object defaultValue(Class<?> type)
+	{
+		if (type == boolean.class)
+		{
+			return false;
+		}
+		if (type == int.class)
+		{
+			return 0;
+		}
+		if (type == long.class)
+		{
+			return 0L;
+		}
+		return null;
+	}
+
+	private static final class Upload
+	{
+		private final String encoding;
+		private final String contentType;
+		private final byte[] body;
+
+		private Upload(String encoding, String contentType, byte[] body)
+		{
+			this.encoding = encoding;
+			this.contentType = contentType;
+			this.body = body;
+		}
+
+		private byte[] decode() throws IOException
+		{
+			InputStream in = new ByteArrayInputStream(body);
+			if ("gzip".equals(encoding))
+			{
+				in = new GZIPInputStream(in);
+			}
+			else if ("deflate".equals(encoding))
+			{
+				in = new InflaterInputStream(in);
+			}
+			try (InputStream decoded = in)
+			{
+				return decoded.readAllBytes();
+			}
+		}
+	}
+}
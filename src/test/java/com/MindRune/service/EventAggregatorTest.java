@@ -0,0 +1,198 @@
+package com.MindRune.service;
+
+import com.MindRune.MindRuneConfig;
+import com.MindRune.model.EventDetails;
+import com.MindRune.model.HitSplatDetails;
+import com.MindRune.model.XpGainDetails;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import net.runelite.api.Client;
+import net.runelite.api.Skill;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EventAggregatorTest
+{
+	private static final int WINDOW = 3;
+	private static final int SPLAT = 16;
+
+	private final Map<String, Object> settings = new HashMap<>();
+	private final List<String> logged = new ArrayList<>();
+
+	private EventAggregator aggregator;
+
+	@Before
+	public void setUp()
+	{
+		settings.put("aggregateEvents", true);
+		settings.put("aggregationWindow", WINDOW);
+		MindRuneConfig config = (MindRuneConfig) Proxy.newProxyInstance(getClass().getClassLoader(),
+			new Class<?>[]{MindRuneConfig.class},
+			(proxy, method, args) -> settings.get(method.getName()));
+		Client client = (Client) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Client.class},
+			(proxy, method, args) -> null);
+
+		// Records what would be queued, without the pipeline behind it
+		EventLogService eventLogService = new EventLogService(Collections.emptyList())
+		{
+			@Override
+			public void logEvent(String eventType, Client client, EventDetails details)
+			{
+				logged.add(event(eventType, details));
+			}
+		};
+		aggregator = new EventAggregator(client, eventLogService, config);
+	}
+
+	@Test
+	public void testWindowFlushesAfterWindowLength()
+	{
+		aggregator.addXp(Skill.ATTACK, 100, 10, 5);
+		aggregator.onTick();
+		aggregator.addXp(Skill.ATTACK, 125, 25, 5);
+		aggregator.addHit(true, "Goblin", 3, SPLAT);
+		aggregator.addHit(true, "Goblin", 0, SPLAT);
+		ticks(WINDOW - 2);
+		assertTrue(logged.isEmpty());
+
+		// The XP window opened a tick before the hitsplat window
+		aggregator.onTick();
+		assertEquals(List.of(xp(new XpGainDetails(Skill.ATTACK, 125, 35, 5, 2, 10, 25, WINDOW))), logged);
+		logged.clear();
+
+		aggregator.onTick();
+		assertEquals(List.of(hit(new HitSplatDetails(true, "Goblin", 3, SPLAT, 2, 0, 3, WINDOW))), logged);
+	}
+
+	@Test
+	public void testLevelUpFlushesBeforeNewDrop()
+	{
+		aggregator.addXp(Skill.MINING, 1000, 35, 40);
+		aggregator.addXp(Skill.MINING, 1035, 35, 40);
+		aggregator.onTick();
+
+		aggregator.addXp(Skill.MINING, 1070, 35, 41);
+		assertEquals(List.of(xp(new XpGainDetails(Skill.MINING, 1035, 70, 40, 2, 35, 35, 1))), logged);
+		logged.clear();
+
+		// The drop that levelled up starts a window of its own
+		ticks(WINDOW);
+		assertEquals(List.of(xp(new XpGainDetails(Skill.MINING, 1070, 35, 41))), logged);
+	}
+
+	@Test
+	public void testTargetChangeFlushesOldOpponent()
+	{
+		aggregator.addHit(true, "Goblin", 3, SPLAT);
+		aggregator.addHit(true, "Goblin", 5, SPLAT);
+		aggregator.addHit(true, "Goblin", 0, 12);
+		aggregator.addHit(false, "Goblin", 1, SPLAT);
+		aggregator.onTick();
+
+		aggregator.addHit(true, "Cow", 2, SPLAT);
+		assertEquals(2, logged.size());
+		assertTrue(logged.contains(hit(new HitSplatDetails(true, "Goblin", 8, SPLAT, 2, 3, 5, 1))));
+		assertTrue(logged.contains(hit(new HitSplatDetails(true, "Goblin", 0, 12))));
+		logged.clear();
+
+		// Hits taken from the old opponent are a separate window and stay open
+		ticks(WINDOW - 1);
+		assertEquals(List.of(hit(new HitSplatDetails(false, "Goblin", 1, SPLAT))), logged);
+		logged.clear();
+		aggregator.onTick();
+		assertEquals(List.of(hit(new HitSplatDetails(true, "Cow", 2, SPLAT))), logged);
+	}
+
+	@Test
+	public void testSingleEntryWindowIsUnaggregated()
+	{
+		aggregator.addXp(Skill.FISHING, 5000, 80, 60);
+		aggregator.addHit(false, null, 7, SPLAT);
+		ticks(WINDOW);
+
+		assertEquals(2, logged.size());
+		assertTrue(logged.contains(xp(new XpGainDetails(Skill.FISHING, 5000, 80, 60))));
+		assertTrue(logged.contains(hit(new HitSplatDetails(false, null, 7, SPLAT))));
+	}
+
+	@Test
+	public void testFlushAllWhenTurnedOff()
+	{
+		aggregator.addXp(Skill.ATTACK, 100, 10, 5);
+		aggregator.addXp(Skill.ATTACK, 110, 10, 5);
+		aggregator.addHit(true, "Goblin", 4, SPLAT);
+
+		settings.put("aggregateEvents", false);
+		aggregator.onTick();
+		assertEquals(2, logged.size());
+		assertTrue(logged.contains(xp(new XpGainDetails(Skill.ATTACK, 110, 20, 5, 2, 10, 10, 1))));
+		assertTrue(logged.contains(hit(new HitSplatDetails(true, "Goblin", 4, SPLAT))));
+		logged.clear();
+
+		// Nothing is held back any more
+		aggregator.addXp(Skill.ATTACK, 120, 10, 5);
+		aggregator.addHit(true, "Goblin", 1, SPLAT);
+		assertEquals(List.of(xp(new XpGainDetails(Skill.ATTACK, 120, 10, 5)),
+			hit(new HitSplatDetails(true, "Goblin", 1, SPLAT))), logged);
+		logged.clear();
+		ticks(WINDOW);
+		aggregator.flushAll();
+		assertTrue(logged.isEmpty());
+	}
+
+	@Test
+	public void testFlushAllLogsOpenWindows()
+	{
+		aggregator.addXp(Skill.ATTACK, 100, 10, 5);
+		aggregator.addHit(true, "Goblin", 4, SPLAT);
+		aggregator.flushAll();
+
+		assertEquals(2, logged.size());
+		logged.clear();
+		aggregator.flushAll();
+		assertTrue(logged.isEmpty());
+	}
+
+	private void ticks(int count)
+	{
+		for (int i = 0; i < count; i++)
+		{
+			aggregator.onTick();
+		}
+	}
+
+	private static String xp(XpGainDetails details)
+	{
+		return event("XP_GAIN", details);
+	}
+
+	private static String hit(HitSplatDetails details)
+	{
+		return event("HIT_SPLAT", details);
+	}
+
+	private static String event(String eventType, EventDetails details)
+	{
+		StringWriter out = new StringWriter();
+		try
+		{
+			details.writeJson(new JsonWriter(out));
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+		return eventType + " " + out;
+	}
+}
@@ -0,0 +1,142 @@
+package com.MindRune.service;
+
+import com.MindRune.MindRuneConfig.UploadFormat;
+import com.MindRune.model.GameEvent;
+import com.MindRune.model.MenuClickDetails;
+import com.MindRune.model.TickContext;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import net.runelite.api.Client;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EventSpoolServiceTest
+{
+	// Matches the backlog limit of the spool
+	private static final int MAX_SEALED_SEGMENTS = 64;
+
+	private Path directory;
+	private EventSpoolService spool;
+	private List<GameEvent> events;
+
+	@Before
+	public void setUp() throws IOException
+	{
+		directory = Files.createTempDirectory("mindrune-spool");
+		spool = new EventSpoolService(directory.toFile());
+		spool.open();
+
+		Client client = (Client) Proxy.newProxyInstance(getClass().getClassLoader(),
+			new Class<?>[]{Client.class},
+			(proxy, method, args) -> method.getReturnType() == int.class ? 0 : null);
+		events = Collections.singletonList(GameEvent.create("MENU_CLICK", TickContext.capture(client),
+			new MenuClickDetails("Walk here", "", 0)));
+	}
+
+	@After
+	public void tearDown() throws IOException
+	{
+		spool.close();
+		try (Stream<Path> paths = Files.walk(directory))
+		{
+			paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		}
+	}
+
+	@Test
+	public void testTrimDropsOldestSegment() throws IOException
+	{
+		File first = sealSegment();
+		File second = sealSegment();
+		for (int i = 2; i < MAX_SEALED_SEGMENTS; i++)
+		{
+			sealSegment();
+		}
+		assertEquals(MAX_SEALED_SEGMENTS, spool.getSealedSegments().size());
+
+		sealSegment();
+		assertEquals(MAX_SEALED_SEGMENTS, spool.getSealedSegments().size());
+		assertFalse(first.exists());
+		assertTrue(second.exists());
+	}
+
+	@Test
+	public void testTrimSkipsSegmentBeingUploaded() throws IOException
+	{
+		File first = sealSegment();
+		File second = sealSegment();
+		assertTrue(spool.beginUpload(first));
+		for (int i = 2; i <= MAX_SEALED_SEGMENTS; i++)
+		{
+			sealSegment();
+		}
+
+		assertEquals(MAX_SEALED_SEGMENTS, spool.getSealedSegments().size());
+		assertTrue(first.exists());
+		assertFalse(second.exists());
+		assertFalse(spool.beginUpload(second));
+
+		// Once the upload fails the segment is the oldest in the backlog again
+		spool.endUpload(first);
+		sealSegment();
+		assertFalse(first.exists());
+	}
+
+	@Test
+	public void testAcknowledgeDeletesSegment() throws IOException
+	{
+		File segment = sealSegment();
+		assertTrue(spool.beginUpload(segment));
+		spool.acknowledge(segment);
+
+		assertFalse(segment.exists());
+		assertFalse(spool.hasSealedSegments());
+	}
+
+	@Test
+	public void testRefusalsAreDroppedWithTheSegment() throws IOException
+	{
+		File trimmed = sealSegment();
+		File acknowledged = sealSegment();
+		File rejected = sealSegment();
+		assertEquals(1, spool.recordRefusal(trimmed));
+		assertEquals(2, spool.recordRefusal(trimmed));
+		assertEquals(1, spool.recordRefusal(acknowledged));
+		assertEquals(1, spool.recordRefusal(rejected));
+		assertEquals(3, spool.getRefusedSegmentCount());
+
+		spool.acknowledge(acknowledged);
+		spool.reject(rejected);
+		assertEquals(1, spool.getRefusedSegmentCount());
+		for (int i = 1; i <= MAX_SEALED_SEGMENTS; i++)
+		{
+			sealSegment();
+		}
+		assertFalse(trimmed.exists());
+		assertEquals(0, spool.getRefusedSegmentCount());
+
+		// A late response for a segment that has left the backlog is not recorded
+		assertEquals(0, spool.recordRefusal(trimmed));
+		assertEquals(0, spool.getRefusedSegmentCount());
+	}
+
+	private File sealSegment() throws IOException
+	{
+		spool.append(events, System.currentTimeMillis(), UploadFormat.JSON);
+		spool.seal();
+		List<File> sealed = spool.getSealedSegments();
+		return sealed.get(sealed.size() - 1);
+	}
+}
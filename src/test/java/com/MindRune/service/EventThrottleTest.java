@@ -0,0 +1,118 @@
+package com.MindRune.service;
+
+import com.MindRune.MindRuneConfig;
+import com.MindRune.model.GameEvent;
+import com.MindRune.model.MenuClickDetails;
+import com.MindRune.model.TickContext;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import net.runelite.api.Client;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class EventThrottleTest
+{
+	private String rateLimits;
+	private EventThrottle throttle;
+	private TickContext context;
+
+	@Before
+	public void setUp()
+	{
+		MindRuneConfig config = (MindRuneConfig) Proxy.newProxyInstance(getClass().getClassLoader(),
+			new Class<?>[]{MindRuneConfig.class},
+			(proxy, method, args) -> method.getName().equals("eventRateLimits") ? rateLimits : null);
+		Client client = (Client) Proxy.newProxyInstance(getClass().getClassLoader(),
+			new Class<?>[]{Client.class},
+			(proxy, method, args) -> method.getReturnType() == int.class ? 0 : null);
+
+		throttle = new EventThrottle(config);
+		context = TickContext.capture(client);
+	}
+
+	@Test
+	public void testUnthrottledTypePasses()
+	{
+		rateLimits = "";
+		GameEvent event = click("Walk here", 0);
+		assertEquals(event, throttle.process(event));
+		assertEquals(event, throttle.process(event));
+	}
+
+	@Test
+	public void testRepeatsAreSuppressed() throws IOException
+	{
+		rateLimits = "MENU_CLICK 0 1 60000";
+		assertNotNull(throttle.process(click("Walk here", 0)));
+		assertNull(throttle.process(click("Walk here", 0)));
+		assertNull(throttle.process(click("Walk here", 0)));
+
+		// A different click under the same option carries the count of the dropped ones
+		GameEvent next = throttle.process(click("Walk here", 1));
+		assertNotNull(next);
+		assertTrue(json(next).contains("\"suppressed\":2"));
+	}
+
+	@Test
+	public void testRuleEditKeepsState() throws IOException
+	{
+		rateLimits = "MENU_CLICK 0 1 60000";
+		assertNotNull(throttle.process(click("Walk here", 0)));
+		assertNull(throttle.process(click("Walk here", 0)));
+
+		rateLimits = "MENU_CLICK 0 2 60000";
+		assertNull(throttle.process(click("Walk here", 0)));
+
+		GameEvent next = throttle.process(click("Walk here", 1));
+		assertNotNull(next);
+		assertTrue(json(next).contains("\"suppressed\":2"));
+	}
+
+	@Test
+	public void testRuleEditClampsTokens()
+	{
+		rateLimits = "MENU_CLICK 0.001 3 0";
+		assertNotNull(throttle.process(click("Walk here", 0)));
+
+		rateLimits = "MENU_CLICK 0.001 1 0";
+		assertNotNull(throttle.process(click("Walk here", 1)));
+		assertNull(throttle.process(click("Walk here", 2)));
+	}
+
+	@Test
+	public void testFlushLogsLastDroppedEvent() throws IOException
+	{
+		rateLimits = "MENU_CLICK 0 1 60000";
+		assertNotNull(throttle.process(click("Walk here", 0)));
+		assertNull(throttle.process(click("Walk here", 0)));
+		assertNull(throttle.process(click("Walk here", 0)));
+		assertNull(throttle.process(click("Walk here", 0)));
+		assertNotNull(throttle.process(click("Use", 0)));
+
+		List<GameEvent> held = throttle.flush();
+		assertEquals(1, held.size());
+		assertTrue(json(held.get(0)).contains("\"action\":\"Walk here\""));
+		assertTrue(json(held.get(0)).contains("\"suppressed\":2"));
+		assertTrue(throttle.flush().isEmpty());
+	}
+
+	private GameEvent click(String action, int id)
+	{
+		return GameEvent.create("MENU_CLICK", context, new MenuClickDetails(action, "", id));
+	}
+
+	private static String json(GameEvent event) throws IOException
+	{
+		StringWriter out = new StringWriter();
+		event.writeJson(new JsonWriter(out));
+		return out.toString();
+	}
+}
@@ -0,0 +1,298 @@
+package com.MindRune.service;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntFunction;
+import net.runelite.api.ObjectID;
+import net.runelite.api.Skill;
+import net.runelite.api.widgets.InterfaceID;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the bundled definitions against the tables RewardListener used to hard-code
+ */
+public class RewardRegistryTest
+{
+	private static final List<String> ITEM_OPTIONS = List.of("Open", "Search", "Loot");
+
+	private RewardRegistry registry;
+
+	@Before
+	public void setUp()
+	{
+		registry = RewardRegistry.load();
+	}
+
+	@Test
+	public void testInterfaces()
+	{
+		// Named constants first, then the raw group IDs, which win where both are given
+		Map<Integer, String> expected = new HashMap<>();
+		expected.put(InterfaceID.BARROWS_REWARD, "Barrows");
+		expected.put(InterfaceID.CHAMBERS_OF_XERIC_REWARD, "Chambers of Xeric");
+		expected.put(InterfaceID.TOB_REWARD, "Theatre of Blood");
+		expected.put(InterfaceID.TOA_REWARD, "Tombs of Amascut");
+		expected.put(InterfaceID.KINGDOM, "Kingdom of Miscellania");
+		expected.put(InterfaceID.TRAWLER_REWARD, "Fishing Trawler");
+		expected.put(InterfaceID.DRIFT_NET_FISHING_REWARD, "Drift Net");
+		expected.put(InterfaceID.WILDERNESS_LOOT_CHEST, "Loot Chest");
+		expected.put(InterfaceID.LUNAR_CHEST, "Lunar Chest");
+		expected.put(InterfaceID.FORTIS_COLOSSEUM_REWARD, "Fortis Colosseum");
+		expected.put(155, "Barrows");
+		expected.put(291, "Chambers of Xeric");
+		expected.put(235, "Theatre of Blood");
+		expected.put(289, "Tombs of Amascut");
+		expected.put(81, "Kingdom of Miscellania");
+		expected.put(371, "Fishing Trawler");
+		expected.put(334, "Wintertodt");
+		expected.put(426, "Shooting Star");
+		expected.put(422, "Brimstone Chest");
+		expected.put(982, "Mahogany Homes");
+		expected.put(540, "Giant's Foundry");
+		expected.put(746, "Guardians of the Rift");
+		expected.put(611, "Volcanic Mine");
+		expected.put(668, "Hallowed Sepulchre");
+		expected.put(730, "Moons of Peril");
+		expected.put(868, "Lunar Chest");
+
+		assertTable(expected, 4096, registry::getInterfaceSource);
+	}
+
+	@Test
+	public void testShadeChests()
+	{
+		Map<Integer, String> expected = new HashMap<>();
+		expected.put(ObjectID.BRONZE_CHEST, "Bronze key red");
+		expected.put(ObjectID.BRONZE_CHEST_4112, "Bronze key brown");
+		expected.put(ObjectID.BRONZE_CHEST_4113, "Bronze key crimson");
+		expected.put(ObjectID.BRONZE_CHEST_4114, "Bronze key black");
+		expected.put(ObjectID.BRONZE_CHEST_4115, "Bronze key purple");
+		expected.put(ObjectID.STEEL_CHEST, "Steel key red");
+		expected.put(ObjectID.STEEL_CHEST_4117, "Steel key brown");
+		expected.put(ObjectID.STEEL_CHEST_4118, "Steel key crimson");
+		expected.put(ObjectID.STEEL_CHEST_4119, "Steel key black");
+		expected.put(ObjectID.STEEL_CHEST_4120, "Steel key purple");
+		expected.put(ObjectID.BLACK_CHEST, "Black key red");
+		expected.put(ObjectID.BLACK_CHEST_4122, "Black key brown");
+		expected.put(ObjectID.BLACK_CHEST_4123, "Black key crimson");
+		expected.put(ObjectID.BLACK_CHEST_4124, "Black key black");
+		expected.put(ObjectID.BLACK_CHEST_4125, "Black key purple");
+		expected.put(ObjectID.SILVER_CHEST, "Silver key red");
+		expected.put(ObjectID.SILVER_CHEST_4127, "Silver key brown");
+		expected.put(ObjectID.SILVER_CHEST_4128, "Silver key crimson");
+		expected.put(ObjectID.SILVER_CHEST_4129, "Silver key black");
+		expected.put(ObjectID.SILVER_CHEST_4130, "Silver key purple");
+		expected.put(ObjectID.GOLD_CHEST, "Gold key red");
+		expected.put(ObjectID.GOLD_CHEST_41213, "Gold key brown");
+		expected.put(ObjectID.GOLD_CHEST_41214, "Gold key crimson");
+		expected.put(ObjectID.GOLD_CHEST_41215, "Gold key black");
+		expected.put(ObjectID.GOLD_CHEST_41216, "Gold key purple");
+
+		for (Map.Entry<Integer, String> entry : expected.entrySet())
+		{
+			assertEquals(entry.getValue(), registry.getShadeChestSource(entry.getKey()));
+		}
+		assertNull(registry.getShadeChestSource(-1));
+	}
+
+	@Test
+	public void testChestRegions()
+	{
+		assertTable(baselineChestRegions(), 1 << 16, registry::getChestSource);
+	}
+
+	@Test
+	public void testBirdhouses()
+	{
+		assertTable(baselineBirdhouses(), 2000, registry::getBirdhouseSource);
+	}
+
+	@Test
+	public void testItems()
+	{
+		// Items opened under a source of their own
+		Map<Integer, String> sources = new HashMap<>();
+		sources.put(405, "Casket");
+		sources.put(20703, "Supply crate (Wintertodt)");
+		sources.put(24420, "Supply crate (Wintertodt)");
+		sources.put(23951, "Spoils of war");
+		sources.put(25590, "Casket (Tempoross)");
+		sources.put(25516, "Hallowed Sack");
+		sources.put(24884, "Supply crate (Mahogany Homes)");
+		sources.put(27693, "Ore Pack (Volcanic Mine)");
+		sources.put(12109, "Bag full of gems (Percy)");
+		sources.put(24853, "Bag full of gems (Belona)");
+		sources.put(25537, "Bag full of gems (Dusuri)");
+		for (Map.Entry<Integer, String> entry : sources.entrySet())
+		{
+			RewardRegistry.ItemReward reward = itemReward(entry.getKey());
+			assertEquals(entry.getValue(), reward.getSource());
+			assertEquals(RewardRegistry.ItemAction.SNAPSHOT, reward.getAction());
+			assertTriggeredBy(reward, ITEM_OPTIONS);
+		}
+		assertEquals(Skill.CONSTRUCTION, itemReward(24884).getSkill());
+		assertNull(itemReward(405).getSkill());
+
+		// Seed packs are taken as well as opened
+		RewardRegistry.ItemReward seedPack = itemReward(22866);
+		assertEquals("Seed pack", seedPack.getSource());
+		assertTriggeredBy(seedPack, List.of("Take", "Take-all", "Open"));
+
+		// Items opened under their own name
+		int[] named = {21511, 23083, 25647, 25649, 25651, 25638, 25642, 25644, 27291, 27293, 27295,
+			27417, 27418, 27419, 27420, 27421, 27422, 27423, 27424, 27425};
+		for (int id : named)
+		{
+			RewardRegistry.ItemReward reward = itemReward(id);
+			assertNull(reward.getSource());
+			assertEquals(RewardRegistry.ItemAction.SNAPSHOT, reward.getAction());
+			assertTriggeredBy(reward, ITEM_OPTIONS);
+		}
+
+		for (int id : new int[]{27606, 28354, 28355, 28356, 28357})
+		{
+			RewardRegistry.ItemReward reward = itemReward(id);
+			assertNull(reward.getSource());
+			assertEquals(RewardRegistry.ItemAction.HUNTER_SACK, reward.getAction());
+			assertTriggeredBy(reward, ITEM_OPTIONS);
+		}
+
+		for (int id : new int[]{5070, 5071, 5072, 5073, 5074, 7413, 13653, 22798, 22800})
+		{
+			RewardRegistry.ItemReward reward = itemReward(id);
+			assertEquals("Bird nest", reward.getSource());
+			assertTriggeredBy(reward, List.of("Search"));
+			assertFalse(reward.isTriggeredBy("Open"));
+			assertFalse(registry.isImplingJar(id));
+		}
+
+		for (int id : new int[]{11238, 11240, 11242, 11244, 11246, 11248, 11250, 11252, 11254, 23748, 11256, 19732})
+		{
+			RewardRegistry.ItemReward reward = itemReward(id);
+			assertTrue(registry.isImplingJar(id));
+			assertNull(reward.getSource());
+			assertTriggeredBy(reward, List.of("Loot"));
+			assertFalse(reward.isTriggeredBy("Open"));
+		}
+
+		assertNull(registry.getItemReward(995));
+		assertFalse(registry.isImplingJar(995));
+	}
+
+	@Test
+	public void testInventorySources()
+	{
+		Set<String> expected = new HashSet<>(List.of(
+			"Wintertodt",
+			"Reward pool (Tempoross)",
+			"Guardians of the Rift",
+			"Hallowed Sepulchre",
+			"Coffin (Hallowed Sepulchre)",
+			"Volcanic Mine",
+			"Mahogany Homes",
+			"Herbiboar",
+			"Hespori",
+			"Clue Scroll (Beginner)",
+			"Clue Scroll (Easy)",
+			"Clue Scroll (Medium)",
+			"Clue Scroll (Hard)",
+			"Clue Scroll (Elite)",
+			"Clue Scroll (Master)",
+			"Casket",
+			"Seed pack",
+			"Barbarian Assault high gamble"));
+		expected.addAll(baselineChestRegions().values());
+		expected.addAll(baselineBirdhouses().values());
+		for (String color : new String[]{"Bronze", "Steel", "Black", "Silver", "Gold"})
+		{
+			for (String trim : new String[]{"red", "brown", "crimson", "black", "purple"})
+			{
+				expected.add(color + " key " + trim);
+			}
+		}
+
+		for (String source : expected)
+		{
+			assertTrue(source, registry.shouldTrackInventory(source));
+		}
+		// Sources with a reward interface are read from the interface instead
+		assertFalse(registry.shouldTrackInventory("Barrows"));
+		assertFalse(registry.shouldTrackInventory("Lunar Chest"));
+		assertFalse(registry.shouldTrackInventory("Casket (Tempoross)"));
+	}
+
+	private RewardRegistry.ItemReward itemReward(int itemId)
+	{
+		RewardRegistry.ItemReward reward = registry.getItemReward(itemId);
+		assertNotNull("item " + itemId, reward);
+		return reward;
+	}
+
+	private static void assertTriggeredBy(RewardRegistry.ItemReward reward, List<String> options)
+	{
+		for (String option : options)
+		{
+			assertTrue(option, reward.isTriggeredBy(option));
+		}
+		assertFalse(reward.isTriggeredBy("Drop"));
+	}
+
+	/**
+	 * Every key below the limit maps to the expected value, or to null if it has none
+	 */
+	private static void assertTable(Map<Integer, String> expected, int limit, IntFunction<String> lookup)
+	{
+		for (int key = 0; key < limit; key++)
+		{
+			assertEquals("key " + key, expected.get(key), lookup.apply(key));
+		}
+	}
+
+	private static Map<Integer, String> baselineChestRegions()
+	{
+		Map<Integer, String> regions = new HashMap<>();
+		regions.put(5179, "Brimstone Chest");
+		regions.put(11573, "Crystal Chest");
+		regions.put(12093, "Larran's big chest");
+		regions.put(12127, "The Gauntlet");
+		regions.put(13113, "Larran's small chest");
+		regions.put(13151, "Elven Crystal Chest");
+		regions.put(5277, "Stone chest");
+		regions.put(10835, "Dorgesh-Kaan Chest");
+		regions.put(10834, "Dorgesh-Kaan Chest");
+		regions.put(7323, "Grubby Chest");
+		regions.put(8593, "Isle of Souls Chest");
+		regions.put(7827, "Dark Chest");
+		regions.put(13117, "Rogues' Chest");
+		regions.put(13156, "Chest (Ancient Vault)");
+		regions.put(12348, "Muddy Chest");
+		regions.put(5422, "Chest (Aldarin Villas)");
+		regions.put(6550, "Chest (Moon key)");
+		return regions;
+	}
+
+	private static Map<Integer, String> baselineBirdhouses()
+	{
+		Map<Integer, String> birdhouses = new HashMap<>();
+		birdhouses.put(280, "Regular Bird House");
+		birdhouses.put(420, "Oak Bird House");
+		birdhouses.put(560, "Willow Bird House");
+		birdhouses.put(700, "Teak Bird House");
+		birdhouses.put(820, "Maple Bird House");
+		birdhouses.put(960, "Mahogany Bird House");
+		birdhouses.put(1020, "Yew Bird House");
+		birdhouses.put(1140, "Magic Bird House");
+		birdhouses.put(1200, "Redwood Bird House");
+		return birdhouses;
+	}
+}
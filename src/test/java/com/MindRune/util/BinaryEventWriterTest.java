@@ -0,0 +1,323 @@
+package com.MindRune.util;
+
+import com.MindRune.model.GameEvent;
+import com.MindRune.model.HitSplatDetails;
+import com.MindRune.model.InventoryChangeDetails;
+import com.MindRune.model.ItemList;
+import com.MindRune.model.JsonDetails;
+import com.MindRune.model.MenuClickDetails;
+import com.MindRune.model.MonsterKillDetails;
+import com.MindRune.model.RewardDetails;
+import com.MindRune.model.TickContext;
+import com.MindRune.model.XpGainDetails;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import net.runelite.api.Client;
+import net.runelite.api.Player;
+import net.runelite.api.Skill;
+import net.runelite.api.coords.WorldPoint;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Every event written in the binary format must transcode to exactly the JSON the event
+ * writes itself, since the server and the JSON fallback both depend on it.
+ */
+public class BinaryEventWriterTest
+{
+	private static final long BASE_MILLIS = 1_700_000_000_000L;
+
+	private TickContext located;
+	private TickContext unlocated;
+
+	@Before
+	public void setUp()
+	{
+		located = context(new WorldPoint(3222, 3218, 0));
+		unlocated = context(null);
+	}
+
+	@Test
+	public void testXpGain() throws IOException
+	{
+		assertRoundTrip(GameEvent.create("XP_GAIN", located, new XpGainDetails(Skill.ATTACK, 13_034_431, 40, 99)));
+		assertRoundTrip(GameEvent.create("XP_GAIN", located,
+			new XpGainDetails(Skill.FISHING, 1_210_421, 1_100, 80, 11, 90, 110, 10)));
+	}
+
+	@Test
+	public void testHitSplat() throws IOException
+	{
+		assertRoundTrip(GameEvent.create("HIT_SPLAT", located, new HitSplatDetails(true, "Goblin", 3, 16)));
+		assertRoundTrip(GameEvent.create("HIT_SPLAT", located, new HitSplatDetails(false, null, 0, 12)));
+		assertRoundTrip(GameEvent.create("HIT_SPLAT", located,
+			new HitSplatDetails(true, "Vet'ion", 312, 16, 9, 0, 61, 10)));
+	}
+
+	@Test
+	public void testMenuClick() throws IOException
+	{
+		assertRoundTrip(GameEvent.create("MENU_CLICK", located, new MenuClickDetails("Walk here", "", 0)));
+		assertRoundTrip(GameEvent.create("MENU_CLICK", unlocated,
+			new MenuClickDetails("Talk-to", "\u00c6rik the \"Bold\" \u2192 \\", 2713)));
+	}
+
+	@Test
+	public void testInventoryChange() throws IOException
+	{
+		assertRoundTrip(GameEvent.create("INVENTORY_CHANGE", located,
+			new InventoryChangeDetails(995, "Coins", -1_500, "STACK")));
+		assertRoundTrip(GameEvent.create("INVENTORY_CHANGE", located,
+			new InventoryChangeDetails(526, null, 1, "ADD")));
+		assertRoundTrip(GameEvent.create("INVENTORY_CHANGE", located,
+			new InventoryChangeDetails(385, "Shark", 2, "MOVE", new int[]{0, 27}, new int[]{3, 4})));
+	}
+
+	@Test
+	public void testMonsterKill() throws IOException
+	{
+		ItemList loot = new ItemList();
+		loot.add(526, "Bones", 1);
+		loot.add(995, null, 2_147_000_000);
+		assertRoundTrip(GameEvent.create("MONSTER_KILL", located,
+			new MonsterKillDetails("Goblin", 3029, 2, new WorldPoint(3250, 3235, 0), "kill-1", loot)));
+		assertRoundTrip(GameEvent.create("MONSTER_KILL", located,
+			new MonsterKillDetails("The Whisperer", 12204, 1100, null, "kill-2", new ItemList())));
+	}
+
+	@Test
+	public void testReward() throws IOException
+	{
+		RewardDetails minimal = new RewardDetails("Barrows", BASE_MILLIS + 5_000);
+		minimal.setItems(new ItemList());
+		assertRoundTrip(GameEvent.create("REWARD", located, minimal));
+
+		ItemList items = new ItemList();
+		items.add(25975, "Lightbearer", 1);
+		items.add(560, "Death rune", 500);
+		RewardDetails full = new RewardDetails("Tombs of Amascut", BASE_MILLIS + 6_000);
+		full.setItems(items);
+		full.setCompletion(42, "Your completed Tombs of Amascut count is: 42.");
+		full.setSkillLevel(77);
+		full.setRaidInfo(500, 3, 21_000);
+		full.setHunterLootLevels(70, 60, 80);
+		full.setRewardId("reward-7");
+		assertRoundTrip(GameEvent.create("REWARD", located, full));
+	}
+
+	@Test
+	public void testJsonDetails() throws IOException
+	{
+		JsonObject quest = new JsonObject();
+		quest.addProperty("questName", "Dragon Slayer I");
+		assertRoundTrip(GameEvent.create("QUEST_COMPLETION", located, new JsonDetails(quest)));
+
+		// Unknown event type and keys are written inline, with every value type
+		JsonObject custom = new JsonObject();
+		custom.addProperty("flag", true);
+		custom.addProperty("off", false);
+		custom.addProperty("negative", -70_000);
+		custom.addProperty("large", 1L << 40);
+		custom.addProperty("ratio", 0.375);
+		JsonArray list = new JsonArray();
+		list.add("one");
+		list.add(2);
+		list.add(new JsonObject());
+		list.add(new JsonArray());
+		custom.add("list", list);
+		assertRoundTrip(GameEvent.create("CUSTOM_EVENT", unlocated, new JsonDetails(custom)));
+	}
+
+	@Test
+	public void testSuppressed() throws IOException
+	{
+		assertRoundTrip(GameEvent.create("MENU_CLICK", located, new MenuClickDetails("Attack", "Goblin", 3029))
+			.withSuppressed(17));
+	}
+
+	@Test
+	public void testSegment() throws IOException
+	{
+		List<GameEvent> events = session(200);
+		assertEquals(json(events), transcode(binary(events)));
+	}
+
+	/**
+	 * Bytes per event and encode time per event against Gson for a mixed session. The
+	 * Gson figures serialize trees built beforehand, as the events used to be sent.
+	 */
+	@Test
+	public void testBenchmarkMixedSession() throws IOException
+	{
+		List<GameEvent> events = session(1_000);
+		Gson gson = new Gson();
+		List<JsonElement> trees = new ArrayList<>();
+		for (GameEvent event : events)
+		{
+			trees.add(JsonParser.parseString(json(event)));
+		}
+
+		int binaryBytes = binary(events).length;
+		int jsonBytes = json(events).getBytes(StandardCharsets.UTF_8).length;
+		int gsonBytes = gson.toJson(trees).getBytes(StandardCharsets.UTF_8).length;
+
+		long binaryNanos = Long.MAX_VALUE;
+		long jsonNanos = Long.MAX_VALUE;
+		long gsonNanos = Long.MAX_VALUE;
+		for (int round = 0; round < 30; round++)
+		{
+			long start = System.nanoTime();
+			binary(events);
+			binaryNanos = Math.min(binaryNanos, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			json(events);
+			jsonNanos = Math.min(jsonNanos, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			gson.toJson(trees);
+			gsonNanos = Math.min(gsonNanos, System.nanoTime() - start);
+		}
+
+		int count = events.size();
+		System.out.printf("binary: %d bytes/event, %d ns/event%n", binaryBytes / count, binaryNanos / count);
+		System.out.printf("json:   %d bytes/event, %d ns/event%n", jsonBytes / count, jsonNanos / count);
+		System.out.printf("gson:   %d bytes/event, %d ns/event%n", gsonBytes / count, gsonNanos / count);
+		assertTrue(binaryBytes * 2 < gsonBytes);
+	}
+
+	private void assertRoundTrip(GameEvent event) throws IOException
+	{
+		List<GameEvent> events = Arrays.asList(event);
+		assertEquals(json(events), transcode(binary(events)));
+	}
+
+	/**
+	 * Events in roughly the mix of a combat and skilling session
+	 */
+	private List<GameEvent> session(int count)
+	{
+		String[] opponents = {"Goblin", "Hill Giant", "Vet'ion", null};
+		Skill[] skills = Skill.values();
+		List<GameEvent> events = new ArrayList<>(count);
+		for (int i = 0; i < count; i++)
+		{
+			TickContext context = context(new WorldPoint(3200 + i % 50, 3200 + i % 30, 0));
+			switch (i % 10)
+			{
+				case 0:
+				case 1:
+				case 2:
+					events.add(GameEvent.create("MENU_CLICK", context,
+						new MenuClickDetails(i % 3 == 0 ? "Walk here" : "Attack", opponents[i % 3], i)));
+					break;
+				case 3:
+				case 4:
+				case 5:
+					events.add(GameEvent.create("HIT_SPLAT", context,
+						new HitSplatDetails(i % 2 == 0, opponents[i % 4], i % 40, 16)));
+					break;
+				case 6:
+				case 7:
+					events.add(GameEvent.create("XP_GAIN", context,
+						new XpGainDetails(skills[i % skills.length], 1_000_000 + i * 40, 40, 80)));
+					break;
+				case 8:
+					events.add(GameEvent.create("INVENTORY_CHANGE", context,
+						new InventoryChangeDetails(526, "Bones", 1, "ADD")));
+					break;
+				default:
+					ItemList loot = new ItemList();
+					loot.add(526, "Bones", 1);
+					loot.add(995, "Coins", i);
+					events.add(GameEvent.create("MONSTER_KILL", context,
+						new MonsterKillDetails("Goblin", 3029, 2, new WorldPoint(3250, 3235, 0), "kill-" + i, loot)));
+					break;
+			}
+		}
+		return events;
+	}
+
+	private static TickContext context(WorldPoint location)
+	{
+		ClassLoader loader = BinaryEventWriterTest.class.getClassLoader();
+		Player player = location == null ? null : (Player) Proxy.newProxyInstance(loader, new Class<?>[]{Player.class},
+			(proxy, method, args) -> method.getName().equals("getWorldLocation") ? location : null);
+		Client client = (Client) Proxy.newProxyInstance(loader, new Class<?>[]{Client.class},
+			(proxy, method, args) ->
+			{
+				if (method.getName().equals("getLocalPlayer"))
+				{
+					return player;
+				}
+				return method.getReturnType() == int.class ? 0 : null;
+			});
+		return TickContext.capture(client);
+	}
+
+	/**
+	 * @return Events as spooled JSON records
+	 */
+	private static String json(List<GameEvent> events) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		JsonWriter writer = new JsonWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		writer.setLenient(true);
+		for (GameEvent event : events)
+		{
+			writer.flush();
+			out.write(',');
+			event.writeJson(writer);
+			writer.flush();
+			out.write('\n');
+		}
+		return out.toString(StandardCharsets.UTF_8.name());
+	}
+
+	private static String json(GameEvent event) throws IOException
+	{
+		String record = json(Arrays.asList(event));
+		return record.substring(1, record.length() - 1);
+	}
+
+	/**
+	 * @return Events as a binary segment
+	 */
+	private static byte[] binary(List<GameEvent> events) throws IOException
+	{
+		ByteArrayOutputStream segment = new ByteArrayOutputStream();
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		BinaryEventWriter writer = new BinaryEventWriter(body);
+		BinaryFormat.writeSegmentHeader(segment, BASE_MILLIS);
+		for (GameEvent event : events)
+		{
+			body.reset();
+			event.writeBinary(writer, BASE_MILLIS);
+			BinaryFormat.writeVarint(segment, body.size());
+			body.writeTo(segment);
+		}
+		return segment.toByteArray();
+	}
+
+	private static String transcode(byte[] segment) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryEventReader.transcodeToJson(segment, out);
+		return out.toString(StandardCharsets.UTF_8.name());
+	}
+}
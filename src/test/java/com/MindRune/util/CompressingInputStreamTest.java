@@ -0,0 +1,192 @@
+package com.MindRune.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CompressingInputStreamTest
+{
+	private static final int[] SIZES = {0, 1, 100, 8191, 8192, 8193, 300_000};
+
+	@Test
+	public void testGzipRoundTrip() throws IOException
+	{
+		Random random = new Random(3);
+		for (int size : SIZES)
+		{
+			byte[] data = records(size);
+			byte[] compressed = readAll(CompressingInputStream.gzip(new ByteArrayInputStream(data)), random);
+			try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed)))
+			{
+				assertArrayEquals("size " + size, data, in.readAllBytes());
+			}
+		}
+	}
+
+	@Test
+	public void testDeflateRoundTrip() throws IOException
+	{
+		Random random = new Random(5);
+		for (int size : SIZES)
+		{
+			byte[] data = records(size);
+			byte[] compressed = readAll(CompressingInputStream.deflate(new ByteArrayInputStream(data)), random);
+			try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(compressed)))
+			{
+				assertArrayEquals("size " + size, data, in.readAllBytes());
+			}
+		}
+	}
+
+	@Test
+	public void testIncompressibleData() throws IOException
+	{
+		byte[] data = new byte[100_000];
+		new Random(7).nextBytes(data);
+		byte[] compressed = readAll(CompressingInputStream.gzip(new ByteArrayInputStream(data)), new Random(7));
+		try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed)))
+		{
+			assertArrayEquals(data, in.readAllBytes());
+		}
+	}
+
+	@Test
+	public void testEndOfStreamIsSticky() throws IOException
+	{
+		InputStream in = CompressingInputStream.gzip(new ByteArrayInputStream(records(1000)));
+		in.readAllBytes();
+		assertEquals(-1, in.read());
+		assertEquals(-1, in.read(new byte[16], 0, 16));
+		assertEquals(0, in.read(new byte[16], 0, 0));
+		in.close();
+	}
+
+	@Test
+	public void testCloseClosesSource() throws IOException
+	{
+		boolean[] closed = new boolean[1];
+		InputStream source = new ByteArrayInputStream(records(100))
+		{
+			@Override
+			public void close()
+			{
+				closed[0] = true;
+			}
+		};
+		CompressingInputStream.deflate(source).close();
+		assertTrue(closed[0]);
+	}
+
+	/**
+	 * Bytes allocated to compress a full spool segment, streamed against compressed into
+	 * memory up front as uploads used to be
+	 */
+	@Test
+	public void testBenchmarkSegmentAllocation() throws IOException
+	{
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		byte[] segment = records(256 * 1024);
+		byte[] buffer = new byte[16 * 1024];
+
+		long streamed = Long.MAX_VALUE;
+		long buffered = Long.MAX_VALUE;
+		long streamedNanos = Long.MAX_VALUE;
+		long bufferedNanos = Long.MAX_VALUE;
+		long sink = 0;
+		for (int round = 0; round < 10; round++)
+		{
+			long start = threads.getThreadAllocatedBytes(threadId);
+			long startNanos = System.nanoTime();
+			try (InputStream in = CompressingInputStream.gzip(new ByteArrayInputStream(segment)))
+			{
+				for (int n = in.read(buffer); n >= 0; n = in.read(buffer))
+				{
+					sink += n;
+				}
+			}
+			streamedNanos = Math.min(streamedNanos, System.nanoTime() - startNanos);
+			streamed = Math.min(streamed, threads.getThreadAllocatedBytes(threadId) - start);
+
+			start = threads.getThreadAllocatedBytes(threadId);
+			startNanos = System.nanoTime();
+			ByteArrayOutputStream wire = new ByteArrayOutputStream(segment.length / 4 + 64);
+			try (OutputStream out = new GZIPOutputStream(wire, 8192))
+			{
+				out.write(segment);
+			}
+			sink += wire.toByteArray().length;
+			bufferedNanos = Math.min(bufferedNanos, System.nanoTime() - startNanos);
+			buffered = Math.min(buffered, threads.getThreadAllocatedBytes(threadId) - start);
+		}
+
+		System.out.printf("gzip %d KB segment: streamed %d KB allocated in %d us, in memory %d KB allocated in %d us (%d)%n",
+			segment.length / 1024, streamed / 1024, streamedNanos / 1000, buffered / 1024, bufferedNanos / 1000, sink);
+		assertTrue(streamed < buffered);
+	}
+
+	/**
+	 * Compressible data shaped like spooled JSON records
+	 */
+	private static byte[] records(int size)
+	{
+		StringBuilder text = new StringBuilder(size + 128);
+		for (int i = 0; text.length() < size; i++)
+		{
+			text.append(",{\"eventType\":\"HIT_SPLAT\",\"timestamp\":\"2026-10-17T04:02:")
+				.append(i % 60).append("Z\",\"details\":{\"amount\":").append(i % 37).append("}}\n");
+		}
+		byte[] data = text.toString().getBytes(StandardCharsets.UTF_8);
+		byte[] exact = new byte[size];
+		System.arraycopy(data, 0, exact, 0, size);
+		return exact;
+	}
+
+	/**
+	 * Read a stream to the end in reads of random length, single bytes included
+	 */
+	private static byte[] readAll(InputStream in, Random random) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		try (InputStream stream = in)
+		{
+			while (true)
+			{
+				if (random.nextInt(4) == 0)
+				{
+					int b = stream.read();
+					if (b < 0)
+					{
+						break;
+					}
+					out.write(b);
+				}
+				else
+				{
+					int n = stream.read(buffer, 0, 1 + random.nextInt(buffer.length));
+					if (n < 0)
+					{
+						break;
+					}
+					out.write(buffer, 0, n);
+				}
+			}
+		}
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,211 @@
+package com.MindRune.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class EventRingBufferTest
+{
+	private static final int PRODUCERS = 4;
+	// Values carry their producer in the high bits and a sequence number in the low bits
+	private static final int SEQUENCE_BITS = 20;
+
+	@Test
+	public void testOfferAndPollInOrder()
+	{
+		EventRingBuffer<Integer> buffer = new EventRingBuffer<>(5);
+		assertEquals(8, buffer.capacity());
+		assertNull(buffer.poll());
+
+		for (int round = 0; round < 3; round++)
+		{
+			for (int i = 0; i < 6; i++)
+			{
+				assertTrue(buffer.offer(round * 10 + i));
+			}
+			assertEquals(6, buffer.size());
+			for (int i = 0; i < 6; i++)
+			{
+				assertEquals(Integer.valueOf(round * 10 + i), buffer.poll());
+			}
+			assertTrue(buffer.isEmpty());
+		}
+	}
+
+	@Test
+	public void testFullBufferDropsAndCounts()
+	{
+		EventRingBuffer<Integer> buffer = new EventRingBuffer<>(4);
+		for (int i = 0; i < 4; i++)
+		{
+			assertTrue(buffer.offer(i));
+		}
+		assertFalse(buffer.offer(4));
+		assertFalse(buffer.offer(5));
+		assertEquals(2, buffer.getDroppedCount());
+
+		// Freeing one slot lets exactly one more in
+		assertEquals(Integer.valueOf(0), buffer.poll());
+		assertTrue(buffer.offer(6));
+		assertFalse(buffer.offer(7));
+		assertEquals(3, buffer.getDroppedCount());
+
+		List<Integer> drained = new ArrayList<>();
+		assertEquals(4, buffer.drainTo(drained));
+		assertEquals(List.of(1, 2, 3, 6), drained);
+	}
+
+	@Test(timeout = 30_000)
+	public void testConcurrentProducersBelowCapacity() throws Exception
+	{
+		int perProducer = 20_000;
+		EventRingBuffer<Integer> buffer = new EventRingBuffer<>(PRODUCERS * perProducer);
+		List<Integer> received = new ArrayList<>();
+		boolean[][] accepted = run(buffer, perProducer, false, received);
+
+		assertEquals(PRODUCERS * perProducer, received.size());
+		assertReceivedExactly(accepted, received);
+		assertEquals(0, buffer.getDroppedCount());
+	}
+
+	@Test(timeout = 30_000)
+	public void testConcurrentProducersWhenFull() throws Exception
+	{
+		int perProducer = 50_000;
+		EventRingBuffer<Integer> buffer = new EventRingBuffer<>(64);
+		List<Integer> received = new ArrayList<>();
+		boolean[][] accepted = run(buffer, perProducer, true, received);
+
+		int acceptedCount = 0;
+		for (boolean[] producer : accepted)
+		{
+			for (boolean value : producer)
+			{
+				acceptedCount += value ? 1 : 0;
+			}
+		}
+		// The consumer falls behind on purpose, so the buffer fills up
+		assertTrue(acceptedCount < PRODUCERS * perProducer);
+		assertEquals(PRODUCERS * perProducer - acceptedCount, buffer.getDroppedCount());
+		assertEquals(acceptedCount, received.size());
+		assertReceivedExactly(accepted, received);
+	}
+
+	/**
+	 * Offer from several producer threads at once while one consumer thread drains
+	 *
+	 * @param slowConsumer Pause the consumer between drains so producers outrun it
+	 * @param received Receives the drained values
+	 * @return Per producer and sequence number, whether the offer was accepted
+	 */
+	private static boolean[][] run(EventRingBuffer<Integer> buffer, int perProducer, boolean slowConsumer,
+		List<Integer> received) throws Exception
+	{
+		boolean[][] accepted = new boolean[PRODUCERS][perProducer];
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		List<Thread> producers = new ArrayList<>();
+		for (int p = 0; p < PRODUCERS; p++)
+		{
+			int producer = p;
+			producers.add(new Thread(() ->
+			{
+				try
+				{
+					start.await();
+					for (int i = 0; i < perProducer; i++)
+					{
+						accepted[producer][i] = buffer.offer(producer << SEQUENCE_BITS | i);
+					}
+				}
+				catch (Throwable t)
+				{
+					failure.compareAndSet(null, t);
+				}
+			}));
+		}
+
+		CountDownLatch producersDone = new CountDownLatch(PRODUCERS);
+		Thread consumer = new Thread(() ->
+		{
+			try
+			{
+				start.await();
+				while (producersDone.getCount() > 0)
+				{
+					int count = buffer.drainTo(received);
+					if (slowConsumer)
+					{
+						Thread.sleep(1);
+					}
+					else if (count == 0)
+					{
+						Thread.yield();
+					}
+				}
+				// Everything offered is published once the producers are done
+				while (buffer.drainTo(received) > 0)
+				{
+					// keep draining
+				}
+			}
+			catch (Throwable t)
+			{
+				failure.compareAndSet(null, t);
+			}
+		});
+
+		for (Thread producer : producers)
+		{
+			producer.start();
+		}
+		consumer.start();
+		start.countDown();
+		for (Thread producer : producers)
+		{
+			producer.join();
+			producersDone.countDown();
+		}
+		consumer.join();
+
+		assertNull(failure.get());
+		assertTrue(buffer.isEmpty());
+		return accepted;
+	}
+
+	/**
+	 * Every accepted value arrived once, in the order its producer offered it, and
+	 * nothing else arrived
+	 */
+	private static void assertReceivedExactly(boolean[][] accepted, List<Integer> received)
+	{
+		int[] next = new int[PRODUCERS];
+		for (int value : received)
+		{
+			int producer = value >>> SEQUENCE_BITS;
+			int sequence = value & ((1 << SEQUENCE_BITS) - 1);
+			while (next[producer] < sequence)
+			{
+				assertFalse("lost " + producer + "/" + next[producer], accepted[producer][next[producer]]);
+				next[producer]++;
+			}
+			assertEquals("out of order or duplicated", next[producer], sequence);
+			assertTrue(accepted[producer][sequence]);
+			next[producer]++;
+		}
+		for (int producer = 0; producer < PRODUCERS; producer++)
+		{
+			for (int sequence = next[producer]; sequence < accepted[producer].length; sequence++)
+			{
+				assertFalse("lost " + producer + "/" + sequence, accepted[producer][sequence]);
+			}
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package com.MindRune.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class IntIntMapTest
+{
+	@Test
+	public void testMatchesLinkedHashMap()
+	{
+		Random random = new Random(21);
+		IntIntMap map = new IntIntMap(4);
+		for (int round = 0; round < 50; round++)
+		{
+			Map<Integer, Integer> expected = new LinkedHashMap<>();
+			int range = 1 + random.nextInt(2_000);
+			for (int i = 0; i < 5_000; i++)
+			{
+				int key = random.nextInt(range) - range / 2;
+				int delta = random.nextInt(100) - 20;
+				int value = expected.merge(key, delta, Integer::sum);
+				assertEquals(value, map.addTo(key, delta));
+			}
+
+			assertSameEntries(expected, map);
+			for (int key = -range; key < range; key++)
+			{
+				assertEquals(expected.getOrDefault(key, 0).intValue(), map.get(key));
+			}
+
+			// Reused after clearing, at the grown capacity
+			map.clear();
+			assertEquals(0, map.size());
+		}
+	}
+
+	@Test
+	public void testKeepsFirstSeenOrderAcrossGrowth()
+	{
+		IntIntMap map = new IntIntMap(2);
+		List<Integer> order = new ArrayList<>();
+		for (int key = 1000; key > 0; key -= 7)
+		{
+			map.addTo(key, 1);
+			order.add(key);
+		}
+		for (int key = 1000; key > 0; key -= 7)
+		{
+			map.addTo(key, 1);
+		}
+
+		assertEquals(order.size(), map.size());
+		for (int i = 0; i < order.size(); i++)
+		{
+			assertEquals(order.get(i).intValue(), map.keyAt(i));
+			assertEquals(2, map.valueAt(i));
+		}
+	}
+
+	@Test
+	public void testReservedKey()
+	{
+		IntIntMap map = new IntIntMap();
+		assertEquals(0, map.get(Integer.MIN_VALUE));
+		try
+		{
+			map.addTo(Integer.MIN_VALUE, 1);
+			fail("Reserved key was accepted");
+		}
+		catch (IllegalArgumentException expected)
+		{
+			// expected
+		}
+	}
+
+	private static void assertSameEntries(Map<Integer, Integer> expected, IntIntMap map)
+	{
+		assertEquals(expected.size(), map.size());
+		int position = 0;
+		for (Map.Entry<Integer, Integer> entry : expected.entrySet())
+		{
+			assertEquals(entry.getKey().intValue(), map.keyAt(position));
+			assertEquals(entry.getValue().intValue(), map.valueAt(position));
+			position++;
+		}
+	}
+}
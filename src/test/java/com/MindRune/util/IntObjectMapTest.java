@@ -0,0 +1,108 @@
+package com.MindRune.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class IntObjectMapTest
+{
+	@Test
+	public void testMatchesHashMap()
+	{
+		Random random = new Random(20);
+		for (int round = 0; round < 50; round++)
+		{
+			IntObjectMap<String> map = new IntObjectMap<>();
+			Map<Integer, String> expected = new HashMap<>();
+			int range = 1 + random.nextInt(3_000);
+			for (int i = 0; i < 2_000; i++)
+			{
+				int key = random.nextInt(range) - range / 2;
+				String value = "v" + i;
+				map.put(key, value);
+				expected.put(key, value);
+				assertEquals(expected.size(), map.size());
+			}
+
+			for (int key = -range; key < range; key++)
+			{
+				assertSame(expected.get(key), map.get(key));
+				assertEquals(expected.containsKey(key), map.containsKey(key));
+			}
+			assertSameValues(expected, map);
+		}
+	}
+
+	@Test
+	public void testNullValueIsStillAKey()
+	{
+		IntObjectMap<String> map = new IntObjectMap<>();
+		map.put(7, null);
+		assertTrue(map.containsKey(7));
+		assertNull(map.get(7));
+		assertEquals(1, map.size());
+
+		map.put(7, "seven");
+		assertEquals("seven", map.get(7));
+		assertEquals(1, map.size());
+	}
+
+	@Test
+	public void testGrowsPastInitialCapacity()
+	{
+		IntObjectMap<Integer> map = new IntObjectMap<>();
+		// Multiples of a large power of two share their low bits before hashing
+		for (int i = 0; i < 1_000; i++)
+		{
+			map.put(i << 16, i);
+		}
+
+		assertEquals(1_000, map.size());
+		for (int i = 0; i < 1_000; i++)
+		{
+			assertEquals(Integer.valueOf(i), map.get(i << 16));
+		}
+		assertNull(map.get(1));
+	}
+
+	@Test
+	public void testReservedKey()
+	{
+		IntObjectMap<String> map = new IntObjectMap<>();
+		assertNull(map.get(Integer.MIN_VALUE));
+		assertFalse(map.containsKey(Integer.MIN_VALUE));
+		try
+		{
+			map.put(Integer.MIN_VALUE, "reserved");
+			fail("Reserved key was accepted");
+		}
+		catch (IllegalArgumentException expected)
+		{
+			// expected
+		}
+		assertEquals(0, map.size());
+	}
+
+	private static void assertSameValues(Map<Integer, String> expected, IntObjectMap<String> map)
+	{
+		List<String> actual = new ArrayList<>();
+		for (String value : map.values())
+		{
+			actual.add(value);
+		}
+		List<String> values = new ArrayList<>(expected.values());
+		actual.sort(null);
+		values.sort(null);
+		assertEquals(values, actual);
+	}
+}
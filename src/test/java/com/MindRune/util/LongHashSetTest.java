@@ -0,0 +1,62 @@
+package com.MindRune.util;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LongHashSetTest
+{
+	@Test
+	public void testMatchesHashSet()
+	{
+		Random random = new Random(21);
+		LongHashSet set = new LongHashSet(4);
+		for (int round = 0; round < 50; round++)
+		{
+			Set<Long> expected = new HashSet<>();
+			int range = 1 + random.nextInt(4_000);
+			for (int i = 0; i < 5_000; i++)
+			{
+				// Widget keys: an ID in the high half and a child index, often -1, in the low half
+				long value = ((long) random.nextInt(range) << 32) | ((random.nextInt(8) - 1) & 0xFFFFFFFFL);
+				assertEquals(expected.add(value), set.add(value));
+			}
+
+			assertEquals(expected.size(), set.size());
+			for (long value : expected)
+			{
+				assertTrue(set.contains(value));
+			}
+			assertFalse(set.contains(-1L << 32));
+
+			set.clear();
+			assertEquals(0, set.size());
+			for (long value : expected)
+			{
+				assertFalse(set.contains(value));
+			}
+		}
+	}
+
+	@Test
+	public void testReservedValue()
+	{
+		LongHashSet set = new LongHashSet();
+		assertFalse(set.contains(Long.MIN_VALUE));
+		try
+		{
+			set.add(Long.MIN_VALUE);
+			fail("Reserved value was accepted");
+		}
+		catch (IllegalArgumentException expected)
+		{
+			// expected
+		}
+	}
+}
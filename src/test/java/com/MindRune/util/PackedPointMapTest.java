@@ -0,0 +1,234 @@
+package com.MindRune.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PackedPointMapTest
+{
+	// Capacity of a map created for the smallest expected size, grown once it would be half full
+	private static final int MIN_CAPACITY = 8;
+
+	@Test
+	public void testMatchesHashMap()
+	{
+		Random random = new Random(14);
+		for (int round = 0; round < 50; round++)
+		{
+			PackedPointMap<Integer> map = new PackedPointMap<>(1);
+			Map<Long, Integer> expected = new HashMap<>();
+			// Small areas keep the table dense, so probe runs are long and often wrap
+			int range = 1 + random.nextInt(24);
+			int baseX = 3000 + random.nextInt(500);
+			int baseY = 3000 + random.nextInt(500);
+
+			for (int i = 0; i < 4_000; i++)
+			{
+				int x = baseX + random.nextInt(range);
+				int y = baseY + random.nextInt(range);
+				int plane = random.nextInt(4);
+				long key = PackedPointMap.pack(x, y, plane);
+				Integer current = expected.get(key);
+
+				if (random.nextInt(5) < 2)
+				{
+					Integer value = i;
+					map.put(x, y, plane, value);
+					expected.put(key, value);
+				}
+				else if (current != null && random.nextInt(4) == 0)
+				{
+					// A value the tile no longer maps to leaves it alone
+					assertFalse(map.remove(x, y, plane, -1));
+					assertSame(current, map.get(x, y, plane));
+				}
+				else
+				{
+					assertEquals(current != null, map.remove(x, y, plane, current));
+					expected.remove(key);
+				}
+				assertEquals(expected.size(), map.size());
+			}
+
+			for (int plane = 0; plane < 4; plane++)
+			{
+				for (int x = baseX - 1; x <= baseX + range; x++)
+				{
+					for (int y = baseY - 1; y <= baseY + range; y++)
+					{
+						assertSame(expected.get(PackedPointMap.pack(x, y, plane)), map.get(x, y, plane));
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testDeleteShiftsWrappedRunBack()
+	{
+		// Three tiles that all hash to the last slot, so their run wraps to the start
+		List<int[]> tiles = tilesHomedAt(MIN_CAPACITY - 1, MIN_CAPACITY, 3);
+		for (int removed = 0; removed < tiles.size(); removed++)
+		{
+			PackedPointMap<Integer> map = new PackedPointMap<>(1);
+			for (int i = 0; i < tiles.size(); i++)
+			{
+				put(map, tiles.get(i), i);
+			}
+
+			int[] tile = tiles.get(removed);
+			assertTrue(map.remove(tile[0], tile[1], tile[2], get(map, tile)));
+			assertNull(get(map, tile));
+			for (int i = 0; i < tiles.size(); i++)
+			{
+				if (i != removed)
+				{
+					assertEquals(Integer.valueOf(i), get(map, tiles.get(i)));
+				}
+			}
+			assertEquals(tiles.size() - 1, map.size());
+		}
+	}
+
+	@Test
+	public void testResizeWhileRunWraps()
+	{
+		PackedPointMap<Integer> map = new PackedPointMap<>(1);
+		List<int[]> tiles = tilesHomedAt(MIN_CAPACITY - 1, MIN_CAPACITY, 3);
+		for (int i = 0; i < tiles.size(); i++)
+		{
+			put(map, tiles.get(i), i);
+		}
+
+		// The fifth tile grows the table, rehashing the wrapped run
+		tiles.add(new int[]{100, 200, 1});
+		tiles.add(new int[]{101, 200, 1});
+		put(map, tiles.get(3), 3);
+		put(map, tiles.get(4), 4);
+		for (int i = 0; i < tiles.size(); i++)
+		{
+			assertEquals(Integer.valueOf(i), get(map, tiles.get(i)));
+		}
+
+		for (int i = 0; i < tiles.size(); i++)
+		{
+			int[] tile = tiles.get(i);
+			assertTrue(map.remove(tile[0], tile[1], tile[2], get(map, tile)));
+		}
+		assertTrue(map.isEmpty());
+	}
+
+	@Test
+	public void testFindNearestMatchesBruteForce()
+	{
+		Random random = new Random(41);
+		for (int round = 0; round < 200; round++)
+		{
+			PackedPointMap<Integer> map = new PackedPointMap<>();
+			List<int[]> tiles = new ArrayList<>();
+			for (int i = random.nextInt(12); i > 0; i--)
+			{
+				int[] tile = {3200 + random.nextInt(16), 3200 + random.nextInt(16), random.nextInt(2)};
+				if (get(map, tile) == null)
+				{
+					put(map, tile, tiles.size());
+					tiles.add(tile);
+				}
+			}
+
+			for (int query = 0; query < 50; query++)
+			{
+				int x = 3196 + random.nextInt(24);
+				int y = 3196 + random.nextInt(24);
+				int plane = random.nextInt(2);
+				int radius = random.nextInt(4);
+
+				int nearest = Integer.MAX_VALUE;
+				for (int[] tile : tiles)
+				{
+					if (tile[2] == plane)
+					{
+						nearest = Math.min(nearest, distance(tile, x, y));
+					}
+				}
+
+				Integer found = map.findNearest(x, y, plane, radius);
+				if (nearest > radius)
+				{
+					assertNull(found);
+				}
+				else
+				{
+					// Ties within a ring may resolve either way, only the distance is fixed
+					int[] tile = tiles.get(found);
+					assertEquals(plane, tile[2]);
+					assertEquals(nearest, distance(tile, x, y));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testClear()
+	{
+		PackedPointMap<String> map = new PackedPointMap<>(1);
+		for (int i = 0; i < 100; i++)
+		{
+			map.put(i, i, 0, "v" + i);
+		}
+		map.clear();
+
+		assertTrue(map.isEmpty());
+		assertNull(map.get(5, 5, 0));
+		assertNull(map.findNearest(5, 5, 0, 3));
+		map.put(5, 5, 0, "again");
+		assertEquals("again", map.get(5, 5, 0));
+	}
+
+	/**
+	 * Tiles whose key hashes to the given slot of a table of the given capacity
+	 */
+	private static List<int[]> tilesHomedAt(int slot, int capacity, int count)
+	{
+		List<int[]> tiles = new ArrayList<>();
+		for (int x = 3200; tiles.size() < count; x++)
+		{
+			if ((hash(PackedPointMap.pack(x, 3200, 0)) & (capacity - 1)) == slot)
+			{
+				tiles.add(new int[]{x, 3200, 0});
+			}
+		}
+		return tiles;
+	}
+
+	// Mirrors the hash the map spreads packed keys with
+	private static int hash(long key)
+	{
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	private static int distance(int[] tile, int x, int y)
+	{
+		return Math.max(Math.abs(tile[0] - x), Math.abs(tile[1] - y));
+	}
+
+	private static void put(PackedPointMap<Integer> map, int[] tile, int value)
+	{
+		map.put(tile[0], tile[1], tile[2], value);
+	}
+
+	private static Integer get(PackedPointMap<Integer> map, int[] tile)
+	{
+		return map.get(tile[0], tile[1], tile[2]);
+	}
+}
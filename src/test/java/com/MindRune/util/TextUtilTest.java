@@ -0,0 +1,158 @@
+package com.MindRune.util;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class TextUtilTest
+{
+	// Menu options, targets, actor names and chat lines as the client hands them to us
+	private static final String[] MENU_STRINGS = {
+		"Walk here",
+		"Attack",
+		"<col=ffff00>Goblin<col=ff00>  (level-2)",
+		"<col=ff9040>Coins</col>",
+		"<col=ffffff>Bank booth",
+		"<col=00ffff>Varrock Teleport</col><col=ffffff> -> <col=ffff>Lumbridge",
+		"<col=ff9040>Dragon scimitar</col><col=ffffff> -> <col=ffff>Player<col=ff00>  (level-126)",
+		"<img=2>Zezima",
+		"<col=ffff00>Vet'ion<col=ff3000>  (level-454)",
+		"  Use  ",
+		"Congratulations, you've completed a hard task in the <col=ff0000>Varrock</col> area.<br>Visit Toby to claim your reward.",
+		"<col=ef1020>Your completed Tombs of Amascut count is: <col=ff0000>42</col>.",
+		"<str>Cook's Assistant</str>",
+		"<lt>not a tag<gt>",
+		"Unclosed <col=ff0000 tag",
+		"Ends with <",
+		"<col=>empty colour",
+		"<COL=FF0000>upper case",
+		"<col=ff0000><col=00ff00>nested",
+		"",
+	};
+
+	@Test
+	public void testMenuStringsMatchRegex()
+	{
+		for (String input : MENU_STRINGS)
+		{
+			assertEquals(input, legacyStripColorTags(input), TextUtil.stripColorTags(input));
+			assertEquals(input, legacyStripHtmlTags(input), TextUtil.stripHtmlTags(input));
+		}
+	}
+
+	@Test
+	public void testRandomMarkupMatchesRegex()
+	{
+		// Built from the characters that matter to either pattern, so edge cases come up often
+		char[] alphabet = {'<', '>', '/', '=', 'c', 'o', 'l', 'C', 'f', 'F', '0', '9', 'g', ' ', '\t', '\n', 'x', '\u00e9'};
+		Random random = new Random(11);
+		for (int i = 0; i < 100_000; i++)
+		{
+			char[] chars = new char[random.nextInt(24)];
+			for (int j = 0; j < chars.length; j++)
+			{
+				chars[j] = alphabet[random.nextInt(alphabet.length)];
+			}
+			String input = new String(chars);
+			assertEquals(input, legacyStripColorTags(input), TextUtil.stripColorTags(input));
+			assertEquals(input, legacyStripHtmlTags(input), TextUtil.stripHtmlTags(input));
+		}
+	}
+
+	@Test
+	public void testNull()
+	{
+		assertEquals("", TextUtil.stripColorTags(null));
+		assertEquals("", TextUtil.stripHtmlTags(null));
+	}
+
+	@Test
+	public void testPlainTextIsNotCopied()
+	{
+		String input = "Walk here";
+		assertSame(input, TextUtil.stripColorTags(input));
+		assertSame(input, TextUtil.stripHtmlTags(input));
+	}
+
+	@Test
+	public void testAppendsToBuilder()
+	{
+		StringBuilder out = new StringBuilder("Target: ");
+		TextUtil.stripColorTags("  <col=ffff00>Goblin<col=ff00>  (level-2)  ", out);
+		assertEquals("Target: Goblin  (level-2)", out.toString());
+
+		out.setLength(0);
+		TextUtil.stripHtmlTags("<col=ff0000>Varrock</col><br>", out);
+		assertEquals("Varrock", out.toString());
+	}
+
+	/**
+	 * Time per call of the scanner against the regex it replaced, over the menu strings
+	 */
+	@Test
+	public void testBenchmarkMenuStrings()
+	{
+		long[] best = new long[4];
+		Arrays.fill(best, Long.MAX_VALUE);
+		int sink = 0;
+		for (int round = 0; round < 20; round++)
+		{
+			long start = System.nanoTime();
+			for (int i = 0; i < 200; i++)
+			{
+				for (String input : MENU_STRINGS)
+				{
+					sink += TextUtil.stripColorTags(input).length();
+				}
+			}
+			best[0] = Math.min(best[0], System.nanoTime() - start);
+
+			start = System.nanoTime();
+			for (int i = 0; i < 200; i++)
+			{
+				for (String input : MENU_STRINGS)
+				{
+					sink += legacyStripColorTags(input).length();
+				}
+			}
+			best[1] = Math.min(best[1], System.nanoTime() - start);
+
+			start = System.nanoTime();
+			for (int i = 0; i < 200; i++)
+			{
+				for (String input : MENU_STRINGS)
+				{
+					sink += TextUtil.stripHtmlTags(input).length();
+				}
+			}
+			best[2] = Math.min(best[2], System.nanoTime() - start);
+
+			start = System.nanoTime();
+			for (int i = 0; i < 200; i++)
+			{
+				for (String input : MENU_STRINGS)
+				{
+					sink += legacyStripHtmlTags(input).length();
+				}
+			}
+			best[3] = Math.min(best[3], System.nanoTime() - start);
+		}
+
+		int calls = 200 * MENU_STRINGS.length;
+		System.out.printf("stripColorTags: %d ns/call, regex %d ns/call%n", best[0] / calls, best[1] / calls);
+		System.out.printf("stripHtmlTags:  %d ns/call, regex %d ns/call (%d)%n", best[2] / calls, best[3] / calls, sink);
+	}
+
+	private static String legacyStripColorTags(String input)
+	{
+		return input.replaceAll("<col=[0-9a-fA-F]+>", "").trim();
+	}
+
+	private static String legacyStripHtmlTags(String input)
+	{
+		return input.replaceAll("<[^>]*>", "").trim();
+	}
+}
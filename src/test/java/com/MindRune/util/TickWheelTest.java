@@ -0,0 +1,206 @@
+package com.MindRune.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TickWheelTest
+{
+	// Matches the slot count of the wheel
+	private static final int SLOTS = 512;
+
+	private TickWheel wheel;
+	private int tick;
+	private List<String> runs;
+
+	@Before
+	public void setUp()
+	{
+		wheel = new TickWheel();
+		tick = 0;
+		runs = new ArrayList<>();
+	}
+
+	@Test
+	public void testRunsAfterDelay()
+	{
+		wheel.schedule(3, record("a"));
+		wheel.schedule(1, record("b"));
+		wheel.schedule(0, record("c")); // at least one tick
+
+		advance(3);
+		assertEquals(List.of("a@3", "b@1", "c@1"), sorted(runs));
+	}
+
+	@Test
+	public void testCancel()
+	{
+		TickWheel.Timeout cancelled = wheel.schedule(2, record("cancelled"));
+		TickWheel.Timeout ran = wheel.schedule(1, record("ran"));
+
+		assertTrue(cancelled.cancel());
+		assertFalse(cancelled.cancel());
+		advance(3);
+		assertEquals(List.of("ran@1"), runs);
+		assertFalse(ran.cancel());
+	}
+
+	@Test
+	public void testCancelOtherDueTaskFromTask()
+	{
+		// Due on the same tick and each cancels the other, so whichever runs first wins
+		TickWheel.Timeout[] timeouts = new TickWheel.Timeout[2];
+		boolean[] cancelled = new boolean[2];
+		for (int i = 0; i < 2; i++)
+		{
+			int self = i;
+			timeouts[i] = wheel.schedule(1, () ->
+			{
+				runs.add("t" + self);
+				cancelled[1 - self] = timeouts[1 - self].cancel();
+			});
+		}
+		wheel.schedule(1, record("other"));
+
+		advance(1);
+		assertEquals(2, runs.size());
+		assertTrue(runs.contains("other@1"));
+		assertTrue(cancelled[0] != cancelled[1]);
+	}
+
+	@Test
+	public void testRescheduleFromTask()
+	{
+		// Rescheduling for a full rotation lands in the slot being advanced, and must wait for it
+		wheel.schedule(1, new Runnable()
+		{
+			private int count;
+
+			@Override
+			public void run()
+			{
+				runs.add("repeat@" + tick);
+				if (++count < 3)
+				{
+					wheel.schedule(count == 1 ? SLOTS : 1, this);
+				}
+			}
+		});
+
+		advance(SLOTS + 5);
+		assertEquals(List.of("repeat@1", "repeat@" + (SLOTS + 1), "repeat@" + (SLOTS + 2)), runs);
+	}
+
+	@Test
+	public void testDeadlinesBeyondOneRotation()
+	{
+		int[] delays = {SLOTS - 1, SLOTS, SLOTS + 1, 1000, 3 * SLOTS + 7};
+		for (int delay : delays)
+		{
+			wheel.schedule(delay, record("d" + delay));
+		}
+		// Shares a slot with the longer delays, but is due first
+		wheel.schedule(7, record("short"));
+
+		advance(3 * SLOTS + 10);
+		assertEquals(List.of("short@7", "d511@511", "d512@512", "d513@513", "d1000@1000", "d1543@1543"), runs);
+	}
+
+	@Test
+	public void testThrowingTaskDoesNotStopOthers()
+	{
+		wheel.schedule(1, record("before"));
+		wheel.schedule(1, () ->
+		{
+			throw new IllegalStateException("expected");
+		});
+		wheel.schedule(1, record("after"));
+		wheel.schedule(2, record("next"));
+
+		advance(2);
+		assertEquals(List.of("after@1", "before@1", "next@2"), sorted(runs));
+	}
+
+	@Test
+	public void testClear()
+	{
+		TickWheel.Timeout timeout = wheel.schedule(1, record("cleared"));
+		wheel.schedule(SLOTS + 1, record("cleared later"));
+		wheel.clear();
+
+		advance(SLOTS + 2);
+		assertTrue(runs.isEmpty());
+		assertFalse(timeout.cancel());
+	}
+
+	@Test
+	public void testRandomScheduleMatchesReference()
+	{
+		Random random = new Random(15);
+		Map<TickWheel.Timeout, Integer> expected = new HashMap<>();
+		Map<String, Integer> actual = new HashMap<>();
+		List<TickWheel.Timeout> pending = new ArrayList<>();
+		Map<TickWheel.Timeout, String> names = new HashMap<>();
+		int id = 0;
+
+		for (int i = 0; i < 3000; i++)
+		{
+			for (int n = random.nextInt(4); n > 0; n--)
+			{
+				int delay = random.nextInt(8) == 0 ? 1 + random.nextInt(4 * SLOTS) : 1 + random.nextInt(20);
+				String name = "t" + id++;
+				TickWheel.Timeout timeout = wheel.schedule(delay, () -> actual.put(name, tick));
+				expected.put(timeout, tick + delay);
+				names.put(timeout, name);
+				pending.add(timeout);
+			}
+			if (!pending.isEmpty() && random.nextInt(3) == 0)
+			{
+				TickWheel.Timeout timeout = pending.remove(random.nextInt(pending.size()));
+				boolean ran = expected.get(timeout) <= tick;
+				assertEquals(!ran, timeout.cancel());
+				if (!ran)
+				{
+					expected.remove(timeout);
+				}
+			}
+			advance(1);
+		}
+		advance(4 * SLOTS + 1);
+
+		for (Map.Entry<TickWheel.Timeout, Integer> entry : expected.entrySet())
+		{
+			assertEquals(names.get(entry.getKey()), entry.getValue(), actual.get(names.get(entry.getKey())));
+		}
+		assertEquals(expected.size(), actual.size());
+	}
+
+	private Runnable record(String name)
+	{
+		return () -> runs.add(name + "@" + tick);
+	}
+
+	private void advance(int ticks)
+	{
+		for (int i = 0; i < ticks; i++)
+		{
+			tick++;
+			wheel.advance();
+		}
+	}
+
+	private static List<String> sorted(List<String> values)
+	{
+		List<String> copy = new ArrayList<>(values);
+		copy.sort(null);
+		return copy;
+	}
+}